@@ -0,0 +1,302 @@
+package com.github.nooop3;
+
+import com.github.nooop3.MfaEnrollmentAuthenticator.MethodView;
+import com.github.nooop3.fakes.FakeFlowContext;
+import com.github.nooop3.fakes.FakeUser;
+import com.github.nooop3.fakes.LoginFixture;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.keycloak.authentication.FlowStatus;
+import org.keycloak.models.credential.OTPCredentialModel;
+import org.keycloak.models.credential.PasswordCredentialModel;
+import org.keycloak.models.credential.RecoveryAuthnCodesCredentialModel;
+import org.keycloak.models.credential.WebAuthnCredentialModel;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives one shared {@link MfaEnrollmentAuthenticator} from many threads against the in-memory fakes, the way a
+ * node serves concurrent logins, and reports throughput, latency percentiles and the outcome distribution.
+ * <p>
+ * Users are generated from their index, so a population of millions costs no memory: about half have only a
+ * password, the rest a mix of TOTP, WebAuthn and recovery codes; some hold the {@code admin} or
+ * {@code contractor} realm role, were prompted recently or opted out. A login that renders the form continues
+ * with a POST selecting the first selectable method.
+ * <p>
+ * Usage: {@code mvn -P benchmarks test-compile exec:exec -Dbenchmark.main=com.github.nooop3.LoadSimulation
+ * -Dbenchmark.args="users=2000000 logins=5000000 threads=256 virtual=true config.rollout_percentage=20"}
+ */
+public final class LoadSimulation {
+
+    static final Map<String, String> DEFAULT_CONFIG = Map.of(
+            "remind_every_days", "7",
+            "allow_user_opt_out", "true");
+
+    private final int users;
+    private final long logins;
+    private final int threads;
+    private final boolean virtual;
+    private final long seed;
+    private final Map<String, String> config;
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    LoadSimulation(int users, long logins, int threads, boolean virtual, long seed, Map<String, String> config) {
+        this.users = users;
+        this.logins = logins;
+        this.threads = threads;
+        this.virtual = virtual;
+        this.seed = seed;
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        Map<String, String> config = new HashMap<>(DEFAULT_CONFIG);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                System.err.println("Usage: LoadSimulation [users=N] [logins=N] [threads=N] [virtual=true|false]"
+                        + " [seed=N] [config.<option>=<value> ...]");
+                System.exit(2);
+            }
+            String key = arg.substring(0, eq);
+            if (key.startsWith("config.")) {
+                config.put(key.substring("config.".length()), arg.substring(eq + 1));
+            } else {
+                options.put(key, arg.substring(eq + 1));
+            }
+        }
+        int users = Integer.parseInt(options.getOrDefault("users", "1000000"));
+        LoadSimulation simulation = new LoadSimulation(users,
+                Long.parseLong(options.getOrDefault("logins", String.valueOf(users))),
+                Integer.parseInt(options.getOrDefault("threads",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                Boolean.parseBoolean(options.getOrDefault("virtual", "false")),
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                config);
+        simulation.run(System.out);
+    }
+
+    void run(PrintStream out) throws InterruptedException {
+        // A short single-threaded pass, counted separately, so the JIT has compiled the login path before
+        // anything is measured.
+        new Worker(authenticator(new SimpleMeterRegistry()), 0, Math.min(logins, 20_000)).run();
+
+        MfaEnrollmentAuthenticator authenticator = authenticator(registry);
+
+        List<Worker> workers = new ArrayList<>(threads);
+        List<Thread> started = new ArrayList<>(threads);
+        Thread.Builder builder = virtual ? Thread.ofVirtual().name("simulation-", 0)
+                : Thread.ofPlatform().name("simulation-", 0);
+        long begin = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(authenticator, i + 1, logins / threads + (i < logins % threads ? 1 : 0));
+            workers.add(worker);
+            started.add(builder.start(worker));
+        }
+        for (Thread thread : started) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        Histogram authenticate = new Histogram();
+        Histogram action = new Histogram();
+        for (Worker worker : workers) {
+            authenticate.add(worker.authenticate);
+            action.add(worker.action);
+        }
+        report(out, elapsed, authenticate, action);
+    }
+
+    private void report(PrintStream out, long elapsedNanos, Histogram authenticate, Histogram action) {
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        out.printf(Locale.ROOT, "users:         %d%n", users);
+        out.printf(Locale.ROOT, "logins:        %d%n", logins);
+        out.printf(Locale.ROOT, "threads:       %d %s%n", threads, virtual ? "virtual" : "platform");
+        out.printf(Locale.ROOT, "config:        %s%n", config);
+        out.printf(Locale.ROOT, "throughput:    %.0f logins/s%n", logins / seconds);
+        authenticate.report(out, "authenticate:");
+        action.report(out, "action:      ");
+        // Percentages are of logins; a login that renders the form also counts the outcome of its POST.
+        out.println("outcomes:");
+        for (EnrollmentMetrics.Outcome outcome : EnrollmentMetrics.Outcome.values()) {
+            Counter counter = registry.find(EnrollmentMetrics.DECISIONS).tag("outcome", outcome.tag()).counter();
+            long count = counter == null ? 0 : (long) counter.count();
+            if (count > 0) {
+                out.printf(Locale.ROOT, "  %-22s %10d (%.2f%%)%n", outcome.tag(), count, 100.0 * count / logins);
+            }
+        }
+    }
+
+    private static MfaEnrollmentAuthenticator authenticator(SimpleMeterRegistry registry) {
+        MfaMethodCatalog catalog = MfaMethodCatalog.builtIn();
+        return new MfaEnrollmentAuthenticator(new EnrollmentPolicyCache(), new RoleTargetingIndex(),
+                new GroupTargetingIndex(), catalog, new MethodAvailabilityCache(catalog),
+                new EnrollmentFormCache(catalog), new UserAttributeStateStore(), new EnrollmentMetrics(registry));
+    }
+
+    private static String firstSelectable(FakeFlowContext context) {
+        Object methods = context.forms().attributes().get("mfaMethods");
+        if (methods instanceof List<?> views) {
+            for (Object view : views) {
+                if (view instanceof MethodView method && !method.isConfigured() && method.isAvailable()) {
+                    return method.getId();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builds user {@code index} of the population; the same index always yields the same user.
+     */
+    FakeUser user(LoginFixture fixture, int index, long now) {
+        SplittableRandom random = new SplittableRandom(seed ^ (index * 0x9E3779B97F4A7C15L));
+        FakeUser user = fixture.user("user-" + index, PasswordCredentialModel.TYPE);
+        int mix = random.nextInt(100);
+        if (mix >= 50 && mix < 75) {
+            user.credentials().add(OTPCredentialModel.TYPE);
+        } else if (mix >= 75 && mix < 85) {
+            user.credentials().add(WebAuthnCredentialModel.TYPE_TWOFACTOR);
+        } else if (mix >= 85 && mix < 95) {
+            user.credentials().add(OTPCredentialModel.TYPE);
+            user.credentials().add(RecoveryAuthnCodesCredentialModel.TYPE);
+        } else if (mix >= 95) {
+            user.credentials().add(OTPCredentialModel.TYPE);
+            user.credentials().add(WebAuthnCredentialModel.TYPE_TWOFACTOR);
+        }
+        int role = random.nextInt(100);
+        if (role < 10) {
+            user.grantRole(fixture.realm().getRole("admin"));
+        } else if (role < 25) {
+            user.grantRole(fixture.realm().getRole("contractor"));
+        }
+        int state = random.nextInt(100);
+        if (state < 30) {
+            user.setSingleAttribute(MfaEnrollmentAuthenticator.ATTR_LAST_PROMPT,
+                    String.valueOf(now - random.nextLong(TimeUnit.DAYS.toMillis(14))));
+        } else if (state < 35) {
+            user.setSingleAttribute(MfaEnrollmentAuthenticator.ATTR_SKIP_FUTURE_PROMPTS, "true");
+        }
+        return user;
+    }
+
+    private final class Worker implements Runnable {
+        private final MfaEnrollmentAuthenticator authenticator;
+        private final int id;
+        private final long count;
+        private final Histogram authenticate = new Histogram();
+        private final Histogram action = new Histogram();
+
+        private Worker(MfaEnrollmentAuthenticator authenticator, int id, long count) {
+            this.authenticator = authenticator;
+            this.id = id;
+            this.count = count;
+        }
+
+        @Override
+        public void run() {
+            LoginFixture fixture = LoginFixture.create(config);
+            fixture.realm().addRole("admin");
+            fixture.realm().addRole("contractor");
+            SplittableRandom picks = new SplittableRandom(seed + id);
+            long now = System.currentTimeMillis();
+            for (long i = 0; i < count; i++) {
+                FakeUser user = user(fixture, picks.nextInt(users), now);
+                FakeFlowContext context = fixture.begin(user);
+                long started = System.nanoTime();
+                authenticator.authenticate(context);
+                authenticate.record(System.nanoTime() - started);
+                if (context.getStatus() != FlowStatus.CHALLENGE) {
+                    continue;
+                }
+                String selected = firstSelectable(context);
+                context = fixture.resume(user);
+                if (selected != null) {
+                    context.request().formParameters().add("method", selected);
+                }
+                started = System.nanoTime();
+                authenticator.action(context);
+                action.record(System.nanoTime() - started);
+            }
+        }
+    }
+
+    /**
+     * Log-linear latency histogram: exact below 64 ns, then 32 sub-buckets per power of two (about 3% error).
+     */
+    static final class Histogram {
+        private static final int SUB_BUCKETS = 32;
+        private static final int SUB_BITS = 5;
+
+        private final long[] counts = new long[64 + (64 - 6) * SUB_BUCKETS];
+        private long total;
+        private long max;
+
+        void record(long nanos) {
+            long value = Math.max(nanos, 0);
+            counts[index(value)]++;
+            total++;
+            max = Math.max(max, value);
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            total += other.total;
+            max = Math.max(max, other.max);
+        }
+
+        long percentile(double percentile) {
+            long rank = (long) Math.ceil(percentile / 100 * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(rank, 1)) {
+                    return Math.min(lowerBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        void report(PrintStream out, String label) {
+            if (total == 0) {
+                out.printf(Locale.ROOT, "%s  none%n", label);
+                return;
+            }
+            out.printf(Locale.ROOT, "%s  n=%d p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n", label,
+                    total, micros(percentile(50)), micros(percentile(90)), micros(percentile(99)),
+                    micros(percentile(99.9)), micros(max));
+        }
+
+        private static int index(long value) {
+            if (value < 64) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return 64 + (exponent - 6) * SUB_BUCKETS + sub;
+        }
+
+        private static long lowerBound(int index) {
+            if (index < 64) {
+                return index;
+            }
+            int exponent = (index - 64) / SUB_BUCKETS + 6;
+            int sub = (index - 64) % SUB_BUCKETS;
+            return (1L << exponent) | ((long) sub << (exponent - SUB_BITS));
+        }
+
+        private static double micros(long nanos) {
+            return nanos / 1000.0;
+        }
+    }
+}
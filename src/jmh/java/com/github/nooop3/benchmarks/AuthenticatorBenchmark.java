@@ -0,0 +1,152 @@
+package com.github.nooop3.benchmarks;
+
+import com.github.nooop3.MfaEnrollmentAuthenticator;
+import com.github.nooop3.fakes.FakeFlowContext;
+import com.github.nooop3.fakes.FakeUser;
+import com.github.nooop3.fakes.LoginFixture;
+import org.keycloak.authentication.FlowStatus;
+import org.keycloak.models.RoleModel;
+import org.keycloak.models.credential.OTPCredentialModel;
+import org.keycloak.models.credential.PasswordCredentialModel;
+import org.keycloak.models.credential.WebAuthnCredentialModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-login cost of {@link MfaEnrollmentAuthenticator} against in-memory fakes. Run with
+ * {@code -prof gc} (the profile default) to get bytes allocated per operation next to ns/op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthenticatorBenchmark {
+
+    @Benchmark
+    public FlowStatus authenticateCompliantSkip(CompliantUser state) {
+        FakeFlowContext context = state.fixture.begin(state.user);
+        state.authenticator.authenticate(context);
+        return context.getStatus();
+    }
+
+    @Benchmark
+    public FlowStatus authenticateRendersForm(UnderMinimumUser state) {
+        FakeFlowContext context = state.fixture.begin(state.user);
+        state.authenticator.authenticate(context);
+        return context.getStatus();
+    }
+
+    @Benchmark
+    public FlowStatus authenticateRoleTargeted(RoleTargetedUser state) {
+        FakeFlowContext context = state.fixture.begin(state.user);
+        state.authenticator.authenticate(context);
+        return context.getStatus();
+    }
+
+    @Benchmark
+    public FlowStatus authenticateLargeCredentialList(LargeCredentialList state) {
+        FakeFlowContext context = state.fixture.begin(state.user);
+        state.authenticator.authenticate(context);
+        return context.getStatus();
+    }
+
+    @Benchmark
+    public FlowStatus actionSelectMethod(UnderMinimumUser state) {
+        FakeFlowContext context = state.fixture.begin(state.user);
+        context.request().formParameters().add("method", OTPCredentialModel.TYPE);
+        state.authenticator.action(context);
+        return context.getStatus();
+    }
+
+    @State(Scope.Thread)
+    public static class CompliantUser {
+        final MfaEnrollmentAuthenticator authenticator = new MfaEnrollmentAuthenticator();
+        LoginFixture fixture;
+        FakeUser user;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            fixture = LoginFixture.create(Map.of("offer_configure_additional_methods", "false"));
+            user = fixture.user("compliant", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class UnderMinimumUser {
+        final MfaEnrollmentAuthenticator authenticator = new MfaEnrollmentAuthenticator();
+        LoginFixture fixture;
+        FakeUser user;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            fixture = LoginFixture.create(Map.of());
+            user = fixture.user("under-minimum", PasswordCredentialModel.TYPE);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RoleTargetedUser {
+        final MfaEnrollmentAuthenticator authenticator = new MfaEnrollmentAuthenticator();
+        LoginFixture fixture;
+        FakeUser user;
+
+        @Param({"1", "25"})
+        int targetedRoles;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            List<String> roleNames = new ArrayList<>();
+            for (int i = 0; i < targetedRoles; i++) {
+                roleNames.add("role-" + i);
+            }
+            fixture = LoginFixture.create(Map.of(
+                    "only_for_roles", String.join(",", roleNames),
+                    "exclude_roles", "contractor",
+                    "offer_configure_additional_methods", "false"));
+            for (String roleName : roleNames) {
+                fixture.realm().addRole(roleName);
+            }
+            fixture.realm().addRole("contractor");
+            user = fixture.user("role-targeted", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE);
+            RoleModel granted = fixture.realm().getRole(roleNames.get(roleNames.size() - 1));
+            user.grantRole(granted);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class LargeCredentialList {
+        final MfaEnrollmentAuthenticator authenticator = new MfaEnrollmentAuthenticator();
+        LoginFixture fixture;
+        FakeUser user;
+
+        @Param({"1", "16", "128"})
+        int securityKeys;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            fixture = LoginFixture.create(Map.of("offer_configure_additional_methods", "false"));
+            user = fixture.user("many-keys", PasswordCredentialModel.TYPE);
+            // Roughly the size of a serialized WebAuthn public key credential.
+            String credentialData = "x".repeat(1024);
+            for (int i = 0; i < securityKeys; i++) {
+                user.credentials().add(WebAuthnCredentialModel.TYPE_TWOFACTOR, credentialData);
+            }
+        }
+    }
+}
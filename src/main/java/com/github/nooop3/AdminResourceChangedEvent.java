@@ -0,0 +1,14 @@
+package com.github.nooop3;
+
+import org.keycloak.events.admin.OperationType;
+import org.keycloak.events.admin.ResourceType;
+import org.keycloak.provider.ProviderEvent;
+
+/**
+ * Published on the session factory after a committed admin change, so the orchestrator's per-realm caches can
+ * react to changes Keycloak does not raise a {@link ProviderEvent} for (e.g. required actions being registered
+ * or toggled).
+ */
+record AdminResourceChangedEvent(String realmId, ResourceType resourceType, OperationType operationType)
+        implements ProviderEvent {
+}
@@ -0,0 +1,432 @@
+package com.github.nooop3;
+
+import java.time.Month;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The compiled {@code skip_if_attribute} / {@code skip_if_attribute_equals} conditions of a policy: a list of
+ * alternatives, each a conjunction of tests on one user attribute.
+ * <p>
+ * Each alternative is written as {@code <attribute> <operator> <operand>} tests joined by {@code &&}, for example
+ * {@code employmentType = contractor && employmentEnd within 7d}. The operators are {@code =}, {@code !=},
+ * {@code ^=} (prefix), {@code ~} (regular expression, whole value), {@code <}, {@code <=}, {@code >}, {@code >=}
+ * (integers), {@code in} / {@code not in} (comma separated set, optionally in parentheses), {@code before} /
+ * {@code after} (a {@code yyyy-MM-dd} date) and {@code within} (a number of days from today, negative for the
+ * past). Date attributes hold a {@code yyyy-MM-dd} date, optionally followed by a time, or epoch milliseconds;
+ * days are UTC. A missing or unparsable attribute fails every test.
+ * <p>
+ * Patterns, numbers, dates and sets are parsed once when the policy is compiled, and each attribute is given a
+ * {@link UserAttributeSnapshot} slot, so evaluation only compares the snapshot's values and allocates nothing.
+ * Regular expressions reuse a {@link Matcher} per thread.
+ */
+final class AttributeCondition {
+
+    static final AttributeCondition NONE = new AttributeCondition(new Test[0][], List.of());
+
+    private static final Pattern SYMBOL_TEST =
+            Pattern.compile("([^\\s=!^~<>]+)\\s*(!=|\\^=|<=|>=|=|~|<|>)\\s*(.*)");
+    private static final Pattern WORD_TEST =
+            Pattern.compile("(\\S+)\\s+(not\\s+in|in|within|before|after)\\s+(.*)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DAYS = Pattern.compile("([+-]?\\d{1,6})\\s*d?", Pattern.CASE_INSENSITIVE);
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long DAYS_0000_TO_1970 = 719_528L;
+    private static final long NOT_A_DAY = Long.MIN_VALUE;
+
+    private final Test[][] alternatives;
+    private final List<String> attributes;
+
+    private AttributeCondition(Test[][] alternatives, List<String> attributes) {
+        this.alternatives = alternatives;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Compiles the legacy {@code key=value} equality entries followed by the {@code conditions}, one alternative
+     * per line (or {@code ##}, the separator of multivalued config values). The first attribute gets slot
+     * {@link UserAttributeSnapshot#FIRST_MATCH}.
+     *
+     * @throws IllegalArgumentException if a condition cannot be parsed
+     */
+    static AttributeCondition compile(Map<String, String> equals, String conditions) {
+        return compile(equals, conditions, (alternative, ex) -> {
+            throw ex;
+        });
+    }
+
+    /**
+     * Like {@link #compile(Map, String)}, but an alternative that cannot be parsed is passed to {@code invalid}
+     * with the reason and left out, so it never matches.
+     */
+    static AttributeCondition compile(Map<String, String> equals, String conditions,
+            BiConsumer<String, IllegalArgumentException> invalid) {
+        List<String> slots = new ArrayList<>();
+        List<Test[]> alternatives = new ArrayList<>();
+        equals.forEach((attribute, value) -> alternatives.add(
+                new Test[] {new Parsed(attribute, "=", value).compile(slot(slots, attribute))}));
+        if (conditions != null) {
+            for (String alternative : conditions.split("\\n|##")) {
+                if (alternative.isBlank()) {
+                    continue;
+                }
+                int known = slots.size();
+                try {
+                    String[] parts = alternative.split("&&");
+                    Test[] tests = new Test[parts.length];
+                    for (int i = 0; i < parts.length; i++) {
+                        Parsed test = Parsed.of(parts[i].trim());
+                        tests[i] = test.compile(slot(slots, test.attribute()));
+                    }
+                    alternatives.add(tests);
+                } catch (IllegalArgumentException ex) {
+                    // Forget the attributes only the rejected alternative would have read.
+                    slots.subList(known, slots.size()).clear();
+                    invalid.accept(alternative.trim(), ex);
+                }
+            }
+        }
+        if (alternatives.isEmpty()) {
+            return NONE;
+        }
+        return new AttributeCondition(alternatives.toArray(new Test[0][]), List.copyOf(slots));
+    }
+
+    private static int slot(List<String> slots, String attribute) {
+        int index = slots.indexOf(attribute);
+        if (index < 0) {
+            index = slots.size();
+            slots.add(attribute);
+        }
+        return UserAttributeSnapshot.FIRST_MATCH + index;
+    }
+
+    boolean isEmpty() {
+        return alternatives.length == 0;
+    }
+
+    /**
+     * The attributes the condition reads, in slot order.
+     */
+    List<String> attributes() {
+        return attributes;
+    }
+
+    /**
+     * Returns {@code true} when every test of at least one alternative holds for the snapshot's values.
+     */
+    boolean matches(UserAttributeSnapshot snapshot, long now) {
+        long today = Math.floorDiv(now, MILLIS_PER_DAY);
+        for (Test[] tests : alternatives) {
+            boolean all = true;
+            for (Test test : tests) {
+                String value = snapshot.get(test.slot);
+                if (value == null || !test.test(value, today)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the UTC epoch day of a {@code yyyy-MM-dd[...]} date or of epoch milliseconds, or
+     * {@link #NOT_A_DAY}.
+     */
+    static long epochDay(String value) {
+        if (isInteger(value)) {
+            return Math.floorDiv(Long.parseLong(value), MILLIS_PER_DAY);
+        }
+        if (value.length() < 10 || value.charAt(4) != '-' || value.charAt(7) != '-'
+                || (value.length() > 10 && value.charAt(10) != 'T' && value.charAt(10) != ' ')) {
+            return NOT_A_DAY;
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 7);
+        int day = digits(value, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1) {
+            return NOT_A_DAY;
+        }
+        boolean leap = Year.isLeap(year);
+        if (day > Month.of(month).length(leap)) {
+            return NOT_A_DAY;
+        }
+        // Same arithmetic as LocalDate.toEpochDay(), without creating the LocalDate.
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367L * month - 362) / 12 + day - 1;
+        if (month > 2) {
+            total -= leap ? 1 : 2;
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Whether {@code value} is an optionally signed integer of at most 18 digits, which always fits a long.
+     */
+    static boolean isInteger(String value) {
+        int start = !value.isEmpty() && (value.charAt(0) == '-' || value.charAt(0) == '+') ? 1 : 0;
+        int length = value.length() - start;
+        if (length < 1 || length > 18) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the few decimal digits of a date field, returning -1 if any character is not a digit.
+     */
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private record Parsed(String attribute, String operator, String operand) {
+
+        static Parsed of(String test) {
+            Matcher symbol = SYMBOL_TEST.matcher(test);
+            if (symbol.matches()) {
+                return new Parsed(symbol.group(1), symbol.group(2), symbol.group(3).trim());
+            }
+            Matcher word = WORD_TEST.matcher(test);
+            if (word.matches()) {
+                return new Parsed(word.group(1), word.group(2).toLowerCase().replaceAll("\\s+", " "),
+                        word.group(3).trim());
+            }
+            throw new IllegalArgumentException("Invalid attribute condition: " + test);
+        }
+
+        Test compile(int slot) {
+            switch (operator) {
+                case "=":
+                    return new Equals(slot, operand, true);
+                case "!=":
+                    return new Equals(slot, operand, false);
+                case "^=":
+                    return new Prefix(slot, operand);
+                case "~":
+                    return new Regex(slot, regex());
+                case "<":
+                    return new Range(slot, Long.MIN_VALUE, number() - 1);
+                case "<=":
+                    return new Range(slot, Long.MIN_VALUE, number());
+                case ">":
+                    return new Range(slot, number() + 1, Long.MAX_VALUE);
+                case ">=":
+                    return new Range(slot, number(), Long.MAX_VALUE);
+                case "in":
+                    return new Member(slot, set(), true);
+                case "not in":
+                    return new Member(slot, set(), false);
+                case "before":
+                    return new DateRange(slot, false, Long.MIN_VALUE, date() - 1);
+                case "after":
+                    return new DateRange(slot, false, date() + 1, Long.MAX_VALUE);
+                case "within":
+                    int days = days();
+                    return new DateRange(slot, true, Math.min(days, 0), Math.max(days, 0));
+                default:
+                    throw invalid();
+            }
+        }
+
+        private Pattern regex() {
+            try {
+                return Pattern.compile(operand);
+            } catch (PatternSyntaxException ex) {
+                throw new IllegalArgumentException("Invalid pattern in attribute condition on " + attribute, ex);
+            }
+        }
+
+        private long number() {
+            if (!isInteger(operand)) {
+                throw invalid();
+            }
+            long value = Long.parseLong(operand);
+            // Keeps the +/- 1 of the strict comparisons from overflowing.
+            if (value == Long.MIN_VALUE || value == Long.MAX_VALUE) {
+                throw invalid();
+            }
+            return value;
+        }
+
+        private Set<String> set() {
+            String list = operand.startsWith("(") && operand.endsWith(")")
+                    ? operand.substring(1, operand.length() - 1) : operand;
+            Set<String> values = new LinkedHashSet<>();
+            for (String value : list.split(",")) {
+                if (!value.isBlank()) {
+                    values.add(value.trim());
+                }
+            }
+            if (values.isEmpty()) {
+                throw invalid();
+            }
+            return Set.copyOf(values);
+        }
+
+        private long date() {
+            long day = operand.length() == 10 ? epochDay(operand) : NOT_A_DAY;
+            if (day == NOT_A_DAY) {
+                throw invalid();
+            }
+            return day;
+        }
+
+        private int days() {
+            Matcher days = DAYS.matcher(operand);
+            if (!days.matches()) {
+                throw invalid();
+            }
+            return Integer.parseInt(days.group(1));
+        }
+
+        private IllegalArgumentException invalid() {
+            return new IllegalArgumentException(
+                    "Invalid attribute condition: " + attribute + ' ' + operator + ' ' + operand);
+        }
+    }
+
+    private abstract static class Test {
+        final int slot;
+
+        Test(int slot) {
+            this.slot = slot;
+        }
+
+        abstract boolean test(String value, long today);
+    }
+
+    private static final class Equals extends Test {
+        private final String expected;
+        private final boolean equal;
+
+        Equals(int slot, String expected, boolean equal) {
+            super(slot);
+            this.expected = expected;
+            this.equal = equal;
+        }
+
+        @Override
+        boolean test(String value, long today) {
+            return value.equals(expected) == equal;
+        }
+    }
+
+    private static final class Prefix extends Test {
+        private final String prefix;
+
+        Prefix(int slot, String prefix) {
+            super(slot);
+            this.prefix = prefix;
+        }
+
+        @Override
+        boolean test(String value, long today) {
+            return value.startsWith(prefix);
+        }
+    }
+
+    private static final class Regex extends Test {
+        private final ThreadLocal<Matcher> matchers;
+
+        Regex(int slot, Pattern pattern) {
+            super(slot);
+            this.matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+        }
+
+        @Override
+        boolean test(String value, long today) {
+            Matcher matcher = matchers.get().reset(value);
+            boolean matches = matcher.matches();
+            // Does not keep the attribute value reachable from the thread.
+            matcher.reset("");
+            return matches;
+        }
+    }
+
+    private static final class Range extends Test {
+        private final long min;
+        private final long max;
+
+        Range(int slot, long min, long max) {
+            super(slot);
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        boolean test(String value, long today) {
+            if (!isInteger(value)) {
+                return false;
+            }
+            long number = Long.parseLong(value);
+            return number >= min && number <= max;
+        }
+    }
+
+    private static final class Member extends Test {
+        private final Set<String> values;
+        private final boolean member;
+
+        Member(int slot, Set<String> values, boolean member) {
+            super(slot);
+            this.values = values;
+            this.member = member;
+        }
+
+        @Override
+        boolean test(String value, long today) {
+            return values.contains(value) == member;
+        }
+    }
+
+    /**
+     * An inclusive range of epoch days, either absolute or, when {@code relative}, as offsets from today.
+     */
+    private static final class DateRange extends Test {
+        private final boolean relative;
+        private final long from;
+        private final long to;
+
+        DateRange(int slot, boolean relative, long from, long to) {
+            super(slot);
+            this.relative = relative;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        boolean test(String value, long today) {
+            long day = epochDay(value);
+            if (day == NOT_A_DAY) {
+                return false;
+            }
+            long offset = relative ? today : 0;
+            return day >= from + offset && day <= to + offset;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.nooop3;
+
+import org.keycloak.authentication.requiredactions.WebAuthnRegisterFactory;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.credential.OTPCredentialModel;
+import org.keycloak.models.credential.RecoveryAuthnCodesCredentialModel;
+import org.keycloak.models.credential.WebAuthnCredentialModel;
+
+import java.util.List;
+
+/**
+ * The methods Keycloak supports out of the box: TOTP, WebAuthn security keys and recovery codes.
+ */
+public class BuiltinMfaMethodProviderFactory implements MfaMethodProviderFactory {
+
+    public static final String PROVIDER_ID = "builtin";
+
+    static final List<MfaMethod> METHODS = List.of(
+            new MfaMethod(OTPCredentialModel.TYPE, "Authenticator app (TOTP)",
+                    "Use an authenticator application to generate one-time codes.", OTPCredentialModel.TYPE,
+                    List.of(UserModel.RequiredAction.CONFIGURE_TOTP.name())),
+            new MfaMethod(WebAuthnCredentialModel.TYPE_TWOFACTOR, "Security key / WebAuthn",
+                    "Register a WebAuthn security key.", WebAuthnCredentialModel.TYPE_TWOFACTOR,
+                    List.of(WebAuthnRegisterFactory.PROVIDER_ID)),
+            new MfaMethod(RecoveryAuthnCodesCredentialModel.TYPE, "Recovery codes",
+                    "Generate one-time recovery codes.", RecoveryAuthnCodesCredentialModel.TYPE,
+                    List.of(UserModel.RequiredAction.CONFIGURE_RECOVERY_AUTHN_CODES.name())));
+
+    @Override
+    public String getId() {
+        return PROVIDER_ID;
+    }
+
+    @Override
+    public List<MfaMethod> getMethods() {
+        return METHODS;
+    }
+}
@@ -0,0 +1,161 @@
+package com.github.nooop3;
+
+import org.keycloak.models.ClientModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A compiled {@code only_for_clients} / {@code exclude_clients} list, matched against a client's client id and
+ * internal id.
+ * <p>
+ * Entries without {@code *} are exact and kept in a hash set. Entries ending in their only {@code *}, such as
+ * {@code partner-*}, go into a prefix trie that is walked once per id; any other entry with {@code *} (e.g.
+ * {@code *-prod}) is matched as a glob where {@code *} stands for any sequence of characters. Built once per
+ * policy; matching allocates nothing.
+ */
+final class ClientMatcher {
+
+    static final ClientMatcher NONE = new ClientMatcher(Set.of(), null, new String[0]);
+
+    private final Set<String> exact;
+    private final Node prefixes;
+    private final String[] globs;
+
+    private ClientMatcher(Set<String> exact, Node prefixes, String[] globs) {
+        this.exact = exact;
+        this.prefixes = prefixes;
+        this.globs = globs;
+    }
+
+    static ClientMatcher compile(List<String> entries) {
+        Set<String> exact = new HashSet<>();
+        Node prefixes = null;
+        List<String> globs = new ArrayList<>();
+        for (String entry : entries) {
+            int star = entry.indexOf('*');
+            if (star < 0) {
+                exact.add(entry);
+            } else if (star == entry.length() - 1) {
+                if (prefixes == null) {
+                    prefixes = new Node();
+                }
+                prefixes.add(entry, star);
+            } else {
+                globs.add(entry);
+            }
+        }
+        if (exact.isEmpty() && prefixes == null && globs.isEmpty()) {
+            return NONE;
+        }
+        return new ClientMatcher(Set.copyOf(exact), prefixes, globs.toArray(String[]::new));
+    }
+
+    boolean isEmpty() {
+        return exact.isEmpty() && prefixes == null && globs.length == 0;
+    }
+
+    boolean matches(ClientModel client) {
+        return matches(client.getClientId()) || matches(client.getId());
+    }
+
+    boolean matches(String id) {
+        if (id == null) {
+            return false;
+        }
+        if (exact.contains(id) || prefixes != null && prefixes.matchesPrefixOf(id)) {
+            return true;
+        }
+        for (String glob : globs) {
+            if (glob(glob, id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Matches {@code value} against a pattern where {@code *} stands for any sequence, backtracking only to the
+     * last {@code *} seen.
+     */
+    static boolean glob(String pattern, String value) {
+        int p = 0;
+        int v = 0;
+        int star = -1;
+        int resume = 0;
+        while (v < value.length()) {
+            if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                resume = v;
+            } else if (p < pattern.length() && pattern.charAt(p) == value.charAt(v)) {
+                p++;
+                v++;
+            } else if (star >= 0) {
+                p = star + 1;
+                v = ++resume;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    /**
+     * A trie node whose children are kept in arrays sorted by character, so a lookup is a binary search without
+     * boxing.
+     */
+    private static final class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private boolean terminal;
+
+        void add(String entry, int length) {
+            Node node = this;
+            for (int i = 0; i < length; i++) {
+                node = node.childOrAdd(entry.charAt(i));
+            }
+            node.terminal = true;
+        }
+
+        boolean matchesPrefixOf(String id) {
+            Node node = this;
+            for (int i = 0; !node.terminal; i++) {
+                if (i == id.length()) {
+                    return false;
+                }
+                int index = Arrays.binarySearch(node.labels, id.charAt(i));
+                if (index < 0) {
+                    return false;
+                }
+                node = node.children[index];
+            }
+            return true;
+        }
+
+        private Node childOrAdd(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+            int at = -index - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, at);
+            System.arraycopy(children, 0, newChildren, 0, at);
+            System.arraycopy(labels, at, newLabels, at + 1, labels.length - at);
+            System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+            Node child = new Node();
+            newLabels[at] = label;
+            newChildren[at] = child;
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.github.nooop3;
+
+import com.github.nooop3.EnrollmentMetrics.Outcome;
+import org.jboss.logging.Logger;
+import org.keycloak.util.JsonSerialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates an enrollment policy for every user of a realm and streams how many users end in each
+ * {@link Outcome}, as JSON lines.
+ * <p>
+ * User ids are read in pages of {@link #pageSize} in id order, each page starting after the last id of the
+ * previous one, and at most {@link #concurrency} pages are evaluated at once; only per-outcome counts are kept,
+ * so memory stays bounded by those two values whatever the realm size. A line with the running totals is written
+ * each time a page completes, and a final line carries {@code "done": true} (or {@code "error"} when a page
+ * failed).
+ */
+final class ComplianceReport {
+
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    /** Reads and evaluates pages of users. */
+    interface UserPages {
+
+        /** Returns the ids of at most {@code max} users after {@code afterUserId} (or from the start), in order. */
+        List<String> idsAfter(String afterUserId, int max);
+
+        /** Evaluates the given users and returns their counts, indexed by {@link Outcome} ordinal. */
+        long[] evaluate(List<String> userIds);
+    }
+
+    private static final Logger LOG = Logger.getLogger(ComplianceReport.class);
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final UserPages pages;
+    private final int pageSize;
+    private final int concurrency;
+    private final Executor executor;
+
+    ComplianceReport(UserPages pages, int pageSize, int concurrency, Executor executor) {
+        if (pageSize <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("pageSize and concurrency must be positive");
+        }
+        this.pages = pages;
+        this.pageSize = pageSize;
+        this.concurrency = concurrency;
+        this.executor = executor;
+    }
+
+    void write(OutputStream out) throws IOException {
+        CompletionService<long[]> completion = new ExecutorCompletionService<>(executor);
+        long[] totals = new long[OUTCOMES.length];
+        long evaluated = 0;
+        String after = null;
+        int inFlight = 0;
+        boolean exhausted = false;
+        String error = null;
+        try {
+            while (true) {
+                // Id pages are read in turn, since each starts after the last id of the one before.
+                while (!exhausted && error == null && inFlight < concurrency) {
+                    List<String> ids;
+                    try {
+                        ids = pages.idsAfter(after, pageSize);
+                    } catch (RuntimeException ex) {
+                        LOG.warn("Reading a page of users for the compliance report failed", ex);
+                        error = "Reading a page of users failed";
+                        break;
+                    }
+                    exhausted = ids.size() < pageSize;
+                    if (ids.isEmpty()) {
+                        break;
+                    }
+                    after = ids.get(ids.size() - 1);
+                    completion.submit(() -> pages.evaluate(ids));
+                    inFlight++;
+                }
+                if (inFlight == 0) {
+                    break;
+                }
+                long[] counts = take(completion);
+                inFlight--;
+                if (error != null) {
+                    continue;
+                }
+                if (counts == null) {
+                    error = "Evaluating a page of users failed";
+                    continue;
+                }
+                long users = 0;
+                for (int i = 0; i < counts.length; i++) {
+                    totals[i] += counts[i];
+                    users += counts[i];
+                }
+                evaluated += users;
+                writeLine(out, line(evaluated, totals));
+            }
+        } catch (IOException ex) {
+            // The client went away; let the pages already running finish before giving up.
+            drain(completion, inFlight);
+            throw ex;
+        }
+        Map<String, Object> last = line(evaluated, totals);
+        if (error != null) {
+            last.put("error", error);
+        } else {
+            last.put("done", true);
+        }
+        writeLine(out, last);
+    }
+
+    private static Map<String, Object> line(long evaluated, long[] totals) {
+        Map<String, Long> outcomes = new LinkedHashMap<>();
+        for (Outcome outcome : OUTCOMES) {
+            if (totals[outcome.ordinal()] > 0) {
+                outcomes.put(outcome.tag(), totals[outcome.ordinal()]);
+            }
+        }
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("evaluated", evaluated);
+        line.put("outcomes", outcomes);
+        return line;
+    }
+
+    private static void writeLine(OutputStream out, Map<String, Object> line) throws IOException {
+        out.write(JsonSerialization.writeValueAsBytes(line));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Waits for the next page, returning {@code null} when it failed.
+     */
+    private static long[] take(CompletionService<long[]> completion) throws IOException {
+        try {
+            Future<long[]> page = completion.take();
+            return page.get();
+        } catch (ExecutionException ex) {
+            LOG.warn("Compliance report page failed", ex.getCause());
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while evaluating users", ex);
+        }
+    }
+
+    private static void drain(CompletionService<long[]> completion, int inFlight) {
+        for (int i = 0; i < inFlight; i++) {
+            try {
+                completion.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
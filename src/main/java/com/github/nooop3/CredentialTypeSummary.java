@@ -0,0 +1,41 @@
+package com.github.nooop3;
+
+import org.keycloak.credential.CredentialModel;
+import org.keycloak.models.UserModel;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Answers "which of these credential types does the user have" without collecting every stored credential.
+ * <p>
+ * Credentials are read through the user's credential manager, so cached users are answered from Keycloak's user
+ * cache without a database round trip. The stream is abandoned as soon as every candidate type has been seen.
+ */
+final class CredentialTypeSummary {
+
+    private CredentialTypeSummary() {
+    }
+
+    /**
+     * Returns the subset of {@code candidateTypes} the user has at least one stored credential for.
+     */
+    static Set<String> configuredTypes(UserModel user, Set<String> candidateTypes) {
+        if (candidateTypes.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> found = new HashSet<>();
+        try (Stream<CredentialModel> credentials = user.credentialManager().getStoredCredentialsStream()) {
+            Iterator<CredentialModel> it = credentials.iterator();
+            while (found.size() < candidateTypes.size() && it.hasNext()) {
+                String type = it.next().getType();
+                if (candidateTypes.contains(type)) {
+                    found.add(type);
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.nooop3;
+
+import org.keycloak.models.RoleModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.utils.RoleUtils;
+import org.keycloak.sessions.AuthenticationSessionModel;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ids of a user's effective realm roles (direct, composite and group inherited), as a sorted array.
+ * <p>
+ * Walking composite roles and the group hierarchy is the expensive part of role targeting. When the login
+ * continues in a later request (the enrollment form was rendered), the set is kept in an authentication session
+ * note so that request only decodes it; logins decided in one request do not pay for the replicated note write.
+ * Client roles are left out since targeting only names realm roles. As with {@link EnrollmentSnapshot}, the note
+ * is only reused for the same user and for {@link #MAX_AGE_MILLIS}, after which role changes made elsewhere are
+ * picked up.
+ */
+final class EffectiveRoles {
+
+    static final String AUTH_NOTE = "mfaEnrollment.effectiveRoles";
+    static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final String VERSION = "1";
+    private static final int FIELDS = 4;
+    private static final String[] NONE = new String[0];
+
+    private final String[] roleIds;
+    private final boolean fromNote;
+
+    private EffectiveRoles(String[] sortedRoleIds, boolean fromNote) {
+        this.roleIds = sortedRoleIds;
+        this.fromNote = fromNote;
+    }
+
+    /**
+     * Walks the user's role mappings.
+     */
+    static EffectiveRoles of(UserModel user) {
+        String[] ids = RoleUtils.getDeepUserRoleMappings(user).stream()
+                .filter(role -> !role.isClientRole())
+                .map(RoleModel::getId)
+                .distinct()
+                .sorted()
+                .toArray(String[]::new);
+        return new EffectiveRoles(ids, false);
+    }
+
+    /**
+     * Returns the set stored in the authentication session for this user, or walks the role mappings when there
+     * is none or it is stale. Nothing is stored; see {@link #remember}.
+     */
+    static EffectiveRoles of(AuthenticationSessionModel authSession, UserModel user) {
+        String[] stored = decode(authSession.getAuthNote(AUTH_NOTE), user.getId(), System.currentTimeMillis());
+        return stored != null ? new EffectiveRoles(stored, true) : of(user);
+    }
+
+    /**
+     * Stores a freshly computed set in the authentication session for the login's next request.
+     */
+    void remember(AuthenticationSessionModel authSession, String userId) {
+        if (!fromNote) {
+            authSession.setAuthNote(AUTH_NOTE, encode(userId, System.currentTimeMillis()));
+        }
+    }
+
+    boolean contains(String roleId) {
+        return Arrays.binarySearch(roleIds, roleId) >= 0;
+    }
+
+    String encode(String userId, long createdAt) {
+        return VERSION + '|' + Long.toHexString(createdAt) + '|' + String.join(",", roleIds) + '|' + userId;
+    }
+
+    /**
+     * Returns the role ids of a note written for {@code userId} no longer than {@link #MAX_AGE_MILLIS} before
+     * {@code now}, or {@code null}. {@link #encode} writes them sorted.
+     */
+    static String[] decode(String encoded, String userId, long now) {
+        if (encoded == null) {
+            return null;
+        }
+        // The user id goes last so that it may contain the separator.
+        String[] fields = encoded.split("\\|", FIELDS);
+        if (fields.length != FIELDS || !VERSION.equals(fields[0]) || !fields[3].equals(userId)) {
+            return null;
+        }
+        try {
+            if (now - Long.parseLong(fields[1], 16) > MAX_AGE_MILLIS) {
+                return null;
+            }
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+        if (fields[2].isEmpty()) {
+            return NONE;
+        }
+        return fields[2].split(",");
+    }
+}
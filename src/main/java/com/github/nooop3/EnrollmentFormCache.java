@@ -0,0 +1,214 @@
+package com.github.nooop3;
+
+import com.github.nooop3.MfaEnrollmentAuthenticator.MethodView;
+import org.jboss.logging.Logger;
+import org.keycloak.events.admin.ResourceType;
+import org.keycloak.locale.LocaleSelectorProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.ThemeManager;
+import org.keycloak.models.UserModel;
+import org.keycloak.provider.ProviderEvent;
+import org.keycloak.provider.ProviderEventListener;
+import org.keycloak.theme.Theme;
+import org.keycloak.theme.ThemeSelectorProvider;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the enrollment form's render model, with its labels already resolved from the login theme's message
+ * bundles, so a render only has to look up an immutable entry instead of rebuilding the method list and reading
+ * the theme's messages.
+ * <p>
+ * Entries are keyed by realm, login theme, locale, the policy's method order and the user's method masks, since
+ * clients may select their own login theme and with it other messages. The least
+ * recently used entry is evicted beyond {@link #MAX_ENTRIES}. A realm's entries are dropped when the realm is
+ * updated through the admin API on this node or removed. Realm localization overrides fire no admin event and
+ * are not replicated, so entries also expire after {@link #MAX_AGE_MILLIS}.
+ */
+class EnrollmentFormCache implements ProviderEventListener {
+
+    static final int MAX_ENTRIES = 512;
+    static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    static final String MSG_TITLE = "mfaEnrollmentTitle";
+    static final String MSG_TITLE_ADDITIONAL = "mfaEnrollmentTitleAdditional";
+    static final String MSG_DESCRIPTION = "mfaEnrollmentDescription";
+    static final String MSG_DESCRIPTION_ADDITIONAL = "mfaEnrollmentDescriptionAdditional";
+    static final String MSG_OPT_OUT = "mfaEnrollmentOptOut";
+    static final String MSG_METHOD_PREFIX = "mfaEnrollmentMethod.";
+
+    private static final Logger LOG = Logger.getLogger(EnrollmentFormCache.class);
+    private static final Properties NO_MESSAGES = new Properties();
+
+    /** The form's data; {@code methods} is immutable and shared between renders. */
+    record Model(String title, String description, String optOutLabel, List<MethodView> methods,
+            boolean hasSelectable) {
+    }
+
+    private record Key(String realmId, String theme, Locale locale, List<String> order, long listed,
+            long configured, long available, boolean meetsMinimum) {
+    }
+
+    private record Entry(Model model, long expiresAt) {
+    }
+
+    private final MfaMethodCatalog catalog;
+    private final int maxEntries;
+    private final Map<Key, Entry> entries;
+
+    EnrollmentFormCache(MfaMethodCatalog catalog) {
+        this(catalog, MAX_ENTRIES);
+    }
+
+    EnrollmentFormCache(MfaMethodCatalog catalog, int maxEntries) {
+        this.catalog = catalog;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > EnrollmentFormCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the model listing the {@code listed} methods in policy order, marking those in {@code configured}
+     * and those not in {@code available}.
+     */
+    Model resolve(KeycloakSession session, RealmModel realm, UserModel user, EnrollmentPolicy policy, long listed,
+            long configured, long available, boolean meetsMinimum) {
+        Locale locale = locale(session, realm, user);
+        Key key = new Key(realm.getId(), themeName(session), locale, policy.enabledMfaTypes(), listed, configured,
+                available, meetsMinimum);
+        if (key.realmId() == null) {
+            return build(key, messages(session, realm, locale));
+        }
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null || entry.expiresAt <= now) {
+            // Built outside the lock; concurrent misses for the same key build equal models.
+            entry = new Entry(build(key, messages(session, realm, locale)), now + MAX_AGE_MILLIS);
+            synchronized (entries) {
+                entries.put(key, entry);
+            }
+        }
+        return entry.model;
+    }
+
+    void invalidate(String realmId) {
+        if (realmId != null) {
+            synchronized (entries) {
+                entries.keySet().removeIf(key -> realmId.equals(key.realmId()));
+            }
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void onEvent(ProviderEvent event) {
+        if (event instanceof AdminResourceChangedEvent changed) {
+            if (changed.resourceType() == ResourceType.REALM) {
+                invalidate(changed.realmId());
+            }
+        } else if (event instanceof RealmModel.RealmRemovedEvent removed) {
+            invalidate(removed.getRealm().getId());
+        }
+    }
+
+    private Model build(Key key, Properties bundle) {
+        Messages messages = new Messages(bundle, key.locale());
+        String title = key.meetsMinimum()
+                ? messages.get(MSG_TITLE_ADDITIONAL, "Configure additional sign-in methods")
+                : messages.get(MSG_TITLE, "Set up more sign-in protection");
+        String description = key.meetsMinimum()
+                ? messages.get(MSG_DESCRIPTION_ADDITIONAL,
+                        "You can add more MFA methods now for better recovery and flexibility.")
+                : messages.get(MSG_DESCRIPTION,
+                        "Your account needs additional multi-factor methods before continuing.");
+
+        long shown = key.listed();
+        List<MethodView> methods = new ArrayList<>(Long.bitCount(shown));
+        for (String id : key.order()) {
+            long bit = catalog.bit(id);
+            if ((shown & bit) != 0L) {
+                shown &= ~bit;
+                MfaMethod method = catalog.get(id);
+                methods.add(new MethodView(id,
+                        messages.get(MSG_METHOD_PREFIX + id + ".label", method.label()),
+                        messages.get(MSG_METHOD_PREFIX + id + ".description", method.description()),
+                        (key.configured() & bit) != 0L, (key.available() & bit) != 0L));
+            }
+        }
+        boolean hasSelectable = (key.listed() & ~key.configured() & key.available()) != 0L;
+        return new Model(title, description, messages.get(MSG_OPT_OUT, "Don't ask again"),
+                List.copyOf(methods), hasSelectable);
+    }
+
+    /**
+     * Theme messages read the way the theme's {@code msg()} reads them: values are {@link MessageFormat}
+     * patterns, so a quote is written {@code ''}. Fallbacks are plain text.
+     */
+    private record Messages(Properties bundle, Locale locale) {
+
+        String get(String key, String fallback) {
+            String value = bundle.getProperty(key);
+            if (value == null) {
+                return fallback;
+            }
+            try {
+                return new MessageFormat(value, locale).format(new Object[0]);
+            } catch (IllegalArgumentException ex) {
+                LOG.warnf("Message %s is not a valid message format: %s", key, ex.getMessage());
+                return value;
+            }
+        }
+    }
+
+    private static Locale locale(KeycloakSession session, RealmModel realm, UserModel user) {
+        LocaleSelectorProvider selector = session.getProvider(LocaleSelectorProvider.class);
+        if (selector != null) {
+            return selector.resolveLocale(realm, user);
+        }
+        String defaultLocale = realm.getDefaultLocale();
+        return defaultLocale == null ? Locale.ENGLISH : Locale.forLanguageTag(defaultLocale);
+    }
+
+    /**
+     * The login theme the session renders with, which the theme selector picks per client.
+     */
+    private static String themeName(KeycloakSession session) {
+        ThemeSelectorProvider selector = session.getProvider(ThemeSelectorProvider.class);
+        return selector != null ? selector.getThemeName(Theme.Type.LOGIN) : null;
+    }
+
+    private static Properties messages(KeycloakSession session, RealmModel realm, Locale locale) {
+        ThemeManager themes = session.theme();
+        if (themes == null) {
+            return NO_MESSAGES;
+        }
+        try {
+            Theme theme = themes.getTheme(Theme.Type.LOGIN);
+            return theme == null ? NO_MESSAGES : theme.getEnhancedMessages(realm, locale);
+        } catch (IOException ex) {
+            LOG.warnf(ex, "Could not read login theme messages for %s", locale);
+            return NO_MESSAGES;
+        }
+    }
+}
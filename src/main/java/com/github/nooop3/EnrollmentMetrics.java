@@ -0,0 +1,159 @@
+package com.github.nooop3;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.keycloak.models.RealmModel;
+import org.keycloak.provider.ProviderEvent;
+import org.keycloak.provider.ProviderEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation of the authenticator's decision path: one counter per {@link Outcome} and timers
+ * for the expensive steps, all tagged with the realm name.
+ * <p>
+ * Meters are created once per realm and held in {@link RealmMeters}, so recording on the login path is an
+ * array read and an atomic add. Meters of a removed realm are removed from the registry, and those of a renamed
+ * realm are replaced by meters tagged with the new name. Percentile histograms multiply the number of series
+ * by the number of realms, so the timers only publish them when enabled through {@link #CONFIG_HISTOGRAMS}.
+ */
+final class EnrollmentMetrics implements ProviderEventListener {
+
+    static final String DECISIONS = "keycloak.mfa.enrollment.decisions";
+    static final String STEP_DURATION = "keycloak.mfa.enrollment.step.duration";
+
+    /** Server option enabling percentile histograms on the step timers. */
+    static final String CONFIG_HISTOGRAMS = "metricsHistograms";
+
+    /** Records nothing; used when the authenticator is created outside the factory. */
+    static final EnrollmentMetrics DISABLED = new EnrollmentMetrics(new CompositeMeterRegistry());
+
+    private static final String UNKNOWN_REALM = "unknown";
+
+    enum Outcome {
+        SKIPPED_EXECUTION,
+        SKIPPED_CLIENT,
+        SKIPPED_IDP,
+        SKIPPED_FIRST_LOGIN,
+        SKIPPED_ATTRIBUTE,
+        SKIPPED_GROUP,
+        SKIPPED_ROLE,
+        SKIPPED_OPT_OUT,
+        SKIPPED_REMINDER,
+        SKIPPED_ROLLOUT,
+        SKIPPED_MAX_METHODS,
+        COMPLIANT,
+        NO_AVAILABLE_METHODS,
+        FORM_RENDERED,
+        DEFERRED_TO_REQUIRED_ACTION,
+        SELECTION_REJECTED,
+        SELECTION_IGNORED,
+        METHODS_SELECTED;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+
+        String tag() {
+            return tag;
+        }
+    }
+
+    enum Step {
+        POLICY_EVALUATION,
+        CREDENTIAL_RESOLUTION,
+        FORM_RENDERING;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final MeterRegistry registry;
+    private final boolean histograms;
+    private final Map<String, RealmMeters> realms = new ConcurrentHashMap<>();
+
+    EnrollmentMetrics(MeterRegistry registry) {
+        this(registry, false);
+    }
+
+    EnrollmentMetrics(MeterRegistry registry, boolean histograms) {
+        this.registry = registry;
+        this.histograms = histograms;
+    }
+
+    RealmMeters forRealm(RealmModel realm) {
+        String realmId = realm.getId() != null ? realm.getId() : UNKNOWN_REALM;
+        String realmName = realm.getName() != null ? realm.getName() : UNKNOWN_REALM;
+        RealmMeters meters = realms.get(realmId);
+        if (meters != null && meters.realmName.equals(realmName)) {
+            return meters;
+        }
+        return realms.compute(realmId, (id, current) -> {
+            if (current != null && current.realmName.equals(realmName)) {
+                return current;
+            }
+            if (current != null) {
+                current.meters.forEach(registry::remove);
+            }
+            return new RealmMeters(registry, realmName, histograms);
+        });
+    }
+
+    @Override
+    public void onEvent(ProviderEvent event) {
+        if (event instanceof RealmModel.RealmRemovedEvent removed) {
+            RealmMeters meters = realms.remove(removed.getRealm().getId());
+            if (meters != null) {
+                meters.meters.forEach(registry::remove);
+            }
+        }
+    }
+
+    static final class RealmMeters {
+        private final String realmName;
+        private final Counter[] outcomes;
+        private final Timer[] steps;
+        private final List<Meter> meters = new ArrayList<>();
+
+        private RealmMeters(MeterRegistry registry, String realmName, boolean histograms) {
+            this.realmName = realmName;
+            Tags realm = Tags.of("realm", realmName);
+            outcomes = new Counter[Outcome.values().length];
+            for (Outcome outcome : Outcome.values()) {
+                outcomes[outcome.ordinal()] = register(Counter.builder(DECISIONS)
+                        .description("MFA enrollment authenticator decisions by outcome")
+                        .tags(realm)
+                        .tag("outcome", outcome.tag)
+                        .register(registry));
+            }
+            steps = new Timer[Step.values().length];
+            for (Step step : Step.values()) {
+                steps[step.ordinal()] = register(Timer.builder(STEP_DURATION)
+                        .description("Time spent in MFA enrollment authenticator steps")
+                        .tags(realm)
+                        .tag("step", step.tag)
+                        .publishPercentileHistogram(histograms)
+                        .register(registry));
+            }
+        }
+
+        private <M extends Meter> M register(M meter) {
+            meters.add(meter);
+            return meter;
+        }
+
+        void count(Outcome outcome) {
+            outcomes[outcome.ordinal()].increment();
+        }
+
+        void record(Step step, long nanos) {
+            steps[step.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
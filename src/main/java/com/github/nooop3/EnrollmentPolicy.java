@@ -0,0 +1,203 @@
+package com.github.nooop3;
+
+import org.jboss.logging.Logger;
+import org.keycloak.models.credential.OTPCredentialModel;
+import org.keycloak.models.credential.RecoveryAuthnCodesCredentialModel;
+import org.keycloak.models.credential.WebAuthnCredentialModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, pre-parsed view of an execution's authenticator config. Instances are built once per config
+ * revision by {@link EnrollmentPolicyCache} and shared across requests, so every collection is unmodifiable.
+ */
+record EnrollmentPolicy(
+        int minRequiredMfaMethods,
+        int minRequiredFromList,
+        int maxAllowedMfaMethods,
+        boolean enforceOnFirstLoginOnly,
+        EnforceForIdpUsers enforceForIdpUsers,
+        List<String> enabledMfaTypes,
+        Set<String> enabledMfaTypeSet,
+        boolean visibleOnlyIfSupported,
+        boolean hideAlreadyConfiguredMethods,
+        SelectionMode selectionMode,
+        int maxNewMethodsPerLogin,
+        boolean failIfSelectionInsufficient,
+        boolean allowNoSelectionIfAlreadySufficient,
+        boolean offerConfigureAdditionalMethods,
+        PostAuthPromptMode postAuthPromptMode,
+        boolean allowUserOptOut,
+        boolean optOutRespectedWhenNotSufficient,
+        String optOutAttributeName,
+        int rolloutPercentage,
+        RolloutStrategy rolloutStrategy,
+        long rolloutSeed,
+        boolean bypassRolloutIfNotSufficient,
+        Set<String> onlyForRoles,
+        Set<String> excludeRoles,
+        Set<String> onlyForGroups,
+        Set<String> excludeGroups,
+        ClientMatcher onlyForClients,
+        ClientMatcher excludeClients,
+        int remindEveryDays,
+        AttributeCondition skipIfAttribute,
+        List<String> attributeKeys,
+        int fingerprint) {
+
+    private static final Logger LOG = Logger.getLogger(EnrollmentPolicy.class);
+    /** Keycloak joins the values of multivalued options with {@code ##}; commas and new lines also separate. */
+    private static final String LIST_SEPARATORS = "##|[,\\n]";
+    /** Group paths may contain commas, so only {@code ##} and new lines separate them. */
+    private static final String PATH_SEPARATORS = "##|\\n";
+
+    static final int DEFAULT_MIN_REQUIRED = 1;
+    static final List<String> DEFAULT_ENABLED_TYPES = List.of(
+            OTPCredentialModel.TYPE,
+            WebAuthnCredentialModel.TYPE_TWOFACTOR,
+            RecoveryAuthnCodesCredentialModel.TYPE);
+
+    /** Policy used when the execution has no authenticator config attached. */
+    static final EnrollmentPolicy DEFAULTS = compile(Collections.emptyMap());
+
+    static EnrollmentPolicy compile(Map<String, String> cfg) {
+        return compile(cfg, null);
+    }
+
+    /**
+     * Compiles the config with the given alias. A {@code skip_if_attribute} condition that cannot be parsed is
+     * logged and ignored, rather than failing every login through the execution.
+     */
+    static EnrollmentPolicy compile(Map<String, String> cfg, String configAlias) {
+        List<String> enabledMfaTypes = parseList(cfg.get("enabled_mfa_types"), DEFAULT_ENABLED_TYPES);
+        boolean enforceOnFirstLoginOnly = parseBoolean(cfg.get("enforce_on_first_login_only"), false);
+        boolean allowUserOptOut = parseBoolean(cfg.get("allow_user_opt_out"), true);
+        String optOutAttributeName = cfg.getOrDefault("opt_out_attribute_name",
+                MfaEnrollmentAuthenticator.ATTR_SKIP_FUTURE_PROMPTS);
+        int remindEveryDays = parseInt(cfg.get("remind_every_days"), 0);
+        AttributeCondition skipIfAttribute = AttributeCondition.compile(
+                parseKeyValueList(cfg.get("skip_if_attribute_equals")), cfg.get("skip_if_attribute"),
+                (alternative, ex) -> LOG.warnf("Ignoring skip_if_attribute condition '%s' of config %s: %s",
+                        alternative, configAlias, ex.getMessage()));
+        return new EnrollmentPolicy(
+                parseInt(cfg.get("min_required_mfa_methods"), DEFAULT_MIN_REQUIRED),
+                parseInt(cfg.get("min_required_from_list"), DEFAULT_MIN_REQUIRED),
+                parseInt(cfg.get("max_allowed_mfa_methods"), 0),
+                enforceOnFirstLoginOnly,
+                EnforceForIdpUsers
+                        .valueOf(parseEnum(cfg.get("enforce_for_idp_users"), "always", "always").toUpperCase()),
+                enabledMfaTypes,
+                Set.copyOf(enabledMfaTypes),
+                parseBoolean(cfg.get("visible_only_if_supported"), true),
+                parseBoolean(cfg.get("hide_already_configured_methods"), false),
+                SelectionMode.valueOf(
+                        parseEnum(cfg.get("selection_mode"), "at_least_one", "at_least_one").toUpperCase()),
+                parseInt(cfg.get("max_new_methods_per_login"), 0),
+                parseBoolean(cfg.get("fail_if_selection_insufficient"), true),
+                parseBoolean(cfg.get("allow_no_selection_if_already_sufficient"), true),
+                parseBoolean(cfg.get("offer_configure_additional_methods"), true),
+                PostAuthPromptMode.valueOf(
+                        parseEnum(cfg.get("post_auth_prompt_mode"), "same_login", "same_login").toUpperCase()),
+                allowUserOptOut,
+                parseBoolean(cfg.get("opt_out_respected_when_not_sufficient"), false),
+                optOutAttributeName,
+                parseInt(cfg.get("rollout_percentage"), 100),
+                RolloutStrategy.valueOf(
+                        parseEnum(cfg.get("rollout_strategy"), "hash_user_id", "hash_user_id").toUpperCase()),
+                RolloutHash.seed(cfg.get("rollout_salt")),
+                parseBoolean(cfg.get("bypass_rollout_if_not_sufficient"), true),
+                Set.copyOf(parseList(cfg.get("only_for_roles"), List.of())),
+                Set.copyOf(parseList(cfg.get("exclude_roles"), List.of())),
+                Set.copyOf(parseList(cfg.get("only_for_groups"), PATH_SEPARATORS, List.of())),
+                Set.copyOf(parseList(cfg.get("exclude_groups"), PATH_SEPARATORS, List.of())),
+                ClientMatcher.compile(parseList(cfg.get("only_for_clients"), List.of())),
+                ClientMatcher.compile(parseList(cfg.get("exclude_clients"), List.of())),
+                remindEveryDays,
+                skipIfAttribute,
+                Collections.unmodifiableList(UserAttributeSnapshot.layout(enforceOnFirstLoginOnly,
+                        allowUserOptOut ? optOutAttributeName : null, remindEveryDays > 0,
+                        skipIfAttribute.attributes())),
+                cfg.hashCode());
+    }
+
+    private static boolean parseBoolean(String value, boolean defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    private static List<String> parseList(String raw, List<String> defaultValue) {
+        return parseList(raw, LIST_SEPARATORS, defaultValue);
+    }
+
+    private static List<String> parseList(String raw, String separators, List<String> defaultValue) {
+        if (raw == null || raw.isBlank()) {
+            return defaultValue;
+        }
+        String[] split = raw.split(separators);
+        List<String> result = new ArrayList<>();
+        for (String part : split) {
+            String trimmed = part.trim();
+            if (!trimmed.isEmpty()) {
+                result.add(trimmed);
+            }
+        }
+        return result.isEmpty() ? defaultValue : List.copyOf(result);
+    }
+
+    private static Map<String, String> parseKeyValueList(String raw) {
+        Map<String, String> map = new LinkedHashMap<>();
+        if (raw == null || raw.isBlank()) {
+            return Map.of();
+        }
+        String[] split = raw.split(LIST_SEPARATORS);
+        for (String entry : split) {
+            String[] kv = entry.split("=", 2);
+            if (kv.length == 2) {
+                map.put(kv[0].trim(), kv[1].trim());
+            }
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static String parseEnum(String raw, String defaultValue, String fallback) {
+        if (raw == null) {
+            return defaultValue;
+        }
+        String normalized = raw.trim().toLowerCase();
+        if (normalized.isEmpty()) {
+            return fallback;
+        }
+        return normalized;
+    }
+
+    enum SelectionMode {
+        AT_LEAST_ONE, EXACTLY_ONE, ALL_UNCONFIGURED, UP_TO_MAX
+    }
+
+    enum EnforceForIdpUsers {
+        ALWAYS, NEVER, ONLY
+    }
+
+    enum RolloutStrategy {
+        HASH_USER_ID, RANDOM
+    }
+
+    enum PostAuthPromptMode {
+        SAME_LOGIN, NEXT_LOGIN_REQUIRED_ACTION, NONE
+    }
+}
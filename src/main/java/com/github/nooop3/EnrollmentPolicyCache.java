@@ -0,0 +1,83 @@
+package com.github.nooop3;
+
+import org.keycloak.models.AuthenticatorConfigModel;
+import org.keycloak.models.RequiredActionConfigModel;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches compiled {@link EnrollmentPolicy} instances by authenticator or required action config id. Each entry
+ * remembers the content fingerprint of the config it was compiled from, so an admin edit to the config is
+ * picked up on the next request without any explicit invalidation hook.
+ */
+class EnrollmentPolicyCache {
+
+    static final int MAX_ENTRIES = 1024;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    EnrollmentPolicy resolve(AuthenticatorConfigModel model) {
+        return model == null ? EnrollmentPolicy.DEFAULTS
+                : resolve(model.getId(), model.getAlias(), model.getConfig());
+    }
+
+    EnrollmentPolicy resolveAction(RequiredActionConfigModel model) {
+        return model == null ? EnrollmentPolicy.DEFAULTS
+                : resolve(model.getId(), model.getAlias(), model.getConfig());
+    }
+
+    private EnrollmentPolicy resolve(String id, String alias, Map<String, String> cfg) {
+        if (cfg == null || cfg.isEmpty()) {
+            return EnrollmentPolicy.DEFAULTS;
+        }
+        if (id == null) {
+            return EnrollmentPolicy.compile(cfg, alias);
+        }
+        Entry entry = entries.get(id);
+        if (entry != null && entry.matches(cfg)) {
+            return entry.policy;
+        }
+        EnrollmentPolicy policy = EnrollmentPolicy.compile(cfg, alias);
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+        entries.put(id, new Entry(Collections.unmodifiableMap(new HashMap<>(cfg)), cfg, policy));
+        return policy;
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final Map<String, String> snapshot;
+        private final EnrollmentPolicy policy;
+        // Keycloak's realm cache hands out the same config map until the config is updated, so an identity
+        // check is usually enough and the full comparison only runs after a realm cache refresh.
+        private volatile Map<String, String> lastSeen;
+
+        private Entry(Map<String, String> snapshot, Map<String, String> source, EnrollmentPolicy policy) {
+            this.snapshot = snapshot;
+            this.lastSeen = source;
+            this.policy = policy;
+        }
+
+        boolean matches(Map<String, String> cfg) {
+            if (cfg == lastSeen) {
+                return cfg.hashCode() == policy.fingerprint();
+            }
+            if (cfg.hashCode() != policy.fingerprint() || !snapshot.equals(cfg)) {
+                return false;
+            }
+            lastSeen = cfg;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.nooop3;
+
+import org.keycloak.models.UserModel;
+import org.keycloak.sessions.AuthenticationSessionModel;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * State evaluated by {@code authenticate()} when it renders the enrollment form, carried to {@code action()} in
+ * an authentication session note so the form POST does not repeat the credential lookup.
+ * <p>
+ * A snapshot is only reused for the same user and the same policy revision, and only for
+ * {@link #MAX_AGE_MILLIS}; past that the credential set may have changed in another session and
+ * {@code action()} re-evaluates from scratch.
+ */
+record EnrollmentSnapshot(int policyFingerprint, long createdAt, boolean meetsMinimum, Set<String> configured,
+        List<String> enabled, String userId) {
+
+    static final String AUTH_NOTE = "mfaEnrollment.snapshot";
+    static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final String VERSION = "1";
+    private static final int FIELDS = 7;
+
+    static void save(AuthenticationSessionModel authSession, EnrollmentPolicy policy, UserModel user,
+            boolean meetsMinimum, Set<String> configured, List<String> enabled) {
+        EnrollmentSnapshot snapshot = new EnrollmentSnapshot(policy.fingerprint(), System.currentTimeMillis(),
+                meetsMinimum, configured, enabled, user.getId());
+        authSession.setAuthNote(AUTH_NOTE, snapshot.encode());
+    }
+
+    /**
+     * Returns the snapshot stored for this user and policy, or {@code null} when there is none or it is stale.
+     */
+    static EnrollmentSnapshot load(AuthenticationSessionModel authSession, EnrollmentPolicy policy, UserModel user) {
+        EnrollmentSnapshot snapshot = decode(authSession.getAuthNote(AUTH_NOTE));
+        if (snapshot == null
+                || snapshot.policyFingerprint != policy.fingerprint()
+                || !snapshot.userId.equals(user.getId())
+                || System.currentTimeMillis() - snapshot.createdAt > MAX_AGE_MILLIS) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    static void clear(AuthenticationSessionModel authSession) {
+        authSession.removeAuthNote(AUTH_NOTE);
+    }
+
+    String encode() {
+        return VERSION + '|' + Integer.toHexString(policyFingerprint) + '|' + Long.toHexString(createdAt) + '|'
+                + (meetsMinimum ? '1' : '0') + '|' + String.join(",", configured) + '|' + String.join(",", enabled)
+                + '|' + userId;
+    }
+
+    static EnrollmentSnapshot decode(String encoded) {
+        if (encoded == null) {
+            return null;
+        }
+        // The user id goes last so that it may contain the separator.
+        String[] fields = encoded.split("\\|", FIELDS);
+        if (fields.length != FIELDS || !VERSION.equals(fields[0])) {
+            return null;
+        }
+        try {
+            return new EnrollmentSnapshot(
+                    Integer.parseUnsignedInt(fields[1], 16),
+                    Long.parseLong(fields[2], 16),
+                    "1".equals(fields[3]),
+                    Set.of(splitIds(fields[4])),
+                    List.of(splitIds(fields[5])),
+                    fields[6]);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static String[] splitIds(String raw) {
+        if (raw.isEmpty()) {
+            return new String[0];
+        }
+        return Arrays.stream(raw.split(",")).distinct().toArray(String[]::new);
+    }
+}
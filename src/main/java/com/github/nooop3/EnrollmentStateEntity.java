@@ -0,0 +1,108 @@
+package com.github.nooop3;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.NamedQueries;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * One enrollment-state value of one user, as stored by {@link JpaEnrollmentStateStore}.
+ */
+@Entity
+@Table(name = "MFA_ENROLLMENT_STATE")
+@IdClass(EnrollmentStateEntity.Key.class)
+@NamedQueries({
+        @NamedQuery(name = "mfaEnrollmentStateByUser",
+                query = "select s from EnrollmentStateEntity s where s.userId = :userId"),
+        @NamedQuery(name = "deleteMfaEnrollmentStateByUser",
+                query = "delete from EnrollmentStateEntity s where s.userId = :userId"),
+        @NamedQuery(name = "deleteMfaEnrollmentStateByRealm",
+                query = "delete from EnrollmentStateEntity s where s.realmId = :realmId")
+})
+public class EnrollmentStateEntity {
+
+    @Id
+    @Column(name = "USER_ID")
+    private String userId;
+
+    @Id
+    @Column(name = "NAME")
+    private String name;
+
+    @Column(name = "REALM_ID", length = 36)
+    private String realmId;
+
+    @Column(name = "VALUE")
+    private String value;
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getRealmId() {
+        return realmId;
+    }
+
+    public void setRealmId(String realmId) {
+        this.realmId = realmId;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String userId;
+        private String name;
+
+        public Key() {
+        }
+
+        public Key(String userId, String name) {
+            this.userId = userId;
+            this.name = name;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && Objects.equals(userId, key.userId) && Objects.equals(name, key.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, name);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.nooop3;
+
+import org.keycloak.Config;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+
+/**
+ * Where the orchestrator keeps its per-user bookkeeping: the last prompt time, the first-login marker and the
+ * opt-out flag. Values are small strings addressed by name.
+ * <p>
+ * The store is chosen once per deployment with the factory's {@code stateStore} option:
+ * <ul>
+ * <li>{@value #USER_ATTRIBUTE} (default) keeps the values as user attributes;</li>
+ * <li>{@value #JPA} keeps them in the {@code MFA_ENROLLMENT_STATE} table, away from {@code USER_ATTRIBUTE}
+ * and the user cache;</li>
+ * <li>{@value #INFINISPAN} keeps them in the Infinispan cache named by {@code stateCache}.</li>
+ * </ul>
+ */
+interface EnrollmentStateStore {
+
+    String USER_ATTRIBUTE = "user-attribute";
+    String JPA = "jpa";
+    String INFINISPAN = "infinispan";
+
+    String CONFIG_STATE_STORE = "stateStore";
+    String CONFIG_STATE_CACHE = "stateCache";
+
+    /**
+     * Returns the stored value, or {@code null} when none is set.
+     */
+    String get(KeycloakSession session, RealmModel realm, UserModel user, String name);
+
+    /**
+     * Stores a value; stores may defer the write until the session transaction commits.
+     */
+    void set(KeycloakSession session, RealmModel realm, UserModel user, String name, String value);
+
+    /**
+     * Whether values are stored as same-named user attributes, so reads can be served from a
+     * {@link UserAttributeSnapshot}.
+     */
+    default boolean readsUserAttributes() {
+        return false;
+    }
+
+    static EnrollmentStateStore create(Config.Scope config) {
+        String type = config.get(CONFIG_STATE_STORE, USER_ATTRIBUTE);
+        return switch (type) {
+            case USER_ATTRIBUTE -> new UserAttributeStateStore();
+            case JPA -> new JpaEnrollmentStateStore();
+            case INFINISPAN -> new InfinispanEnrollmentStateStore(
+                    config.get(CONFIG_STATE_CACHE, InfinispanEnrollmentStateStore.DEFAULT_CACHE_NAME));
+            default -> throw new IllegalArgumentException("Unknown MFA enrollment state store '" + type
+                    + "', expected one of " + USER_ATTRIBUTE + ", " + JPA + ", " + INFINISPAN);
+        };
+    }
+}
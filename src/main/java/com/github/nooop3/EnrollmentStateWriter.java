@@ -0,0 +1,63 @@
+package com.github.nooop3;
+
+import org.keycloak.models.AbstractKeycloakTransaction;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.UserModel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Buffers the enrollment-state user attributes written during one request and applies them when the session
+ * transaction commits, so a login updates the user at most once per attribute and skips values that did not
+ * change (each attribute update otherwise also costs a user cache invalidation broadcast to the cluster).
+ * <p>
+ * The writer is enlisted as a prepare transaction, which Keycloak commits before the JPA transaction, and is
+ * shared through a session attribute by every execution touching the same user in that request.
+ */
+final class EnrollmentStateWriter extends AbstractKeycloakTransaction {
+
+    private static final String SESSION_ATTRIBUTE = EnrollmentStateWriter.class.getName() + ".";
+
+    private final UserModel user;
+    private final Map<String, String> pending = new LinkedHashMap<>();
+
+    private EnrollmentStateWriter(UserModel user) {
+        this.user = user;
+    }
+
+    /**
+     * Returns the writer for the user in this session, enlisting a new one on first use.
+     */
+    static EnrollmentStateWriter forUser(KeycloakSession session, UserModel user) {
+        String key = SESSION_ATTRIBUTE + user.getId();
+        Object existing = session.getAttribute(key);
+        if (existing instanceof EnrollmentStateWriter writer && writer.user == user && writer.isActive()) {
+            return writer;
+        }
+        EnrollmentStateWriter writer = new EnrollmentStateWriter(user);
+        session.getTransactionManager().enlistPrepare(writer);
+        session.setAttribute(key, writer);
+        return writer;
+    }
+
+    void set(String name, String value) {
+        pending.put(name, value);
+    }
+
+    @Override
+    protected void commitImpl() {
+        for (Map.Entry<String, String> entry : pending.entrySet()) {
+            if (!Objects.equals(entry.getValue(), user.getFirstAttribute(entry.getKey()))) {
+                user.setSingleAttribute(entry.getKey(), entry.getValue());
+            }
+        }
+        pending.clear();
+    }
+
+    @Override
+    protected void rollbackImpl() {
+        pending.clear();
+    }
+}
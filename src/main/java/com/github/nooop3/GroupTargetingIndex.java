@@ -0,0 +1,170 @@
+package com.github.nooop3;
+
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.provider.ProviderEvent;
+import org.keycloak.provider.ProviderEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the group paths used by {@code only_for_groups} / {@code exclude_groups} to the ids of those groups
+ * and all of their subgroups, so a login checks the user's direct group ids against a set instead of walking
+ * each group's parents.
+ * <p>
+ * The realm's group tree (ids, parents and paths) is read once and kept per realm; the subtree id set of each
+ * configured path list is computed from it on first use. Both are dropped when a group is created, removed,
+ * renamed or moved on this node, or the realm is removed. Group events are not replicated across the cluster,
+ * so the tree also expires after {@link #MAX_AGE_MILLIS}.
+ */
+class GroupTargetingIndex implements ProviderEventListener {
+
+    static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final Map<String, Tree> realms = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the ids of the groups at the given paths and of every group below them; paths that do not exist
+     * are left out.
+     */
+    Set<String> subtrees(RealmModel realm, Set<String> groupPaths) {
+        if (groupPaths.isEmpty()) {
+            return Set.of();
+        }
+        return tree(realm).subtrees(groupPaths);
+    }
+
+    /**
+     * Evaluates both targeting lists against the user's direct groups in a single pass, returning {@code true}
+     * when the user falls outside the targeted population.
+     */
+    boolean excludes(RealmModel realm, UserModel user, Set<String> onlyForGroups, Set<String> excludeGroups) {
+        Set<String> required = subtrees(realm, onlyForGroups);
+        Set<String> excluded = subtrees(realm, excludeGroups);
+        if (!onlyForGroups.isEmpty() && required.isEmpty()) {
+            return true;
+        }
+        if (required.isEmpty() && excluded.isEmpty()) {
+            return false;
+        }
+        boolean hasRequired = required.isEmpty();
+        Iterator<GroupModel> groups = user.getGroupsStream().iterator();
+        while (groups.hasNext()) {
+            String groupId = groups.next().getId();
+            if (excluded.contains(groupId)) {
+                return true;
+            }
+            if (!hasRequired && required.contains(groupId)) {
+                hasRequired = true;
+                if (excluded.isEmpty()) {
+                    break;
+                }
+            }
+        }
+        return !hasRequired;
+    }
+
+    void invalidate(String realmId) {
+        if (realmId != null) {
+            realms.remove(realmId);
+        }
+    }
+
+    @Override
+    public void onEvent(ProviderEvent event) {
+        if (event instanceof GroupModel.GroupCreatedEvent
+                || event instanceof GroupModel.GroupRemovedEvent
+                || event instanceof GroupModel.GroupPathChangeEvent
+                || event instanceof GroupModel.GroupUpdatedEvent) {
+            invalidate(((GroupModel.GroupEvent) event).getRealm().getId());
+        } else if (event instanceof RealmModel.RealmRemovedEvent removed) {
+            invalidate(removed.getRealm().getId());
+        }
+    }
+
+    private Tree tree(RealmModel realm) {
+        String realmId = realm.getId();
+        if (realmId == null) {
+            return Tree.read(realm);
+        }
+        Tree tree = realms.get(realmId);
+        if (tree == null || tree.expiresAt <= System.currentTimeMillis()) {
+            tree = Tree.read(realm);
+            realms.put(realmId, tree);
+        }
+        return tree;
+    }
+
+    private static final class Tree {
+        private final Map<String, String> idByPath;
+        private final Map<String, List<String>> childrenById;
+        private final Map<Set<String>, Set<String>> subtrees = new ConcurrentHashMap<>();
+        private final long expiresAt;
+
+        private Tree(Map<String, String> idByPath, Map<String, List<String>> childrenById) {
+            this.idByPath = idByPath;
+            this.childrenById = childrenById;
+            this.expiresAt = System.currentTimeMillis() + MAX_AGE_MILLIS;
+        }
+
+        static Tree read(RealmModel realm) {
+            Map<String, GroupModel> byId = new HashMap<>();
+            realm.getGroupsStream().forEach(group -> byId.put(group.getId(), group));
+            Map<String, String> idByPath = new HashMap<>();
+            Map<String, List<String>> childrenById = new HashMap<>();
+            for (GroupModel group : byId.values()) {
+                String parentId = group.getParentId();
+                if (parentId != null) {
+                    childrenById.computeIfAbsent(parentId, id -> new ArrayList<>()).add(group.getId());
+                }
+                idByPath.put(path(group, byId), group.getId());
+            }
+            return new Tree(idByPath, childrenById);
+        }
+
+        Set<String> subtrees(Set<String> groupPaths) {
+            return subtrees.computeIfAbsent(groupPaths, this::collect);
+        }
+
+        private Set<String> collect(Set<String> groupPaths) {
+            Set<String> ids = new HashSet<>();
+            Deque<String> pending = new ArrayDeque<>();
+            for (String path : groupPaths) {
+                String id = idByPath.get(KeycloakModelUtils.normalizeGroupPath(path));
+                if (id != null) {
+                    pending.add(id);
+                }
+            }
+            while (!pending.isEmpty()) {
+                String id = pending.poll();
+                if (ids.add(id)) {
+                    pending.addAll(childrenById.getOrDefault(id, List.of()));
+                }
+            }
+            return Set.copyOf(ids);
+        }
+
+        private static String path(GroupModel group, Map<String, GroupModel> byId) {
+            List<String> names = new ArrayList<>();
+            for (GroupModel current = group; current != null; current = byId.get(current.getParentId())) {
+                names.add(0, current.getName());
+                if (current.getParentId() == null) {
+                    break;
+                }
+            }
+            return KeycloakModelUtils.buildGroupPath(group.escapeSlashesInGroupPath(), names.toArray(String[]::new));
+        }
+    }
+}
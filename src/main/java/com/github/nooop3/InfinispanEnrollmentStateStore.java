@@ -0,0 +1,196 @@
+package com.github.nooop3;
+
+import org.infinispan.Cache;
+import org.keycloak.connections.infinispan.InfinispanConnectionProvider;
+import org.keycloak.models.AbstractKeycloakTransaction;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.provider.ProviderEvent;
+import org.keycloak.provider.ProviderEventListener;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Keeps enrollment state in an Infinispan cache, one string entry per user. The cache is not created by
+ * Keycloak; it has to be declared in the Infinispan configuration, and its persistence and expiration decide
+ * how long opt-outs and prompt history survive.
+ * <p>
+ * Entries are plain strings so they need no ProtoStream schema, and are updated with conditional
+ * {@code putIfAbsent}/{@code replace} so concurrent logins of the same user do not lose each other's writes.
+ * Writes are buffered per session and applied only after the Keycloak transaction commits, so a login that
+ * rolls back leaves no prompt or opt-out state behind.
+ */
+class InfinispanEnrollmentStateStore implements EnrollmentStateStore, ProviderEventListener {
+
+    static final String DEFAULT_CACHE_NAME = "mfaEnrollmentState";
+
+    private static final String SESSION_ATTRIBUTE = InfinispanEnrollmentStateStore.class.getName() + ".";
+
+    private final String cacheName;
+
+    InfinispanEnrollmentStateStore(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    @Override
+    public String get(KeycloakSession session, RealmModel realm, UserModel user, String name) {
+        String key = key(realm, user);
+        PendingWrites pending = pending(session, false);
+        Map<String, String> buffered = pending != null ? pending.writes.get(key) : null;
+        if (buffered != null && buffered.containsKey(name)) {
+            return buffered.get(name);
+        }
+        return decode(cache(session).get(key)).get(name);
+    }
+
+    @Override
+    public void set(KeycloakSession session, RealmModel realm, UserModel user, String name, String value) {
+        pending(session, true).writes.computeIfAbsent(key(realm, user), k -> new LinkedHashMap<>())
+                .put(name, value);
+    }
+
+    @Override
+    public void onEvent(ProviderEvent event) {
+        if (event instanceof UserModel.UserRemovedEvent removed) {
+            String key = key(removed.getRealm(), removed.getUser());
+            afterCommit(removed.getKeycloakSession(), cache -> cache.remove(key));
+        } else if (event instanceof RealmModel.RealmRemovedEvent removed) {
+            String prefix = removed.getRealm().getId() + '/';
+            afterCommit(removed.getKeycloakSession(), cache -> cache.keySet().removeIf(k -> k.startsWith(prefix)));
+        }
+    }
+
+    /**
+     * Applies one user's buffered values to the cache, retrying when a concurrent login updated the entry
+     * in between.
+     */
+    private static void apply(Cache<String, String> cache, String key, Map<String, String> values) {
+        while (true) {
+            String current = cache.get(key);
+            Map<String, String> state = decode(current);
+            Map<String, String> updated = new LinkedHashMap<>(state);
+            values.forEach((name, value) -> {
+                if (value != null) {
+                    updated.put(name, value);
+                } else {
+                    updated.remove(name);
+                }
+            });
+            if (updated.equals(state)) {
+                return;
+            }
+            String encoded = encode(updated);
+            boolean stored = current == null
+                    ? cache.putIfAbsent(key, encoded) == null
+                    : cache.replace(key, current, encoded);
+            if (stored) {
+                return;
+            }
+        }
+    }
+
+    private PendingWrites pending(KeycloakSession session, boolean create) {
+        String attribute = SESSION_ATTRIBUTE + cacheName;
+        if (session.getAttribute(attribute) instanceof PendingWrites pending && pending.isActive()) {
+            return pending;
+        }
+        if (!create) {
+            return null;
+        }
+        PendingWrites pending = new PendingWrites(session);
+        session.getTransactionManager().enlistAfterCompletion(pending);
+        session.setAttribute(attribute, pending);
+        return pending;
+    }
+
+    private void afterCommit(KeycloakSession session, Consumer<Cache<String, String>> action) {
+        session.getTransactionManager().enlistAfterCompletion(new AbstractKeycloakTransaction() {
+            @Override
+            protected void commitImpl() {
+                action.accept(cache(session));
+            }
+
+            @Override
+            protected void rollbackImpl() {
+            }
+        });
+    }
+
+    private Cache<String, String> cache(KeycloakSession session) {
+        InfinispanConnectionProvider infinispan = session.getProvider(InfinispanConnectionProvider.class);
+        Cache<String, String> cache = infinispan != null ? infinispan.getCache(cacheName) : null;
+        if (cache == null) {
+            throw new IllegalStateException("Infinispan cache '" + cacheName
+                    + "' used by the MFA enrollment state store is not defined");
+        }
+        return cache;
+    }
+
+    private static String key(RealmModel realm, UserModel user) {
+        return realm.getId() + '/' + user.getId();
+    }
+
+    static String encode(Map<String, String> state) {
+        StringBuilder encoded = new StringBuilder();
+        for (Map.Entry<String, String> entry : state.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            if (!encoded.isEmpty()) {
+                encoded.append('&');
+            }
+            encoded.append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8))
+                    .append('=')
+                    .append(URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8));
+        }
+        return encoded.toString();
+    }
+
+    static Map<String, String> decode(String encoded) {
+        Map<String, String> state = new LinkedHashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return state;
+        }
+        for (String pair : encoded.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                state.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return state;
+    }
+
+    /**
+     * The values set during one session, keyed by cache entry.
+     */
+    private final class PendingWrites extends AbstractKeycloakTransaction {
+
+        private final KeycloakSession session;
+        private final Map<String, Map<String, String>> writes = new LinkedHashMap<>();
+
+        private PendingWrites(KeycloakSession session) {
+            this.session = session;
+        }
+
+        @Override
+        protected void commitImpl() {
+            if (writes.isEmpty()) {
+                return;
+            }
+            Cache<String, String> cache = cache(session);
+            writes.forEach((key, values) -> apply(cache, key, values));
+        }
+
+        @Override
+        protected void rollbackImpl() {
+            writes.clear();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.nooop3;
+
+import jakarta.persistence.EntityManager;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.provider.ProviderEvent;
+import org.keycloak.provider.ProviderEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps enrollment state in the {@code MFA_ENROLLMENT_STATE} table (see {@link EnrollmentStateEntity}). Writes
+ * join the session's JPA transaction and never touch the user or its cache entry.
+ * <p>
+ * A user's rows are read with one query per request and kept in a session attribute; rows are deleted with
+ * their user or realm.
+ */
+class JpaEnrollmentStateStore implements EnrollmentStateStore, ProviderEventListener {
+
+    private static final String SESSION_ATTRIBUTE = JpaEnrollmentStateStore.class.getName() + ".";
+
+    @Override
+    public String get(KeycloakSession session, RealmModel realm, UserModel user, String name) {
+        EnrollmentStateEntity entity = rows(session, user).get(name);
+        return entity != null ? entity.getValue() : null;
+    }
+
+    @Override
+    public void set(KeycloakSession session, RealmModel realm, UserModel user, String name, String value) {
+        Map<String, EnrollmentStateEntity> rows = rows(session, user);
+        EnrollmentStateEntity entity = rows.get(name);
+        if (entity != null) {
+            if (!Objects.equals(entity.getValue(), value)) {
+                entity.setValue(value);
+            }
+            return;
+        }
+        entity = new EnrollmentStateEntity();
+        entity.setUserId(user.getId());
+        entity.setName(name);
+        entity.setRealmId(realm.getId());
+        entity.setValue(value);
+        entityManager(session).persist(entity);
+        rows.put(name, entity);
+    }
+
+    @Override
+    public void onEvent(ProviderEvent event) {
+        if (event instanceof UserModel.UserRemovedEvent removed) {
+            entityManager(removed.getKeycloakSession()).createNamedQuery("deleteMfaEnrollmentStateByUser")
+                    .setParameter("userId", removed.getUser().getId())
+                    .executeUpdate();
+        } else if (event instanceof RealmModel.RealmRemovedEvent removed) {
+            entityManager(removed.getKeycloakSession()).createNamedQuery("deleteMfaEnrollmentStateByRealm")
+                    .setParameter("realmId", removed.getRealm().getId())
+                    .executeUpdate();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, EnrollmentStateEntity> rows(KeycloakSession session, UserModel user) {
+        String key = SESSION_ATTRIBUTE + user.getId();
+        Object cached = session.getAttribute(key);
+        if (cached instanceof Map<?, ?> map) {
+            return (Map<String, EnrollmentStateEntity>) map;
+        }
+        Map<String, EnrollmentStateEntity> rows = new HashMap<>();
+        entityManager(session).createNamedQuery("mfaEnrollmentStateByUser", EnrollmentStateEntity.class)
+                .setParameter("userId", user.getId())
+                .getResultStream()
+                .forEach(entity -> rows.put(entity.getName(), entity));
+        session.setAttribute(key, rows);
+        return rows;
+    }
+
+    private static EntityManager entityManager(KeycloakSession session) {
+        JpaConnectionProvider jpa = session.getProvider(JpaConnectionProvider.class);
+        if (jpa == null) {
+            throw new IllegalStateException("The jpa MFA enrollment state store requires a JPA connection");
+        }
+        return jpa.getEntityManager();
+    }
+}
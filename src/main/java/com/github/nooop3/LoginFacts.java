@@ -0,0 +1,170 @@
+package com.github.nooop3;
+
+import org.keycloak.authentication.AuthenticationFlowContext;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+
+
+/**
+ * The inputs {@link SkipRule}s decide on for one {@code authenticate()} call. Context and policy are at hand;
+ * the user's enrollment state is read through the configured store; the credential-derived facts are only
+ * resolved the first time a rule (or the form path) asks for them.
+ * <p>
+ * Facts built for a user outside of a login (the compliance report) have no flow context, and
+ * {@link SkipRule#firstSkipping(LoginFacts)} leaves out the rules that read it.
+ */
+final class LoginFacts {
+
+    /**
+     * Credential-derived inputs as {@link MfaMethodCatalog} bitmasks: the user's configured methods, the methods
+     * offered to the user, and the minimum check.
+     */
+    record Credentials(long configured, long enabled, boolean meetsMinimum) {
+    }
+
+    @FunctionalInterface
+    interface CredentialResolver {
+        Credentials resolve();
+    }
+
+    private final AuthenticationFlowContext context;
+    private final KeycloakSession session;
+    private final RealmModel realm;
+    private final UserModel user;
+    private final EnrollmentPolicy policy;
+    private final EnrollmentStateStore stateStore;
+    private final RoleTargetingIndex roleIndex;
+    private final GroupTargetingIndex groupIndex;
+    private final CredentialResolver resolver;
+    private UserAttributeSnapshot attributes;
+    private EffectiveRoles effectiveRoles;
+    private Credentials credentials;
+    private long resolutionNanos;
+
+    LoginFacts(AuthenticationFlowContext context, EnrollmentPolicy policy, EnrollmentStateStore stateStore,
+            RoleTargetingIndex roleIndex, GroupTargetingIndex groupIndex, CredentialResolver resolver) {
+        this(context, context.getSession(), context.getRealm(), context.getUser(), policy, stateStore, roleIndex,
+                groupIndex, resolver);
+    }
+
+    LoginFacts(KeycloakSession session, RealmModel realm, UserModel user, EnrollmentPolicy policy,
+            EnrollmentStateStore stateStore, RoleTargetingIndex roleIndex, GroupTargetingIndex groupIndex,
+            CredentialResolver resolver) {
+        this(null, session, realm, user, policy, stateStore, roleIndex, groupIndex, resolver);
+    }
+
+    private LoginFacts(AuthenticationFlowContext context, KeycloakSession session, RealmModel realm, UserModel user,
+            EnrollmentPolicy policy, EnrollmentStateStore stateStore, RoleTargetingIndex roleIndex,
+            GroupTargetingIndex groupIndex, CredentialResolver resolver) {
+        this.context = context;
+        this.session = session;
+        this.realm = realm;
+        this.user = user;
+        this.policy = policy;
+        this.stateStore = stateStore;
+        this.roleIndex = roleIndex;
+        this.groupIndex = groupIndex;
+        this.resolver = resolver;
+    }
+
+    /**
+     * Returns the flow context, or {@code null} when the user is evaluated outside of a login.
+     */
+    AuthenticationFlowContext context() {
+        return context;
+    }
+
+    RealmModel realm() {
+        return realm;
+    }
+
+    EnrollmentPolicy policy() {
+        return policy;
+    }
+
+    UserModel user() {
+        return user;
+    }
+
+    RoleTargetingIndex roleIndex() {
+        return roleIndex;
+    }
+
+    GroupTargetingIndex groupIndex() {
+        return groupIndex;
+    }
+
+    /**
+     * Reads a value from the enrollment state store; {@code slot} is its {@link UserAttributeSnapshot} slot,
+     * used when the store keeps state in user attributes.
+     */
+    String state(int slot, String name) {
+        if (stateStore.readsUserAttributes()) {
+            return attribute(slot);
+        }
+        return stateStore.get(session, realm, user, name);
+    }
+
+    /**
+     * Returns the user attribute in the given slot of the policy's attribute layout.
+     */
+    String attribute(int slot) {
+        return attributes().get(slot);
+    }
+
+    /**
+     * Returns the user attributes of the policy's attribute layout, read on first use.
+     */
+    UserAttributeSnapshot attributes() {
+        if (attributes == null) {
+            attributes = UserAttributeSnapshot.read(user, policy.attributeKeys());
+        }
+        return attributes;
+    }
+
+    /**
+     * Returns the user's effective realm roles, kept in the authentication session during a login.
+     */
+    EffectiveRoles effectiveRoles() {
+        if (effectiveRoles == null) {
+            effectiveRoles = context != null
+                    ? EffectiveRoles.of(context.getAuthenticationSession(), user)
+                    : EffectiveRoles.of(user);
+        }
+        return effectiveRoles;
+    }
+
+    /**
+     * Keeps the effective roles, if this login computed them, for the login's next request.
+     */
+    void rememberEffectiveRoles() {
+        if (context != null && effectiveRoles != null) {
+            effectiveRoles.remember(context.getAuthenticationSession(), user.getId());
+        }
+    }
+
+    Credentials credentials() {
+        if (credentials == null) {
+            long started = System.nanoTime();
+            credentials = resolver.resolve();
+            resolutionNanos = System.nanoTime() - started;
+        }
+        return credentials;
+    }
+
+    boolean meetsMinimum() {
+        return credentials().meetsMinimum();
+    }
+
+    boolean credentialsResolved() {
+        return credentials != null;
+    }
+
+    /**
+     * Time spent resolving credentials, or {@code 0} when they were never needed.
+     */
+    long resolutionNanos() {
+        return resolutionNanos;
+    }
+}
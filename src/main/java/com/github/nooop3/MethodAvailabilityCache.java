@@ -0,0 +1,78 @@
+package com.github.nooop3;
+
+import org.keycloak.events.admin.ResourceType;
+import org.keycloak.models.RealmModel;
+import org.keycloak.provider.ProviderEvent;
+import org.keycloak.provider.ProviderEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers, per realm, which catalog methods have all of their required actions registered, as one bit per
+ * method ordinal. Every login otherwise repeats a {@link RealmModel#getRequiredActionProviderByAlias(String)}
+ * lookup per action of every enabled method.
+ * <p>
+ * Entries are dropped when a required action is changed through the admin API on this node (see
+ * {@link MfaEnrollmentCacheEventListenerFactory}) or the realm is removed. Those notifications are not
+ * replicated across the cluster, so entries also expire after {@link #MAX_AGE_MILLIS}.
+ */
+class MethodAvailabilityCache implements ProviderEventListener {
+
+    static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final MfaMethodCatalog catalog;
+    private final Map<String, Entry> realms = new ConcurrentHashMap<>();
+
+    MethodAvailabilityCache(MfaMethodCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Returns the bits of every catalog method available in the realm.
+     */
+    long availableMask(RealmModel realm) {
+        String realmId = realm.getId();
+        if (realmId == null) {
+            return compute(realm);
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = realms.get(realmId);
+        if (entry == null || entry.expiresAt <= now) {
+            entry = new Entry(compute(realm), now + MAX_AGE_MILLIS);
+            realms.put(realmId, entry);
+        }
+        return entry.mask;
+    }
+
+    void invalidate(String realmId) {
+        if (realmId != null) {
+            realms.remove(realmId);
+        }
+    }
+
+    @Override
+    public void onEvent(ProviderEvent event) {
+        if (event instanceof AdminResourceChangedEvent changed) {
+            if (changed.resourceType() == ResourceType.REQUIRED_ACTION) {
+                invalidate(changed.realmId());
+            }
+        } else if (event instanceof RealmModel.RealmRemovedEvent removed) {
+            invalidate(removed.getRealm().getId());
+        }
+    }
+
+    private long compute(RealmModel realm) {
+        long mask = 0L;
+        for (MfaMethod method : catalog.methods()) {
+            if (method.isAvailable(realm)) {
+                mask |= catalog.bit(method.id());
+            }
+        }
+        return mask;
+    }
+
+    private record Entry(long mask, long expiresAt) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.nooop3;
+
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+
+/**
+ * Resolves a user's configured and offered methods and checks them against a policy's minimums. Shared by the
+ * orchestrator and the {@link MfaEnrollmentCondition}, so both decide compliance the same way.
+ */
+final class MfaCompliance {
+
+    private final MfaMethodCatalog catalog;
+    private final MethodAvailabilityCache availability;
+
+    MfaCompliance(MfaMethodCatalog catalog, MethodAvailabilityCache availability) {
+        this.catalog = catalog;
+        this.availability = availability;
+    }
+
+    LoginFacts.Credentials resolve(RealmModel realm, UserModel user, EnrollmentPolicy policy) {
+        long configured = catalog.configuredMask(CredentialTypeSummary.configuredTypes(user,
+                catalog.credentialTypes()));
+        long enabled = catalog.mask(policy.enabledMfaTypes());
+        if (policy.visibleOnlyIfSupported()) {
+            enabled &= availability.availableMask(realm);
+        }
+        if (policy.hideAlreadyConfiguredMethods()) {
+            enabled &= ~configured;
+        }
+        return new LoginFacts.Credentials(configured, enabled, meetsMinimum(policy, enabled, configured));
+    }
+
+    static boolean meetsMinimum(EnrollmentPolicy policy, long enabled, long configured) {
+        if (Long.bitCount(configured) < policy.minRequiredMfaMethods()) {
+            return false;
+        }
+        if (policy.minRequiredFromList() <= 0) {
+            return true;
+        }
+        return Long.bitCount(configured & enabled) >= policy.minRequiredFromList();
+    }
+}
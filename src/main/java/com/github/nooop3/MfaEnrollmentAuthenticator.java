@@ -1,109 +1,100 @@
 package com.github.nooop3;
 
+import com.github.nooop3.EnrollmentMetrics.Outcome;
+import com.github.nooop3.EnrollmentMetrics.RealmMeters;
+import com.github.nooop3.EnrollmentMetrics.Step;
+import com.github.nooop3.EnrollmentPolicy.PostAuthPromptMode;
+import com.github.nooop3.EnrollmentPolicy.SelectionMode;
 import org.keycloak.authentication.AuthenticationFlowContext;
 import org.keycloak.authentication.Authenticator;
 import org.keycloak.authentication.AuthenticationFlowError;
-import org.keycloak.models.AuthenticationExecutionModel;
-import org.keycloak.models.AuthenticatorConfigModel;
-import org.keycloak.models.ClientModel;
+import org.keycloak.authentication.RequiredActionContext;
+import org.keycloak.forms.login.LoginFormsProvider;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
-import org.keycloak.credential.CredentialModel;
+import org.keycloak.sessions.AuthenticationSessionModel;
 import org.keycloak.models.credential.OTPCredentialModel;
 import org.keycloak.models.credential.RecoveryAuthnCodesCredentialModel;
-import org.keycloak.models.credential.WebAuthnCredentialModel;
-import org.keycloak.authentication.requiredactions.WebAuthnRegisterFactory;
 import jakarta.ws.rs.core.MultivaluedMap;
 import jakarta.ws.rs.core.Response;
-import java.time.Duration;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 public class MfaEnrollmentAuthenticator implements Authenticator {
 
-    private static final String ATTR_LAST_PROMPT = "mfaEnrollment.lastPrompt";
-    private static final String ATTR_FIRST_LOGIN_COMPLETED = "mfaEnrollment.firstLoginCompleted";
+    static final String ATTR_LAST_PROMPT = "mfaEnrollment.lastPrompt";
+    static final String ATTR_FIRST_LOGIN_COMPLETED = "mfaEnrollment.firstLoginCompleted";
     public static final String ATTR_SKIP_FUTURE_PROMPTS = "mfaEnrollment.skipFuturePrompts";
-    private static final int DEFAULT_MIN_REQUIRED = 1;
-    private static final List<String> DEFAULT_ENABLED_TYPES = List.of(
-            OTPCredentialModel.TYPE,
-            WebAuthnCredentialModel.TYPE_TWOFACTOR,
-            RecoveryAuthnCodesCredentialModel.TYPE);
 
-    @Override
-    public void authenticate(AuthenticationFlowContext context) {
-        Config config = Config.fromContext(context);
-        if (shouldSkipByExecution(config, context)) {
-            context.success();
-            return;
-        }
-
-        UserModel user = context.getUser();
-        RealmModel realm = context.getRealm();
-        KeycloakSession session = context.getSession();
-        Set<String> configuredMethods = resolveConfiguredMethods(session, realm, user);
-
-        List<MfaMethod> enabledMethods = resolveEnabledMethods(config, realm);
-        if (config.hideAlreadyConfiguredMethods) {
-            enabledMethods = enabledMethods.stream()
-                    .filter(method -> !configuredMethods.contains(method.id()))
-                    .toList();
-        }
-
-        boolean meetsMinimum = meetsMinimum(config, enabledMethods, configuredMethods);
-
-        if (shouldSkipByUserAttributes(config, context, meetsMinimum)) {
-            context.success();
-            return;
-        }
-
-        if (shouldSkipByReminder(config, user)) {
-            context.success();
-            return;
-        }
+    private final EnrollmentPolicyCache policies;
+    private final RoleTargetingIndex roleIndex;
+    private final GroupTargetingIndex groupIndex;
+    private final MfaMethodCatalog catalog;
+    private final MethodAvailabilityCache availability;
+    private final EnrollmentFormCache forms;
+    private final EnrollmentStateStore stateStore;
+    private final EnrollmentMetrics metrics;
+    private final MfaCompliance compliance;
+    private final long otpBit;
+    private final long recoveryCodesBit;
+
+    public MfaEnrollmentAuthenticator() {
+        this(new EnrollmentPolicyCache(), new RoleTargetingIndex(), MfaMethodCatalog.builtIn());
+    }
 
-        if (shouldSkipByRollout(config, user, meetsMinimum)) {
-            context.success();
-            return;
-        }
+    MfaEnrollmentAuthenticator(EnrollmentPolicyCache policies, RoleTargetingIndex roleIndex,
+            MfaMethodCatalog catalog) {
+        this(policies, roleIndex, new GroupTargetingIndex(), catalog, new MethodAvailabilityCache(catalog),
+                new EnrollmentFormCache(catalog), new UserAttributeStateStore(), EnrollmentMetrics.DISABLED);
+    }
 
-        if (config.maxAllowedMfaMethods > 0 && configuredMethods.size() >= config.maxAllowedMfaMethods) {
-            context.success();
-            return;
-        }
+    MfaEnrollmentAuthenticator(EnrollmentPolicyCache policies, RoleTargetingIndex roleIndex,
+            GroupTargetingIndex groupIndex, MfaMethodCatalog catalog, MethodAvailabilityCache availability,
+            EnrollmentFormCache forms, EnrollmentStateStore stateStore, EnrollmentMetrics metrics) {
+        this.policies = policies;
+        this.roleIndex = roleIndex;
+        this.groupIndex = groupIndex;
+        this.catalog = catalog;
+        this.availability = availability;
+        this.forms = forms;
+        this.stateStore = stateStore;
+        this.metrics = metrics;
+        this.compliance = new MfaCompliance(catalog, availability);
+        this.otpBit = catalog.bit(OTPCredentialModel.TYPE);
+        this.recoveryCodesBit = catalog.bit(RecoveryAuthnCodesCredentialModel.TYPE);
+    }
 
-        if (meetsMinimum && !config.offerConfigureAdditionalMethods) {
-            markFirstLoginComplete(config, user);
+    @Override
+    public void authenticate(AuthenticationFlowContext context) {
+        long started = System.nanoTime();
+        RealmMeters meters = metrics.forRealm(context.getRealm());
+        EnrollmentPolicy policy = policies.resolve(context.getAuthenticatorConfig());
+        LoginFacts facts = new LoginFacts(context, policy, stateStore, roleIndex, groupIndex,
+                () -> compliance.resolve(context.getRealm(), context.getUser(), policy));
+        SkipRule skipped = SkipRule.firstSkipping(facts);
+        if (skipped != null) {
+            decided(meters, skipped.outcome(), started, facts);
             context.success();
             return;
         }
 
-        List<MfaMethod> availableUnconfigured = enabledMethods.stream()
-                .filter(method -> !configuredMethods.contains(method.id()))
-                .filter(method -> !config.visibleOnlyIfSupported || method.isAvailable(realm))
-                .toList();
-
-        boolean hasUnconfigured = !availableUnconfigured.isEmpty();
-        if (meetsMinimum && (!hasUnconfigured || config.postAuthPromptMode == PostAuthPromptMode.NONE)) {
-            markFirstLoginComplete(config, user);
+        LoginFacts.Credentials credentials = facts.credentials();
+        Outcome outcome = decide(policy, context.getRealm(), credentials);
+        if (outcome == Outcome.COMPLIANT) {
+            markFirstLoginComplete(policy, context);
+            decided(meters, Outcome.COMPLIANT, started, facts);
             context.success();
             return;
         }
 
-        if (!meetsMinimum && availableUnconfigured.isEmpty()) {
+        if (outcome == Outcome.NO_AVAILABLE_METHODS) {
+            decided(meters, Outcome.NO_AVAILABLE_METHODS, started, facts);
             Response response = renderError(context,
                     "No available MFA methods to configure. Contact your administrator.");
-            if (config.failIfSelectionInsufficient) {
+            if (policy.failIfSelectionInsufficient()) {
                 context.failureChallenge(AuthenticationFlowError.INTERNAL_ERROR, response);
             } else {
                 context.challenge(response);
@@ -111,346 +102,370 @@ public class MfaEnrollmentAuthenticator implements Authenticator {
             return;
         }
 
-        Response challenge = renderForm(context, config, enabledMethods, configuredMethods, null, meetsMinimum);
-        recordPrompt(user);
+        if (policy.postAuthPromptMode() == PostAuthPromptMode.NEXT_LOGIN_REQUIRED_ACTION
+                && credentials.meetsMinimum() && MfaEnrollmentRequiredAction.isEnabled(context.getRealm())) {
+            // Nothing is missing, so the screen waits for the next login as the enrollment required action.
+            attachForNextLogin(context.getRealm(), context.getUser(),
+                    credentials.enabled() & ~credentials.configured());
+            markFirstLoginComplete(policy, context);
+            decided(meters, Outcome.DEFERRED_TO_REQUIRED_ACTION, started, facts);
+            context.success();
+            return;
+        }
+
+        decided(meters, Outcome.FORM_RENDERED, started, facts);
+        long rendering = System.nanoTime();
+        Response challenge = renderForm(context.form(), context.getSession(), context.getRealm(), context.getUser(),
+                policy, credentials, null);
+        meters.record(Step.FORM_RENDERING, System.nanoTime() - rendering);
+        saveSnapshot(context.getAuthenticationSession(), policy, context.getUser(), credentials);
+        facts.rememberEffectiveRoles();
+        recordPrompt(context.getSession(), context.getRealm(), context.getUser());
         context.challenge(challenge);
     }
 
     @Override
     public void action(AuthenticationFlowContext context) {
-        Config config = Config.fromContext(context);
+        RealmMeters meters = metrics.forRealm(context.getRealm());
+        EnrollmentPolicy policy = policies.resolve(context.getAuthenticatorConfig());
         UserModel user = context.getUser();
         RealmModel realm = context.getRealm();
         KeycloakSession session = context.getSession();
-        Set<String> configuredMethods = resolveConfiguredMethods(session, realm, user);
-        List<MfaMethod> enabledMethods = resolveEnabledMethods(config, realm);
-        if (config.hideAlreadyConfiguredMethods) {
-            enabledMethods = enabledMethods.stream()
-                    .filter(method -> !configuredMethods.contains(method.id()))
-                    .toList();
-        }
+        AuthenticationSessionModel authSession = context.getAuthenticationSession();
+        LoginFacts.Credentials credentials = submittedCredentials(session, realm, user, authSession, policy, meters);
+        boolean meetsMinimum = credentials.meetsMinimum();
 
-        boolean meetsMinimum = meetsMinimum(config, enabledMethods, configuredMethods);
         MultivaluedMap<String, String> formData = context.getHttpRequest().getDecodedFormParameters();
         List<String> requestedMethods = Optional.ofNullable(formData.get("method")).orElse(List.of());
         boolean optOutRequested = "on".equalsIgnoreCase(formData.getFirst("optOut"));
 
-        ValidationResult validation = validateSelection(config, enabledMethods, configuredMethods, requestedMethods,
-                meetsMinimum);
-        if (!validation.valid && config.failIfSelectionInsufficient) {
-            Response challenge = renderForm(context, config, enabledMethods, configuredMethods, validation.message,
-                    meetsMinimum);
+        long selectable = credentials.enabled() & ~credentials.configured();
+        long selected = catalog.mask(requestedMethods) & selectable;
+        String problem = validateSelection(policy, selectable, selected, meetsMinimum);
+        if (problem != null && policy.failIfSelectionInsufficient()) {
+            meters.count(Outcome.SELECTION_REJECTED);
+            long rendering = System.nanoTime();
+            Response challenge = renderForm(context.form(), session, realm, user, policy, credentials, problem);
+            meters.record(Step.FORM_RENDERING, System.nanoTime() - rendering);
             context.failureChallenge(AuthenticationFlowError.INVALID_USER, challenge);
             return;
         }
 
-        if (!validation.valid) {
-            markFirstLoginComplete(config, user);
+        EnrollmentSnapshot.clear(authSession);
+        if (problem != null) {
+            markFirstLoginComplete(policy, context);
+            meters.count(Outcome.SELECTION_IGNORED);
             context.success();
             return;
         }
 
-        boolean pushActionsToNextLogin = config.postAuthPromptMode == PostAuthPromptMode.NEXT_LOGIN_REQUIRED_ACTION
-                && meetsMinimum;
-        for (String methodId : validation.acceptedMethods) {
-            enabledMethods.stream()
-                    .filter(m -> m.id().equals(methodId))
-                    .findFirst()
-                    .ifPresent(method -> registerRequiredActions(context, method, pushActionsToNextLogin));
+        if (policy.postAuthPromptMode() == PostAuthPromptMode.NEXT_LOGIN_REQUIRED_ACTION && meetsMinimum) {
+            attachForNextLogin(realm, user, selected);
+        } else {
+            for (long rest = selected; rest != 0L; rest &= rest - 1) {
+                for (String action : catalog.method(Long.numberOfTrailingZeros(rest)).requiredActions()) {
+                    authSession.addRequiredAction(action);
+                }
+            }
         }
 
-        if (optOutRequested && config.allowUserOptOut) {
-            user.setSingleAttribute(config.optOutAttributeName, "true");
+        if (optOutRequested && policy.allowUserOptOut()) {
+            stateStore.set(session, realm, user, policy.optOutAttributeName(), "true");
         }
 
-        markFirstLoginComplete(config, user);
+        markFirstLoginComplete(policy, context);
+        meters.count(Outcome.METHODS_SELECTED);
         context.success();
     }
 
-    @Override
-    public boolean requiresUser() {
-        return true;
+    /**
+     * Shows the enrollment screen as the {@link MfaEnrollmentRequiredAction}, which is only attached to users
+     * already found to need enrollment or to be offered more methods: targeting, rollout, opt-out and reminder
+     * rules are not evaluated again. Users meeting the minimum pass through unless the config offers additional
+     * methods and one can be set up. Under-secured users with nothing left to set up on this realm keep the
+     * action for a later login.
+     */
+    void requiredActionChallenge(RequiredActionContext context) {
+        RealmMeters meters = metrics.forRealm(context.getRealm());
+        EnrollmentPolicy policy = policies.resolveAction(context.getConfig());
+        KeycloakSession session = context.getSession();
+        RealmModel realm = context.getRealm();
+        UserModel user = context.getUser();
+        LoginFacts.Credentials credentials = compliance.resolve(realm, user, policy);
+        long listed = credentials.enabled() & shownMask(policy, credentials.configured());
+        boolean selectable = (listed & ~credentials.configured() & availability.availableMask(realm)) != 0L;
+        if (credentials.meetsMinimum() && (!selectable || !policy.offerConfigureAdditionalMethods())) {
+            meters.count(Outcome.COMPLIANT);
+            context.success();
+            return;
+        }
+        if (!selectable) {
+            meters.count(Outcome.NO_AVAILABLE_METHODS);
+            context.ignore();
+            return;
+        }
+        meters.count(Outcome.FORM_RENDERED);
+        Response challenge = renderForm(context.form(), session, realm, user, policy, credentials, null);
+        saveSnapshot(context.getAuthenticationSession(), policy, user, credentials);
+        recordPrompt(session, realm, user);
+        context.challenge(challenge);
     }
 
-    @Override
-    public boolean configuredFor(KeycloakSession session, RealmModel realm, UserModel user) {
-        return true;
-    }
+    /**
+     * Handles the enrollment screen's POST for the {@link MfaEnrollmentRequiredAction}. The selected methods'
+     * required actions are added to the user, so Keycloak runs them right after this one and they are kept if
+     * the login is abandoned.
+     */
+    void processRequiredAction(RequiredActionContext context) {
+        RealmMeters meters = metrics.forRealm(context.getRealm());
+        EnrollmentPolicy policy = policies.resolveAction(context.getConfig());
+        KeycloakSession session = context.getSession();
+        RealmModel realm = context.getRealm();
+        UserModel user = context.getUser();
+        AuthenticationSessionModel authSession = context.getAuthenticationSession();
+        LoginFacts.Credentials credentials = submittedCredentials(session, realm, user, authSession, policy, meters);
 
-    @Override
-    public void setRequiredActions(KeycloakSession session, RealmModel realm, UserModel user) {
-        // No-op: required actions are attached dynamically during the flow.
-    }
+        MultivaluedMap<String, String> formData = context.getHttpRequest().getDecodedFormParameters();
+        List<String> requestedMethods = Optional.ofNullable(formData.get("method")).orElse(List.of());
+        boolean optOutRequested = "on".equalsIgnoreCase(formData.getFirst("optOut"));
 
-    @Override
-    public void close() {
-    }
+        long selectable = credentials.enabled() & ~credentials.configured();
+        long selected = catalog.mask(requestedMethods) & selectable;
+        String problem = validateSelection(policy, selectable, selected, credentials.meetsMinimum());
+        if (problem != null && policy.failIfSelectionInsufficient()) {
+            meters.count(Outcome.SELECTION_REJECTED);
+            context.challenge(renderForm(context.form(), session, realm, user, policy, credentials, problem));
+            return;
+        }
 
-    private boolean shouldSkipByExecution(Config config, AuthenticationFlowContext context) {
-        AuthenticationExecutionModel execution = context.getExecution();
-        if (execution.getRequirement() == AuthenticationExecutionModel.Requirement.DISABLED) {
-            return true;
+        EnrollmentSnapshot.clear(authSession);
+        if (problem != null) {
+            meters.count(Outcome.SELECTION_IGNORED);
+            context.success();
+            return;
         }
-        ClientModel client = context.getAuthenticationSession().getClient();
-        if (!config.onlyForClients.isEmpty() && !config.onlyForClients.contains(client.getClientId())
-                && !config.onlyForClients.contains(client.getId())) {
-            return true;
+        for (long rest = selected; rest != 0L; rest &= rest - 1) {
+            for (String action : catalog.method(Long.numberOfTrailingZeros(rest)).requiredActions()) {
+                user.addRequiredAction(action);
+            }
         }
-        if (!config.excludeClients.isEmpty() && (config.excludeClients.contains(client.getClientId())
-                || config.excludeClients.contains(client.getId()))) {
-            return true;
+        if (optOutRequested && policy.allowUserOptOut()) {
+            stateStore.set(session, realm, user, policy.optOutAttributeName(), "true");
         }
+        meters.count(Outcome.METHODS_SELECTED);
+        context.success();
+    }
 
-        UserModel user = context.getUser();
-        RealmModel realm = context.getRealm();
-        if (!config.onlyForRoles.isEmpty()) {
-            boolean hasRequiredRole = config.onlyForRoles.stream()
-                    .map(realm::getRole)
-                    .filter(Objects::nonNull)
-                    .anyMatch(user::hasRole);
-            if (!hasRequiredRole) {
-                return true;
-            }
+    /**
+     * Evaluates the policy for a user outside of a login, without writing any state: the outcome
+     * {@code authenticate()} would reach for the user in a login that no request-bound rule (execution
+     * requirement, client or IdP targeting) skips.
+     */
+    Outcome evaluate(KeycloakSession session, RealmModel realm, UserModel user, EnrollmentPolicy policy) {
+        LoginFacts facts = offlineFacts(session, realm, user, policy);
+        SkipRule skipped = SkipRule.firstSkipping(facts);
+        if (skipped != null) {
+            return skipped.outcome();
+        }
+        return decide(policy, realm, facts.credentials());
+    }
+
+    /**
+     * Attaches enrollment in the methods an under-secured user is missing for the next login, see
+     * {@link #attachForNextLogin}. Users that a rule skips or that meet the minimum are left alone. Returns whether
+     * any action was added.
+     */
+    boolean preEnroll(KeycloakSession session, RealmModel realm, UserModel user, EnrollmentPolicy policy) {
+        LoginFacts facts = offlineFacts(session, realm, user, policy);
+        if (SkipRule.firstSkipping(facts) != null || facts.meetsMinimum()) {
+            return false;
         }
-        if (!config.excludeRoles.isEmpty()) {
-            boolean hasExcludedRole = config.excludeRoles.stream()
-                    .map(realm::getRole)
-                    .filter(Objects::nonNull)
-                    .anyMatch(user::hasRole);
-            if (hasExcludedRole) {
-                return true;
+        long configured = facts.credentials().configured();
+        int fromList = Long.bitCount(configured & catalog.mask(policy.enabledMfaTypes()));
+        int missing = Math.max(1, Math.max(policy.minRequiredMfaMethods() - Long.bitCount(configured),
+                policy.minRequiredFromList() - fromList));
+        long candidates = facts.credentials().enabled() & ~configured & availability.availableMask(realm)
+                & shownMask(policy, configured);
+        long methods = 0L;
+        // Policy order, so the methods listed first are the ones attached.
+        for (String id : policy.enabledMfaTypes()) {
+            long bit = catalog.bit(id);
+            if (missing == 0) {
+                break;
+            }
+            if ((candidates & bit) == 0L) {
+                continue;
             }
+            candidates &= ~bit;
+            methods |= bit;
+            missing--;
         }
+        return attachForNextLogin(realm, user, methods);
+    }
 
-        boolean isIdpLogin = context.getAuthenticationSession().getAuthNote("BROKER_SESSION_ID") != null;
-        if (config.enforceForIdpUsers == EnforceForIdpUsers.NEVER && isIdpLogin) {
-            return true;
-        }
-        if (config.enforceForIdpUsers == EnforceForIdpUsers.ONLY && !isIdpLogin) {
-            return true;
+    /**
+     * Attaches enrollment in the given methods to the user, so it runs on the next login: the
+     * {@link MfaEnrollmentRequiredAction} when the realm has it enabled, where the user picks the methods, or else
+     * the methods' own required actions. Actions the user already has are not added again. Returns whether any
+     * action was added.
+     */
+    private boolean attachForNextLogin(RealmModel realm, UserModel user, long methods) {
+        if (methods == 0L) {
+            return false;
         }
-
-        if (config.enforceOnFirstLoginOnly) {
-            String alreadyChecked = user.getFirstAttribute(ATTR_FIRST_LOGIN_COMPLETED);
-            if (Boolean.parseBoolean(alreadyChecked)) {
-                return true;
+        Set<String> pending = user.getRequiredActionsStream().collect(Collectors.toSet());
+        if (MfaEnrollmentRequiredAction.isEnabled(realm)) {
+            if (pending.contains(MfaEnrollmentRequiredAction.PROVIDER_ID)) {
+                return false;
             }
+            user.addRequiredAction(MfaEnrollmentRequiredAction.PROVIDER_ID);
+            return true;
         }
-
-        if (!config.skipIfAttributeEquals.isEmpty()) {
-            for (Map.Entry<String, String> entry : config.skipIfAttributeEquals.entrySet()) {
-                String value = user.getFirstAttribute(entry.getKey());
-                if (value != null && value.equals(entry.getValue())) {
-                    return true;
+        boolean added = false;
+        for (long rest = methods; rest != 0L; rest &= rest - 1) {
+            for (String action : catalog.method(Long.numberOfTrailingZeros(rest)).requiredActions()) {
+                if (pending.add(action)) {
+                    user.addRequiredAction(action);
+                    added = true;
                 }
             }
         }
+        return added;
+    }
 
-        return false;
+    @Override
+    public boolean requiresUser() {
+        return true;
     }
 
-    private boolean shouldSkipByUserAttributes(Config config, AuthenticationFlowContext context, boolean meetsMinimum) {
-        UserModel user = context.getUser();
-        if (!config.allowUserOptOut) {
-            return false;
-        }
-        String optOut = user.getFirstAttribute(config.optOutAttributeName);
-        if (!Boolean.parseBoolean(optOut)) {
-            return false;
-        }
-        if (config.optOutRespectedWhenNotSufficient) {
-            return true;
-        }
-        return meetsMinimum;
+    @Override
+    public boolean configuredFor(KeycloakSession session, RealmModel realm, UserModel user) {
+        return true;
     }
 
-    private boolean shouldSkipByReminder(Config config, UserModel user) {
-        if (config.remindEveryDays <= 0) {
-            return false;
-        }
-        long now = System.currentTimeMillis();
-        String lastPrompt = user.getFirstAttribute(ATTR_LAST_PROMPT);
-        if (lastPrompt == null) {
-            return false;
-        }
-        try {
-            long last = Long.parseLong(lastPrompt);
-            long threshold = now - Duration.ofDays(config.remindEveryDays).toMillis();
-            return last > threshold;
-        } catch (NumberFormatException ignored) {
-            return false;
-        }
+    @Override
+    public void setRequiredActions(KeycloakSession session, RealmModel realm, UserModel user) {
+        // No-op: required actions are attached dynamically during the flow.
     }
 
-    private boolean shouldSkipByRollout(Config config, UserModel user, boolean meetsMinimum) {
-        if (config.rolloutPercentage >= 100) {
-            return false;
-        }
-        if (config.bypassRolloutIfNotSufficient && !meetsMinimum) {
-            return false;
-        }
-        int bucket = switch (config.rolloutStrategy) {
-            case HASH_USER_ID -> Math.abs(user.getId().hashCode()) % 100;
-            case RANDOM -> ThreadLocalRandom.current().nextInt(100);
-        };
-        return bucket >= config.rolloutPercentage;
+    @Override
+    public void close() {
     }
 
-    private boolean meetsMinimum(Config config, List<MfaMethod> enabledMethods, Set<String> configured) {
-        long overall = configured.size();
-        if (overall < config.minRequiredMfaMethods) {
-            return false;
-        }
-        if (config.minRequiredFromList <= 0) {
-            return true;
-        }
-        Set<String> enabledIds = new HashSet<>();
-        for (MfaMethod method : enabledMethods) {
-            enabledIds.add(method.id());
-        }
-        long fromList = configured.stream().filter(enabledIds::contains).count();
-        return fromList >= config.minRequiredFromList;
+    private LoginFacts offlineFacts(KeycloakSession session, RealmModel realm, UserModel user,
+            EnrollmentPolicy policy) {
+        return new LoginFacts(session, realm, user, policy, stateStore, roleIndex, groupIndex,
+                () -> compliance.resolve(realm, user, policy));
     }
 
-    private Set<String> resolveConfiguredMethods(KeycloakSession session, RealmModel realm, UserModel user) {
-        Set<String> supportedTypes = Set.of(
-                OTPCredentialModel.TYPE,
-                WebAuthnCredentialModel.TYPE_TWOFACTOR,
-                RecoveryAuthnCodesCredentialModel.TYPE);
-        return user.credentialManager()
-                .getStoredCredentialsStream()
-                .map(CredentialModel::getType)
-                .filter(supportedTypes::contains)
-                .collect(Collectors.toSet());
+    /**
+     * Returns the credentials the form was rendered for, as saved in the authentication session, or resolves
+     * them again when the snapshot is missing or stale.
+     */
+    private LoginFacts.Credentials submittedCredentials(KeycloakSession session, RealmModel realm, UserModel user,
+            AuthenticationSessionModel authSession, EnrollmentPolicy policy, RealmMeters meters) {
+        EnrollmentSnapshot snapshot = EnrollmentSnapshot.load(authSession, policy, user);
+        if (snapshot != null) {
+            return new LoginFacts.Credentials(catalog.mask(snapshot.configured()),
+                    catalog.mask(snapshot.enabled()), snapshot.meetsMinimum());
+        }
+        long resolving = System.nanoTime();
+        LoginFacts.Credentials credentials = compliance.resolve(realm, user, policy);
+        meters.record(Step.CREDENTIAL_RESOLUTION, System.nanoTime() - resolving);
+        return credentials;
     }
 
-    private List<MfaMethod> resolveEnabledMethods(Config config, RealmModel realm) {
-        List<MfaMethod> all = defaultMethods();
-        Map<String, MfaMethod> byId = new HashMap<>();
-        for (MfaMethod method : all) {
-            byId.put(method.id(), method);
-        }
-        List<MfaMethod> enabled = new ArrayList<>();
-        for (String id : config.enabledMfaTypes) {
-            MfaMethod method = byId.get(id);
-            if (method != null) {
-                if (!config.visibleOnlyIfSupported || method.isAvailable(realm)) {
-                    enabled.add(method);
-                }
-            }
-        }
-        return enabled;
+    private void saveSnapshot(AuthenticationSessionModel authSession, EnrollmentPolicy policy, UserModel user,
+            LoginFacts.Credentials credentials) {
+        EnrollmentSnapshot.save(authSession, policy, user, credentials.meetsMinimum(),
+                Set.copyOf(catalog.ids(credentials.configured())), catalog.ids(credentials.enabled()));
     }
 
-    private List<MfaMethod> defaultMethods() {
-        List<MfaMethod> methods = new ArrayList<>();
-        methods.add(new MfaMethod(OTPCredentialModel.TYPE, "Authenticator app (TOTP)",
-                "Use an authenticator application to generate one-time codes.", OTPCredentialModel.TYPE,
-                List.of(UserModel.RequiredAction.CONFIGURE_TOTP.name())));
-        methods.add(new MfaMethod(WebAuthnCredentialModel.TYPE_TWOFACTOR, "Security key / WebAuthn",
-                "Register a WebAuthn security key.", WebAuthnCredentialModel.TYPE_TWOFACTOR,
-                List.of(WebAuthnRegisterFactory.PROVIDER_ID)));
-        methods.add(new MfaMethod(RecoveryAuthnCodesCredentialModel.TYPE, "Recovery codes",
-                "Generate one-time recovery codes.", RecoveryAuthnCodesCredentialModel.TYPE,
-                List.of(UserModel.RequiredAction.CONFIGURE_RECOVERY_AUTHN_CODES.name())));
-        return methods;
+    /**
+     * Decides a user no rule skipped: {@link Outcome#COMPLIANT}, {@link Outcome#NO_AVAILABLE_METHODS} or
+     * {@link Outcome#FORM_RENDERED}.
+     */
+    private Outcome decide(EnrollmentPolicy policy, RealmModel realm, LoginFacts.Credentials credentials) {
+        boolean meetsMinimum = credentials.meetsMinimum();
+        if (meetsMinimum && !policy.offerConfigureAdditionalMethods()) {
+            return Outcome.COMPLIANT;
+        }
+        long unconfigured = credentials.enabled() & ~credentials.configured();
+        if (policy.visibleOnlyIfSupported()) {
+            unconfigured &= availability.availableMask(realm);
+        }
+        boolean hasUnconfigured = unconfigured != 0L;
+        if (meetsMinimum && (!hasUnconfigured || policy.postAuthPromptMode() == PostAuthPromptMode.NONE)) {
+            return Outcome.COMPLIANT;
+        }
+        return hasUnconfigured ? Outcome.FORM_RENDERED : Outcome.NO_AVAILABLE_METHODS;
     }
 
-    private ValidationResult validateSelection(Config config,
-            List<MfaMethod> enabledMethods,
-            Set<String> configured,
-            List<String> requested,
+    /**
+     * Checks the selected methods against the policy's selection mode; returns the message to show, or
+     * {@code null} when the selection is acceptable. Both masks only hold enabled, unconfigured methods.
+     */
+    private static String validateSelection(EnrollmentPolicy policy, long selectable, long selected,
             boolean meetsMinimum) {
-        Set<String> enabledIds = new HashSet<>();
-        for (MfaMethod method : enabledMethods) {
-            enabledIds.add(method.id());
-        }
-        List<String> selected = requested.stream()
-                .filter(enabledIds::contains)
-                .filter(id -> !configured.contains(id))
-                .distinct()
-                .toList();
-
-        if (selected.isEmpty()) {
-            if (meetsMinimum && config.allowNoSelectionIfAlreadySufficient) {
-                return ValidationResult.valid(selected);
+        if (selected == 0L) {
+            if (meetsMinimum && policy.allowNoSelectionIfAlreadySufficient()) {
+                return null;
             }
-            return ValidationResult.invalid("Select at least one method.");
+            return "Select at least one method.";
         }
 
-        SelectionMode mode = config.selectionMode;
-        if (mode == SelectionMode.EXACTLY_ONE && selected.size() != 1) {
-            return ValidationResult.invalid("Select exactly one method.");
+        int count = Long.bitCount(selected);
+        SelectionMode mode = policy.selectionMode();
+        if (mode == SelectionMode.EXACTLY_ONE && count != 1) {
+            return "Select exactly one method.";
         }
-        if (mode == SelectionMode.ALL_UNCONFIGURED) {
-            long unconfiguredCount = enabledIds.stream().filter(id -> !configured.contains(id)).count();
-            if (selected.size() != unconfiguredCount) {
-                return ValidationResult.invalid("You must select all unconfigured methods.");
-            }
+        if (mode == SelectionMode.ALL_UNCONFIGURED && selected != selectable) {
+            return "You must select all unconfigured methods.";
         }
-        if (mode == SelectionMode.UP_TO_MAX && config.maxNewMethodsPerLogin > 0
-                && selected.size() > config.maxNewMethodsPerLogin) {
-            return ValidationResult.invalid("Select no more than " + config.maxNewMethodsPerLogin + " methods.");
+        if (mode == SelectionMode.UP_TO_MAX && policy.maxNewMethodsPerLogin() > 0
+                && count > policy.maxNewMethodsPerLogin()) {
+            return "Select no more than " + policy.maxNewMethodsPerLogin() + " methods.";
         }
-        return ValidationResult.valid(selected);
+        return null;
     }
 
-    private void registerRequiredActions(AuthenticationFlowContext context, MfaMethod method, boolean nextLogin) {
-        for (String action : method.requiredActions()) {
-            if (nextLogin) {
-                context.getUser().addRequiredAction(action);
-            } else {
-                context.getAuthenticationSession().addRequiredAction(action);
-            }
-        }
-    }
-
-    private Response renderForm(AuthenticationFlowContext context,
-            Config config,
-            List<MfaMethod> enabledMethods,
-            Set<String> configuredMethods,
-            String message,
-            boolean meetsMinimum) {
-        String title = meetsMinimum ? "Configure additional sign-in methods" : "Set up more sign-in protection";
-        String description = meetsMinimum
-                ? "You can add more MFA methods now for better recovery and flexibility."
-                : "Your account needs additional multi-factor methods before continuing.";
-
-        List<MethodView> methodViews = enabledMethods.stream()
-                .filter(method -> shouldShowMethod(method, config, configuredMethods))
-                .map(method -> createMethodView(context, method, configuredMethods))
-                .toList();
-
-        boolean hasSelectable = methodViews.stream()
-                .anyMatch(view -> !view.isConfigured() && view.isAvailable());
-
-        return context.form()
-                .setAttribute("title", title)
-                .setAttribute("description", description)
+    private Response renderForm(LoginFormsProvider form,
+            KeycloakSession session,
+            RealmModel realm,
+            UserModel user,
+            EnrollmentPolicy policy,
+            LoginFacts.Credentials credentials,
+            String message) {
+        long configured = credentials.configured();
+        long listed = credentials.enabled() & shownMask(policy, configured);
+        EnrollmentFormCache.Model model = forms.resolve(session, realm, user, policy, listed, configured,
+                availability.availableMask(realm), credentials.meetsMinimum());
+
+        return form
+                .setAttribute("title", model.title())
+                .setAttribute("description", model.description())
                 .setAttribute("message", message)
-                .setAttribute("mfaMethods", methodViews)
-                .setAttribute("allowOptOut", config.allowUserOptOut)
-                .setAttribute("optOutLabel", "Don't ask again")
-                .setAttribute("hasSelectable", hasSelectable)
-                .setAttribute("meetsMinimum", meetsMinimum)
+                .setAttribute("mfaMethods", model.methods())
+                .setAttribute("allowOptOut", policy.allowUserOptOut())
+                .setAttribute("optOutLabel", model.optOutLabel())
+                .setAttribute("hasSelectable", model.hasSelectable())
+                .setAttribute("meetsMinimum", credentials.meetsMinimum())
                 .createForm("mfa-enrollment.ftl");
     }
 
-    private boolean shouldShowMethod(MfaMethod method, Config config, Set<String> configuredMethods) {
-        if (config.hideAlreadyConfiguredMethods && configuredMethods.contains(method.id())) {
-            return false;
+    /**
+     * Returns the methods the form may list for a user with the given configured methods: configured ones are
+     * hidden when the policy says so, and recovery codes are only offered next to TOTP.
+     */
+    private long shownMask(EnrollmentPolicy policy, long configured) {
+        long shown = ~0L;
+        if (policy.hideAlreadyConfiguredMethods()) {
+            shown &= ~configured;
         }
-        if (RecoveryAuthnCodesCredentialModel.TYPE.equals(method.id())) {
-            return configuredMethods.contains(OTPCredentialModel.TYPE);
+        if ((configured & otpBit) == 0L) {
+            shown &= ~recoveryCodesBit;
         }
-        return true;
-    }
-
-    private MethodView createMethodView(AuthenticationFlowContext context, MfaMethod method,
-            Set<String> configuredMethods) {
-        boolean configured = configuredMethods.contains(method.id());
-        boolean available = method.isAvailable(context.getRealm());
-        return new MethodView(method.id(), method.label(), method.description(), configured, available);
+        return shown;
     }
 
     private Response renderError(AuthenticationFlowContext context, String message) {
@@ -465,13 +480,26 @@ public class MfaEnrollmentAuthenticator implements Authenticator {
                 .build();
     }
 
-    private void recordPrompt(UserModel user) {
-        user.setSingleAttribute(ATTR_LAST_PROMPT, String.valueOf(System.currentTimeMillis()));
+    /**
+     * Counts the outcome of {@code authenticate()} and records the time spent deciding it, excluding the
+     * separately timed credential resolution.
+     */
+    private static void decided(RealmMeters meters, Outcome outcome, long started, LoginFacts facts) {
+        if (facts.credentialsResolved()) {
+            meters.record(Step.CREDENTIAL_RESOLUTION, facts.resolutionNanos());
+        }
+        meters.record(Step.POLICY_EVALUATION, System.nanoTime() - started - facts.resolutionNanos());
+        meters.count(outcome);
+    }
+
+    private void recordPrompt(KeycloakSession session, RealmModel realm, UserModel user) {
+        stateStore.set(session, realm, user, ATTR_LAST_PROMPT, String.valueOf(System.currentTimeMillis()));
     }
 
-    private void markFirstLoginComplete(Config config, UserModel user) {
-        if (config.enforceOnFirstLoginOnly) {
-            user.setSingleAttribute(ATTR_FIRST_LOGIN_COMPLETED, "true");
+    private void markFirstLoginComplete(EnrollmentPolicy policy, AuthenticationFlowContext context) {
+        if (policy.enforceOnFirstLoginOnly()) {
+            stateStore.set(context.getSession(), context.getRealm(), context.getUser(), ATTR_FIRST_LOGIN_COMPLETED,
+                    "true");
         }
     }
 
@@ -482,35 +510,6 @@ public class MfaEnrollmentAuthenticator implements Authenticator {
         return input.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
     }
 
-    private enum SelectionMode {
-        AT_LEAST_ONE, EXACTLY_ONE, ALL_UNCONFIGURED, UP_TO_MAX
-    }
-
-    private enum EnforceForIdpUsers {
-        ALWAYS, NEVER, ONLY
-    }
-
-    private enum RolloutStrategy {
-        HASH_USER_ID, RANDOM
-    }
-
-    private enum PostAuthPromptMode {
-        SAME_LOGIN, NEXT_LOGIN_REQUIRED_ACTION, NONE
-    }
-
-    private record MfaMethod(String id, String label, String description, String credentialType,
-            List<String> requiredActions) {
-        boolean isAvailable(RealmModel realm) {
-            for (String action : requiredActions) {
-                if (realm.getRequiredActionProviderByAlias(action) == null) {
-                    return false;
-                }
-            }
-            return true;
-        }
-
-    }
-
     public static class MethodView {
         private final String id;
         private final String label;
@@ -546,134 +545,4 @@ public class MfaEnrollmentAuthenticator implements Authenticator {
             return available;
         }
     }
-
-    private record Config(
-            int minRequiredMfaMethods,
-            int minRequiredFromList,
-            int maxAllowedMfaMethods,
-            boolean enforceOnFirstLoginOnly,
-            EnforceForIdpUsers enforceForIdpUsers,
-            List<String> enabledMfaTypes,
-            boolean visibleOnlyIfSupported,
-            boolean hideAlreadyConfiguredMethods,
-            SelectionMode selectionMode,
-            int maxNewMethodsPerLogin,
-            boolean failIfSelectionInsufficient,
-            boolean allowNoSelectionIfAlreadySufficient,
-            boolean offerConfigureAdditionalMethods,
-            PostAuthPromptMode postAuthPromptMode,
-            boolean allowUserOptOut,
-            boolean optOutRespectedWhenNotSufficient,
-            String optOutAttributeName,
-            int rolloutPercentage,
-            RolloutStrategy rolloutStrategy,
-            boolean bypassRolloutIfNotSufficient,
-            List<String> onlyForRoles,
-            List<String> excludeRoles,
-            List<String> onlyForClients,
-            List<String> excludeClients,
-            int remindEveryDays,
-            Map<String, String> skipIfAttributeEquals) {
-        static Config fromContext(AuthenticationFlowContext context) {
-            AuthenticatorConfigModel model = context.getAuthenticatorConfig();
-            Map<String, String> cfg = model != null ? model.getConfig() : Collections.emptyMap();
-            return new Config(
-                    parseInt(cfg.get("min_required_mfa_methods"), DEFAULT_MIN_REQUIRED),
-                    parseInt(cfg.get("min_required_from_list"), DEFAULT_MIN_REQUIRED),
-                    parseInt(cfg.get("max_allowed_mfa_methods"), 0),
-                    parseBoolean(cfg.get("enforce_on_first_login_only"), false),
-                    EnforceForIdpUsers
-                            .valueOf(parseEnum(cfg.get("enforce_for_idp_users"), "always", "always").toUpperCase()),
-                    parseList(cfg.get("enabled_mfa_types"), DEFAULT_ENABLED_TYPES),
-                    parseBoolean(cfg.get("visible_only_if_supported"), true),
-                    parseBoolean(cfg.get("hide_already_configured_methods"), false),
-                    SelectionMode.valueOf(
-                            parseEnum(cfg.get("selection_mode"), "at_least_one", "at_least_one").toUpperCase()),
-                    parseInt(cfg.get("max_new_methods_per_login"), 0),
-                    parseBoolean(cfg.get("fail_if_selection_insufficient"), true),
-                    parseBoolean(cfg.get("allow_no_selection_if_already_sufficient"), true),
-                    parseBoolean(cfg.get("offer_configure_additional_methods"), true),
-                    PostAuthPromptMode.valueOf(
-                            parseEnum(cfg.get("post_auth_prompt_mode"), "same_login", "same_login").toUpperCase()),
-                    parseBoolean(cfg.get("allow_user_opt_out"), true),
-                    parseBoolean(cfg.get("opt_out_respected_when_not_sufficient"), false),
-                    cfg.getOrDefault("opt_out_attribute_name", ATTR_SKIP_FUTURE_PROMPTS),
-                    parseInt(cfg.get("rollout_percentage"), 100),
-                    RolloutStrategy.valueOf(
-                            parseEnum(cfg.get("rollout_strategy"), "hash_user_id", "hash_user_id").toUpperCase()),
-                    parseBoolean(cfg.get("bypass_rollout_if_not_sufficient"), true),
-                    parseList(cfg.get("only_for_roles"), List.of()),
-                    parseList(cfg.get("exclude_roles"), List.of()),
-                    parseList(cfg.get("only_for_clients"), List.of()),
-                    parseList(cfg.get("exclude_clients"), List.of()),
-                    parseInt(cfg.get("remind_every_days"), 0),
-                    parseKeyValueList(cfg.get("skip_if_attribute_equals")));
-        }
-
-        private static boolean parseBoolean(String value, boolean defaultValue) {
-            if (value == null) {
-                return defaultValue;
-            }
-            return Boolean.parseBoolean(value);
-        }
-
-        private static int parseInt(String value, int defaultValue) {
-            try {
-                return value == null ? defaultValue : Integer.parseInt(value);
-            } catch (NumberFormatException ex) {
-                return defaultValue;
-            }
-        }
-
-        private static List<String> parseList(String raw, List<String> defaultValue) {
-            if (raw == null || raw.isBlank()) {
-                return defaultValue;
-            }
-            String[] split = raw.split("[,\\n]");
-            List<String> result = new ArrayList<>();
-            for (String part : split) {
-                String trimmed = part.trim();
-                if (!trimmed.isEmpty()) {
-                    result.add(trimmed);
-                }
-            }
-            return result.isEmpty() ? defaultValue : result;
-        }
-
-        private static Map<String, String> parseKeyValueList(String raw) {
-            Map<String, String> map = new HashMap<>();
-            if (raw == null || raw.isBlank()) {
-                return map;
-            }
-            String[] split = raw.split("[,\\n]");
-            for (String entry : split) {
-                String[] kv = entry.split("=", 2);
-                if (kv.length == 2) {
-                    map.put(kv[0].trim(), kv[1].trim());
-                }
-            }
-            return map;
-        }
-
-        private static String parseEnum(String raw, String defaultValue, String fallback) {
-            if (raw == null) {
-                return defaultValue;
-            }
-            String normalized = raw.trim().toLowerCase();
-            if (normalized.isEmpty()) {
-                return fallback;
-            }
-            return normalized;
-        }
-    }
-
-    private record ValidationResult(boolean valid, List<String> acceptedMethods, String message) {
-        static ValidationResult valid(List<String> acceptedMethods) {
-            return new ValidationResult(true, acceptedMethods, null);
-        }
-
-        static ValidationResult invalid(String message) {
-            return new ValidationResult(false, List.of(), message);
-        }
-    }
 }
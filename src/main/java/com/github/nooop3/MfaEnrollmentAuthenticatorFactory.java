@@ -1,5 +1,6 @@
 package com.github.nooop3;
 
+import io.micrometer.core.instrument.Metrics;
 import org.keycloak.Config;
 import org.keycloak.authentication.Authenticator;
 import org.keycloak.authentication.AuthenticatorFactory;
@@ -7,6 +8,8 @@ import org.keycloak.models.AuthenticationExecutionModel;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
+import org.keycloak.provider.ProviderEventListener;
 import org.keycloak.models.credential.OTPCredentialModel;
 import org.keycloak.models.credential.RecoveryAuthnCodesCredentialModel;
 import org.keycloak.models.credential.WebAuthnCredentialModel;
@@ -17,7 +20,15 @@ import java.util.List;
 public class MfaEnrollmentAuthenticatorFactory implements AuthenticatorFactory {
 
         public static final String PROVIDER_ID = "mfa-enrollment-orchestrator";
-        private static final MfaEnrollmentAuthenticator SINGLETON = new MfaEnrollmentAuthenticator();
+        /** The execution config options, shared with the {@link MfaEnrollmentRequiredActionFactory}. */
+        static final List<ProviderConfigProperty> CONFIG_PROPERTIES = configProperties();
+        private final EnrollmentPolicyCache policies = new EnrollmentPolicyCache();
+        private final RoleTargetingIndex roleIndex = new RoleTargetingIndex();
+        private final GroupTargetingIndex groupIndex = new GroupTargetingIndex();
+        private EnrollmentStateStore stateStore = new UserAttributeStateStore();
+        private boolean metricsHistograms;
+        private MfaEnrollmentAuthenticator authenticator = new MfaEnrollmentAuthenticator(policies, roleIndex,
+                        MfaMethodCatalog.builtIn());
 
         @Override
         public String getId() {
@@ -60,6 +71,10 @@ public class MfaEnrollmentAuthenticatorFactory implements AuthenticatorFactory {
 
         @Override
         public List<ProviderConfigProperty> getConfigProperties() {
+                return CONFIG_PROPERTIES;
+        }
+
+        private static List<ProviderConfigProperty> configProperties() {
                 List<ProviderConfigProperty> props = new ArrayList<>();
 
                 // Triggering conditions
@@ -121,6 +136,8 @@ public class MfaEnrollmentAuthenticatorFactory implements AuthenticatorFactory {
                 props.add(list("rollout_strategy", "Rollout Strategy", "hash_user_id",
                                 List.of("hash_user_id", "random"),
                                 "Stable hash by user or random per login."));
+                props.add(string("rollout_salt", "Rollout Salt", null,
+                                "Salt for the user id hash; a new value per rollout draws an independent cohort."));
                 props.add(bool("bypass_rollout_if_not_sufficient", "Bypass Rollout If Not Sufficient", true,
                                 "Always prompt users below the minimum regardless of rollout percentage."));
 
@@ -129,36 +146,85 @@ public class MfaEnrollmentAuthenticatorFactory implements AuthenticatorFactory {
                                 "Limit prompting to users with any of these realm roles."));
                 props.add(multivalued("exclude_roles", "Exclude Roles", null,
                                 "Skip prompting for users with any of these realm roles."));
+                props.add(multivalued("only_for_groups", "Only For Groups", null,
+                                "Limit prompting to members of these groups (e.g. /tenants/acme) or their subgroups."));
+                props.add(multivalued("exclude_groups", "Exclude Groups", null,
+                                "Skip prompting for members of these groups (paths) or any of their subgroups."));
                 props.add(multivalued("only_for_clients", "Only For Clients", null,
-                                "Limit prompting to these client IDs/aliases."));
+                                "Limit prompting to these client IDs/aliases; '*' matches any characters."));
                 props.add(multivalued("exclude_clients", "Exclude Clients", null,
-                                "Skip prompting for these client IDs/aliases."));
+                                "Skip prompting for these client IDs/aliases; '*' matches any characters."));
                 props.add(string("remind_every_days", "Remind Every N Days", null,
                                 "Minimum days between prompts to the same user."));
                 props.add(multivalued("skip_if_attribute_equals", "Skip If Attribute Equals", null,
                                 "Key=value pairs; if any user attribute matches, skip prompting."));
+                props.add(multivalued("skip_if_attribute", "Skip If Attribute Condition", null,
+                                "Conditions such as 'employmentEnd within 7d' or 'department in (it, sec)',"
+                                + " joined with &&; if any condition holds, skip prompting."));
 
-                return props;
+                return List.copyOf(props);
         }
 
         @Override
         public Authenticator create(KeycloakSession session) {
-                return SINGLETON;
+                return authenticator;
         }
 
         @Override
         public void init(Config.Scope config) {
+                stateStore = EnrollmentStateStore.create(config);
+                metricsHistograms = config.getBoolean(EnrollmentMetrics.CONFIG_HISTOGRAMS, false);
+        }
+
+        @Override
+        public List<ProviderConfigProperty> getConfigMetadata() {
+                return ProviderConfigurationBuilder.create()
+                                .property()
+                                .name(EnrollmentStateStore.CONFIG_STATE_STORE)
+                                .type(ProviderConfigProperty.LIST_TYPE)
+                                .options(EnrollmentStateStore.USER_ATTRIBUTE, EnrollmentStateStore.JPA,
+                                                EnrollmentStateStore.INFINISPAN)
+                                .defaultValue(EnrollmentStateStore.USER_ATTRIBUTE)
+                                .helpText("Where prompt history, first-login and opt-out state is kept.")
+                                .add()
+                                .property()
+                                .name(EnrollmentStateStore.CONFIG_STATE_CACHE)
+                                .type(ProviderConfigProperty.STRING_TYPE)
+                                .defaultValue(InfinispanEnrollmentStateStore.DEFAULT_CACHE_NAME)
+                                .helpText("Infinispan cache used by the infinispan state store.")
+                                .add()
+                                .property()
+                                .name(EnrollmentMetrics.CONFIG_HISTOGRAMS)
+                                .type(ProviderConfigProperty.BOOLEAN_TYPE)
+                                .defaultValue(false)
+                                .helpText("Publish percentile histograms for the enrollment step timers.")
+                                .add()
+                                .build();
         }
 
         @Override
         public void postInit(KeycloakSessionFactory factory) {
+                MfaMethodCatalog catalog = MfaMethodCatalog.load(factory);
+                MethodAvailabilityCache availability = new MethodAvailabilityCache(catalog);
+                factory.register(roleIndex);
+                factory.register(groupIndex);
+                factory.register(availability);
+                EnrollmentFormCache forms = new EnrollmentFormCache(catalog);
+                factory.register(forms);
+                if (stateStore instanceof ProviderEventListener listener) {
+                        factory.register(listener);
+                }
+                EnrollmentMetrics metrics = new EnrollmentMetrics(Metrics.globalRegistry, metricsHistograms);
+                factory.register(metrics);
+                authenticator = new MfaEnrollmentAuthenticator(policies, roleIndex, groupIndex, catalog,
+                                availability, forms, stateStore, metrics);
         }
 
         @Override
         public void close() {
         }
 
-        private ProviderConfigProperty string(String name, String label, String defaultValue, String helpText) {
+        private static ProviderConfigProperty string(String name, String label, String defaultValue, String helpText) {
                 ProviderConfigProperty prop = new ProviderConfigProperty();
                 prop.setName(name);
                 prop.setLabel(label);
@@ -168,7 +234,7 @@ public class MfaEnrollmentAuthenticatorFactory implements AuthenticatorFactory {
                 return prop;
         }
 
-        private ProviderConfigProperty bool(String name, String label, boolean defaultValue, String helpText) {
+        private static ProviderConfigProperty bool(String name, String label, boolean defaultValue, String helpText) {
                 ProviderConfigProperty prop = new ProviderConfigProperty();
                 prop.setName(name);
                 prop.setLabel(label);
@@ -178,7 +244,7 @@ public class MfaEnrollmentAuthenticatorFactory implements AuthenticatorFactory {
                 return prop;
         }
 
-        private ProviderConfigProperty list(String name, String label, String defaultValue, List<String> options,
+        private static ProviderConfigProperty list(String name, String label, String defaultValue, List<String> options,
                         String helpText) {
                 ProviderConfigProperty prop = new ProviderConfigProperty();
                 prop.setName(name);
@@ -190,7 +256,8 @@ public class MfaEnrollmentAuthenticatorFactory implements AuthenticatorFactory {
                 return prop;
         }
 
-        private ProviderConfigProperty multivalued(String name, String label, String defaultValue, String helpText) {
+        private static ProviderConfigProperty multivalued(String name, String label, String defaultValue,
+                        String helpText) {
                 ProviderConfigProperty prop = new ProviderConfigProperty();
                 prop.setName(name);
                 prop.setLabel(label);
@@ -0,0 +1,87 @@
+package com.github.nooop3;
+
+import org.keycloak.Config;
+import org.keycloak.events.Event;
+import org.keycloak.events.EventListenerProvider;
+import org.keycloak.events.EventListenerProviderFactory;
+import org.keycloak.events.admin.AdminEvent;
+import org.keycloak.events.admin.ResourceType;
+import org.keycloak.models.AbstractKeycloakTransaction;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+
+import java.util.Set;
+
+/**
+ * Global admin event listener that turns admin changes relevant to the orchestrator's caches into
+ * {@link AdminResourceChangedEvent}s, published once the admin transaction has committed.
+ */
+public class MfaEnrollmentCacheEventListenerFactory implements EventListenerProviderFactory {
+
+    public static final String PROVIDER_ID = "mfa-enrollment-cache";
+
+    static final Set<ResourceType> WATCHED_RESOURCES = Set.of(ResourceType.REQUIRED_ACTION, ResourceType.REALM);
+
+    @Override
+    public String getId() {
+        return PROVIDER_ID;
+    }
+
+    @Override
+    public boolean isGlobal() {
+        return true;
+    }
+
+    @Override
+    public EventListenerProvider create(KeycloakSession session) {
+        return new Listener(session);
+    }
+
+    @Override
+    public void init(Config.Scope config) {
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static final class Listener implements EventListenerProvider {
+        private final KeycloakSession session;
+
+        private Listener(KeycloakSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public void onEvent(Event event) {
+        }
+
+        @Override
+        public void onEvent(AdminEvent event, boolean includeRepresentation) {
+            if (event.getError() != null || !WATCHED_RESOURCES.contains(event.getResourceType())) {
+                return;
+            }
+            AdminResourceChangedEvent changed = new AdminResourceChangedEvent(event.getRealmId(),
+                    event.getResourceType(), event.getOperationType());
+            KeycloakSessionFactory factory = session.getKeycloakSessionFactory();
+            session.getTransactionManager().enlistAfterCompletion(new AbstractKeycloakTransaction() {
+                @Override
+                protected void commitImpl() {
+                    factory.publish(changed);
+                }
+
+                @Override
+                protected void rollbackImpl() {
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
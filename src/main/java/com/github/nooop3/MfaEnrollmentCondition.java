@@ -0,0 +1,66 @@
+package com.github.nooop3;
+
+import org.keycloak.authentication.AuthenticationFlowContext;
+import org.keycloak.authentication.authenticators.conditional.ConditionalAuthenticator;
+import org.keycloak.models.AuthenticatorConfigModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+
+import java.util.Map;
+
+/**
+ * Condition that holds when the user does not meet the configured MFA minimums ({@code min_required_mfa_methods},
+ * {@code min_required_from_list} over {@code enabled_mfa_types}), evaluated with the orchestrator's own rules.
+ * <p>
+ * Placed first in a conditional subflow around the orchestrator (or any other MFA step), it lets Keycloak skip
+ * the whole subflow for compliant users after one credential type lookup.
+ */
+public class MfaEnrollmentCondition implements ConditionalAuthenticator {
+
+    static final String CONF_NEGATE = "negate";
+
+    private final EnrollmentPolicyCache policies;
+    private final MfaCompliance compliance;
+
+    MfaEnrollmentCondition(EnrollmentPolicyCache policies, MfaCompliance compliance) {
+        this.policies = policies;
+        this.compliance = compliance;
+    }
+
+    @Override
+    public boolean matchCondition(AuthenticationFlowContext context) {
+        UserModel user = context.getUser();
+        if (user == null) {
+            return false;
+        }
+        AuthenticatorConfigModel config = context.getAuthenticatorConfig();
+        EnrollmentPolicy policy = policies.resolve(config);
+        boolean lacksMfa = !compliance.resolve(context.getRealm(), user, policy)
+                .meetsMinimum();
+        return lacksMfa != negate(config);
+    }
+
+    @Override
+    public void action(AuthenticationFlowContext context) {
+        // Conditions never challenge.
+    }
+
+    @Override
+    public boolean requiresUser() {
+        return true;
+    }
+
+    @Override
+    public void setRequiredActions(KeycloakSession session, RealmModel realm, UserModel user) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static boolean negate(AuthenticatorConfigModel config) {
+        Map<String, String> cfg = config == null ? null : config.getConfig();
+        return cfg != null && Boolean.parseBoolean(cfg.get(CONF_NEGATE));
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.nooop3;
+
+import org.keycloak.Config;
+import org.keycloak.authentication.authenticators.conditional.ConditionalAuthenticator;
+import org.keycloak.authentication.authenticators.conditional.ConditionalAuthenticatorFactory;
+import org.keycloak.models.AuthenticationExecutionModel;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.credential.OTPCredentialModel;
+import org.keycloak.models.credential.RecoveryAuthnCodesCredentialModel;
+import org.keycloak.models.credential.WebAuthnCredentialModel;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
+
+import java.util.List;
+
+public class MfaEnrollmentConditionFactory implements ConditionalAuthenticatorFactory {
+
+    public static final String PROVIDER_ID = "conditional-user-lacks-mfa";
+
+    private final EnrollmentPolicyCache policies = new EnrollmentPolicyCache();
+    private MfaEnrollmentCondition condition = condition(MfaMethodCatalog.builtIn(),
+            new MethodAvailabilityCache(MfaMethodCatalog.builtIn()));
+
+    @Override
+    public String getId() {
+        return PROVIDER_ID;
+    }
+
+    @Override
+    public String getDisplayType() {
+        return "Condition - user lacks sufficient MFA";
+    }
+
+    @Override
+    public String getHelpText() {
+        return "Flow is executed only if the user has fewer MFA methods than the configured minimums.";
+    }
+
+    @Override
+    public boolean isConfigurable() {
+        return true;
+    }
+
+    @Override
+    public AuthenticationExecutionModel.Requirement[] getRequirementChoices() {
+        return new AuthenticationExecutionModel.Requirement[] {
+                AuthenticationExecutionModel.Requirement.REQUIRED,
+                AuthenticationExecutionModel.Requirement.DISABLED
+        };
+    }
+
+    @Override
+    public boolean isUserSetupAllowed() {
+        return false;
+    }
+
+    @Override
+    public List<ProviderConfigProperty> getConfigProperties() {
+        return ProviderConfigurationBuilder.create()
+                .property()
+                .name("min_required_mfa_methods")
+                .label("Min Required MFA Methods")
+                .type(ProviderConfigProperty.STRING_TYPE)
+                .defaultValue(String.valueOf(EnrollmentPolicy.DEFAULT_MIN_REQUIRED))
+                .helpText("Minimum number of distinct MFA methods a user must have configured overall.")
+                .add()
+                .property()
+                .name("min_required_from_list")
+                .label("Min Required From List")
+                .type(ProviderConfigProperty.STRING_TYPE)
+                .defaultValue(String.valueOf(EnrollmentPolicy.DEFAULT_MIN_REQUIRED))
+                .helpText("Minimum number of methods from the enabled list that the user must have.")
+                .add()
+                .property()
+                .name("enabled_mfa_types")
+                .label("Enabled MFA Types")
+                .type(ProviderConfigProperty.MULTIVALUED_STRING_TYPE)
+                .defaultValue(String.join(",", OTPCredentialModel.TYPE, WebAuthnCredentialModel.TYPE_TWOFACTOR,
+                        RecoveryAuthnCodesCredentialModel.TYPE))
+                .helpText("MFA types counted by min_required_from_list.")
+                .add()
+                .property()
+                .name("visible_only_if_supported")
+                .label("Count Only Supported Methods")
+                .type(ProviderConfigProperty.BOOLEAN_TYPE)
+                .defaultValue(true)
+                .helpText("Count enabled methods towards the list minimum only when their required action is"
+                        + " available, as the orchestrator does.")
+                .add()
+                .property()
+                .name(MfaEnrollmentCondition.CONF_NEGATE)
+                .label("Negate output")
+                .type(ProviderConfigProperty.BOOLEAN_TYPE)
+                .defaultValue(false)
+                .helpText("Apply the flow only to users who already meet the minimums.")
+                .add()
+                .build();
+    }
+
+    @Override
+    public ConditionalAuthenticator getSingleton() {
+        return condition;
+    }
+
+    @Override
+    public void init(Config.Scope config) {
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+        MfaMethodCatalog catalog = MfaMethodCatalog.load(factory);
+        MethodAvailabilityCache availability = new MethodAvailabilityCache(catalog);
+        factory.register(availability);
+        condition = condition(catalog, availability);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private MfaEnrollmentCondition condition(MfaMethodCatalog catalog, MethodAvailabilityCache availability) {
+        return new MfaEnrollmentCondition(policies, new MfaCompliance(catalog, availability));
+    }
+}
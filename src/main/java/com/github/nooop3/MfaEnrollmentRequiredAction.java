@@ -0,0 +1,50 @@
+package com.github.nooop3;
+
+import org.keycloak.authentication.RequiredActionContext;
+import org.keycloak.authentication.RequiredActionProvider;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RequiredActionProviderModel;
+
+/**
+ * The enrollment screen as a required action. It is never triggered by Keycloak itself: the pre-enrollment job
+ * attaches it to the users that need enrollment, so with the orchestrator left out of the browser flow,
+ * compliant users' logins do no enrollment work at all. The orchestrator attaches it too in its
+ * {@code next_login_required_action} prompt mode. Screen options come from the required action's own config.
+ */
+public class MfaEnrollmentRequiredAction implements RequiredActionProvider {
+
+    public static final String PROVIDER_ID = "mfa-enrollment";
+
+    private final MfaEnrollmentAuthenticator enrollment;
+
+    MfaEnrollmentRequiredAction(MfaEnrollmentAuthenticator enrollment) {
+        this.enrollment = enrollment;
+    }
+
+    /**
+     * Whether the realm has the action registered and enabled, so it may be attached to users.
+     */
+    static boolean isEnabled(RealmModel realm) {
+        RequiredActionProviderModel model = realm.getRequiredActionProviderByAlias(PROVIDER_ID);
+        return model != null && model.isEnabled();
+    }
+
+    @Override
+    public void evaluateTriggers(RequiredActionContext context) {
+        // Attached explicitly; evaluating every login here is what this action avoids.
+    }
+
+    @Override
+    public void requiredActionChallenge(RequiredActionContext context) {
+        enrollment.requiredActionChallenge(context);
+    }
+
+    @Override
+    public void processAction(RequiredActionContext context) {
+        enrollment.processRequiredAction(context);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.nooop3;
+
+import org.keycloak.Config;
+import org.keycloak.authentication.Authenticator;
+import org.keycloak.authentication.RequiredActionFactory;
+import org.keycloak.authentication.RequiredActionProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderFactory;
+
+import java.util.List;
+import java.util.Set;
+
+public class MfaEnrollmentRequiredActionFactory implements RequiredActionFactory {
+
+    /** The orchestrator options that shape the screen; targeting and prompting options do not apply here. */
+    static final Set<String> SCREEN_OPTIONS = Set.of(
+            "min_required_mfa_methods",
+            "min_required_from_list",
+            "enabled_mfa_types",
+            "visible_only_if_supported",
+            "hide_already_configured_methods",
+            "selection_mode",
+            "max_new_methods_per_login",
+            "fail_if_selection_insufficient",
+            "allow_no_selection_if_already_sufficient",
+            "offer_configure_additional_methods",
+            "allow_user_opt_out",
+            "opt_out_attribute_name");
+
+    private static final List<ProviderConfigProperty> CONFIG_PROPERTIES =
+            MfaEnrollmentAuthenticatorFactory.CONFIG_PROPERTIES.stream()
+                    .filter(property -> SCREEN_OPTIONS.contains(property.getName()))
+                    .toList();
+
+    private volatile MfaEnrollmentRequiredAction action;
+
+    @Override
+    public String getId() {
+        return MfaEnrollmentRequiredAction.PROVIDER_ID;
+    }
+
+    @Override
+    public String getDisplayText() {
+        return "MFA Enrollment";
+    }
+
+    @Override
+    public boolean isConfigurable() {
+        return true;
+    }
+
+    @Override
+    public List<ProviderConfigProperty> getConfigMetadata() {
+        return CONFIG_PROPERTIES;
+    }
+
+    /**
+     * Shares the orchestrator's authenticator, and with it its caches, state store and metrics.
+     */
+    @Override
+    public RequiredActionProvider create(KeycloakSession session) {
+        MfaEnrollmentRequiredAction current = action;
+        if (current == null) {
+            ProviderFactory<?> orchestrator = session.getKeycloakSessionFactory()
+                    .getProviderFactory(Authenticator.class, MfaEnrollmentAuthenticatorFactory.PROVIDER_ID);
+            current = new MfaEnrollmentRequiredAction(
+                    (MfaEnrollmentAuthenticator) ((MfaEnrollmentAuthenticatorFactory) orchestrator).create(session));
+            action = current;
+        }
+        return current;
+    }
+
+    @Override
+    public void init(Config.Scope config) {
+    }
+
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
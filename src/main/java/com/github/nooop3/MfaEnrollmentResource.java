@@ -0,0 +1,285 @@
+package com.github.nooop3;
+
+import com.github.nooop3.EnrollmentMetrics.Outcome;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotAuthorizedException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.keycloak.authentication.Authenticator;
+import org.keycloak.authentication.AuthenticatorFactory;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.executors.ExecutorsProvider;
+import org.keycloak.models.AuthenticatorConfigModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.services.managers.AppAuthManager;
+import org.keycloak.services.managers.AuthenticationManager;
+import org.keycloak.services.resource.RealmResourceProvider;
+import org.keycloak.services.resources.admin.AdminAuth;
+import org.keycloak.services.resources.admin.fgap.AdminPermissionEvaluator;
+import org.keycloak.services.resources.admin.fgap.AdminPermissions;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin endpoints under {@code /realms/{realm}/mfa-enrollment}, authenticated with a bearer token of the realm.
+ */
+class MfaEnrollmentResource implements RealmResourceProvider {
+
+    static final String REPORT_EXECUTOR = "mfa-enrollment-report";
+    static final String PRE_ENROLLMENT_EXECUTOR = "mfa-enrollment-pre-enrollment";
+
+    private static final String USER_IDS = "select u.id from UserEntity u where u.realmId = :realmId"
+            + " and u.serviceAccountClientLink is null order by u.id";
+    private static final String USER_IDS_AFTER = "select u.id from UserEntity u where u.realmId = :realmId"
+            + " and u.serviceAccountClientLink is null and u.id > :after order by u.id";
+
+    private final KeycloakSession session;
+    private final MfaEnrollmentResourceProviderFactory.Options options;
+    private final Map<String, PreEnrollmentJob> preEnrollmentJobs;
+
+    MfaEnrollmentResource(KeycloakSession session, MfaEnrollmentResourceProviderFactory.Options options,
+            Map<String, PreEnrollmentJob> preEnrollmentJobs) {
+        this.session = session;
+        this.options = options;
+        this.preEnrollmentJobs = preEnrollmentJobs;
+    }
+
+    @Override
+    public Object getResource() {
+        return this;
+    }
+
+    /**
+     * Streams how many of the realm's users each outcome of the policy would apply to, as JSON lines. The
+     * policy is the authenticator config with the given alias (or the defaults), with the request body's
+     * entries applied on top, so a change can be previewed before it is saved.
+     */
+    @POST
+    @Path("compliance-report")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(ComplianceReport.MEDIA_TYPE)
+    public Response complianceReport(@QueryParam("config") String configAlias, Map<String, String> overrides) {
+        RealmModel realm = session.getContext().getRealm();
+        permissions(realm).users().requireView();
+        Map<String, String> config = new HashMap<>(savedConfig(realm, configAlias));
+        if (overrides != null) {
+            config.putAll(overrides);
+        }
+        EnrollmentPolicy policy = EnrollmentPolicy.compile(config, configAlias);
+        KeycloakSessionFactory factory = session.getKeycloakSessionFactory();
+        MfaEnrollmentAuthenticator authenticator = authenticator(factory);
+        String realmId = realm.getId();
+        ComplianceReport report = new ComplianceReport(new RealmPages(factory, realmId, authenticator, policy),
+                options.reportPageSize(), options.reportConcurrency(),
+                session.getProvider(ExecutorsProvider.class).getExecutor(REPORT_EXECUTOR));
+        return Response.ok((StreamingOutput) report::write, ComplianceReport.MEDIA_TYPE).build();
+    }
+
+    /**
+     * Starts attaching enrollment required actions to the realm's under-secured users in the background, using
+     * the saved authenticator config with the given alias (or the defaults). With {@code resume}, a run
+     * interrupted for the same config continues from its checkpoint. The batch size may be lowered below the
+     * server option and the pause between batches overridden.
+     */
+    @POST
+    @Path("pre-enrollment")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response startPreEnrollment(@QueryParam("config") String configAlias,
+            @QueryParam("resume") boolean resume, @QueryParam("batchSize") Integer batchSize,
+            @QueryParam("pauseMillis") Long pauseMillis) {
+        RealmModel realm = session.getContext().getRealm();
+        permissions(realm).users().requireManage();
+        EnrollmentPolicy policy = EnrollmentPolicy.compile(savedConfig(realm, configAlias), configAlias);
+        PreEnrollmentCheckpoint stored = resume
+                ? PreEnrollmentCheckpoint.load(session, realm.getId(), configAlias) : null;
+        PreEnrollmentCheckpoint from = stored != null ? stored : PreEnrollmentCheckpoint.start(configAlias);
+        int size = batchSize == null ? options.preEnrollmentBatchSize()
+                : Math.max(1, Math.min(batchSize, options.preEnrollmentBatchSize()));
+        long pause = pauseMillis == null ? options.preEnrollmentPauseMillis() : Math.max(0, pauseMillis);
+        KeycloakSessionFactory factory = session.getKeycloakSessionFactory();
+        RealmBatches batches = new RealmBatches(factory, realm.getId(), configAlias, authenticator(factory), policy);
+        PreEnrollmentJob job = new PreEnrollmentJob(batches, from, size, pause);
+        PreEnrollmentJob current = preEnrollmentJobs.compute(realm.getId(),
+                (id, existing) -> existing != null && existing.state() == PreEnrollmentJob.State.RUNNING
+                        ? existing : job);
+        if (current != job) {
+            throw new ClientErrorException("Pre-enrollment is already running", Response.Status.CONFLICT);
+        }
+        session.getProvider(ExecutorsProvider.class).getExecutor(PRE_ENROLLMENT_EXECUTOR).execute(job);
+        return Response.accepted(job.progress()).build();
+    }
+
+    /**
+     * Returns the progress of the run started on this node, or else of the interrupted run for the given config
+     * whose checkpoint is stored.
+     */
+    @GET
+    @Path("pre-enrollment")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> preEnrollmentProgress(@QueryParam("config") String configAlias) {
+        RealmModel realm = session.getContext().getRealm();
+        permissions(realm).users().requireView();
+        PreEnrollmentJob job = preEnrollmentJobs.get(realm.getId());
+        if (job != null) {
+            return job.progress();
+        }
+        PreEnrollmentCheckpoint stored = PreEnrollmentCheckpoint.load(session, realm.getId(), configAlias);
+        if (stored == null) {
+            throw new NotFoundException("No pre-enrollment run");
+        }
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("state", "interrupted");
+        progress.put("config", stored.config());
+        progress.put("scanned", stored.scanned());
+        progress.put("enrolled", stored.enrolled());
+        return progress;
+    }
+
+    /**
+     * Stops the run started on this node after its current batch, keeping the checkpoint for a resume.
+     */
+    @DELETE
+    @Path("pre-enrollment")
+    public Response cancelPreEnrollment() {
+        RealmModel realm = session.getContext().getRealm();
+        permissions(realm).users().requireManage();
+        PreEnrollmentJob job = preEnrollmentJobs.get(realm.getId());
+        if (job == null) {
+            throw new NotFoundException("No pre-enrollment run");
+        }
+        job.cancel();
+        return Response.noContent().build();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private AdminPermissionEvaluator permissions(RealmModel realm) {
+        AuthenticationManager.AuthResult auth = new AppAuthManager.BearerTokenAuthenticator(session).authenticate();
+        if (auth == null) {
+            throw new NotAuthorizedException("Bearer");
+        }
+        AdminAuth adminAuth = new AdminAuth(realm, auth.getToken(), auth.getUser(), auth.getClient());
+        return AdminPermissions.evaluator(session, realm, adminAuth);
+    }
+
+    private static Map<String, String> savedConfig(RealmModel realm, String alias) {
+        if (alias == null) {
+            return Map.of();
+        }
+        AuthenticatorConfigModel model = realm.getAuthenticatorConfigByAlias(alias);
+        if (model == null) {
+            throw new NotFoundException("Authenticator config not found");
+        }
+        return model.getConfig();
+    }
+
+    private MfaEnrollmentAuthenticator authenticator(KeycloakSessionFactory factory) {
+        AuthenticatorFactory authenticatorFactory = (AuthenticatorFactory) factory.getProviderFactory(
+                Authenticator.class, MfaEnrollmentAuthenticatorFactory.PROVIDER_ID);
+        return (MfaEnrollmentAuthenticator) authenticatorFactory.create(session);
+    }
+
+    /**
+     * Returns the ids of at most {@code max} users of the realm after {@code afterUserId} (or from the start), in
+     * id order. Keyset paging keeps each page an index range scan however deep into the realm it is, and users
+     * created or deleted meanwhile do not shift the pages still to come.
+     */
+    private static List<String> userIdsAfter(KeycloakSession session, String realmId, String afterUserId, int max) {
+        EntityManager em = session.getProvider(JpaConnectionProvider.class).getEntityManager();
+        // The first page has its own query rather than comparing with '', which Oracle reads as NULL.
+        TypedQuery<String> query = afterUserId == null
+                ? em.createQuery(USER_IDS, String.class)
+                : em.createQuery(USER_IDS_AFTER, String.class).setParameter("after", afterUserId);
+        return query.setParameter("realmId", realmId)
+                .setMaxResults(max)
+                .getResultList();
+    }
+
+    /**
+     * Reads and evaluates each report page in its own session and transaction; the request's session is not
+     * thread-safe and is closed by the time the report streams. Users are read in id order from the Keycloak
+     * database, so users of storage providers that are not imported are not counted.
+     */
+    private record RealmPages(KeycloakSessionFactory factory, String realmId,
+            MfaEnrollmentAuthenticator authenticator, EnrollmentPolicy policy) implements ComplianceReport.UserPages {
+
+        @Override
+        public List<String> idsAfter(String afterUserId, int max) {
+            return KeycloakModelUtils.runJobInTransactionWithResult(factory,
+                    pageSession -> userIdsAfter(pageSession, realmId, afterUserId, max));
+        }
+
+        @Override
+        public long[] evaluate(List<String> userIds) {
+            return KeycloakModelUtils.runJobInTransactionWithResult(factory, pageSession -> {
+                RealmModel realm = pageSession.realms().getRealm(realmId);
+                pageSession.getContext().setRealm(realm);
+                long[] counts = new long[Outcome.values().length];
+                for (String id : userIds) {
+                    // Users deleted since their id was read are left out.
+                    UserModel user = pageSession.users().getUserById(realm, id);
+                    if (user != null) {
+                        counts[authenticator.evaluate(pageSession, realm, user, policy).ordinal()]++;
+                    }
+                }
+                return counts;
+            });
+        }
+    }
+
+    /**
+     * Runs each pre-enrollment batch in its own session and transaction. Users are read in id order from the
+     * Keycloak database, so users of storage providers that are not imported are not covered.
+     */
+    private record RealmBatches(KeycloakSessionFactory factory, String realmId, String configAlias,
+            MfaEnrollmentAuthenticator authenticator, EnrollmentPolicy policy) implements PreEnrollmentJob.BatchRunner {
+
+        @Override
+        public PreEnrollmentCheckpoint run(PreEnrollmentCheckpoint from, int batchSize) {
+            return KeycloakModelUtils.runJobInTransactionWithResult(factory, batchSession -> {
+                RealmModel realm = batchSession.realms().getRealm(realmId);
+                batchSession.getContext().setRealm(realm);
+                List<String> ids = userIdsAfter(batchSession, realmId, from.afterUserId(), batchSize);
+                long enrolled = 0;
+                for (String id : ids) {
+                    UserModel user = batchSession.users().getUserById(realm, id);
+                    if (user != null && authenticator.preEnroll(batchSession, realm, user, policy)) {
+                        enrolled++;
+                    }
+                }
+                return from.advance(ids.isEmpty() ? null : ids.get(ids.size() - 1), ids.size(), enrolled);
+            });
+        }
+
+        @Override
+        public void save(PreEnrollmentCheckpoint checkpoint) {
+            KeycloakModelUtils.runJobInTransaction(factory, batchSession -> checkpoint.save(batchSession, realmId));
+        }
+
+        @Override
+        public void finish() {
+            KeycloakModelUtils.runJobInTransaction(factory, batchSession -> PreEnrollmentCheckpoint.delete(
+                    batchSession, realmId, configAlias));
+        }
+    }
+}
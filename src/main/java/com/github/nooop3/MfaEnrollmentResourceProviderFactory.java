@@ -0,0 +1,112 @@
+package com.github.nooop3;
+
+import org.keycloak.Config;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.provider.ProviderConfigProperty;
+import org.keycloak.provider.ProviderConfigurationBuilder;
+import org.keycloak.services.resource.RealmResourceProvider;
+import org.keycloak.services.resource.RealmResourceProviderFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves {@code /realms/{realm}/mfa-enrollment}, the orchestrator's admin endpoints.
+ */
+public class MfaEnrollmentResourceProviderFactory implements RealmResourceProviderFactory {
+
+    public static final String PROVIDER_ID = "mfa-enrollment";
+
+    static final String CONFIG_REPORT_PAGE_SIZE = "reportPageSize";
+    static final String CONFIG_REPORT_CONCURRENCY = "reportConcurrency";
+    static final String CONFIG_PRE_ENROLLMENT_BATCH_SIZE = "preEnrollmentBatchSize";
+    static final String CONFIG_PRE_ENROLLMENT_PAUSE_MILLIS = "preEnrollmentPauseMillis";
+    static final int DEFAULT_REPORT_PAGE_SIZE = 200;
+    static final int DEFAULT_REPORT_CONCURRENCY = 4;
+    static final int DEFAULT_PRE_ENROLLMENT_BATCH_SIZE = 100;
+    static final long DEFAULT_PRE_ENROLLMENT_PAUSE_MILLIS = 1000;
+
+    /** Server-level settings of the endpoints; requests may lower the pre-enrollment ones. */
+    record Options(int reportPageSize, int reportConcurrency, int preEnrollmentBatchSize,
+            long preEnrollmentPauseMillis) {
+    }
+
+    private Options options = new Options(DEFAULT_REPORT_PAGE_SIZE, DEFAULT_REPORT_CONCURRENCY,
+            DEFAULT_PRE_ENROLLMENT_BATCH_SIZE, DEFAULT_PRE_ENROLLMENT_PAUSE_MILLIS);
+    /** Pre-enrollment runs started on this node, by realm id. */
+    private final Map<String, PreEnrollmentJob> preEnrollmentJobs = new ConcurrentHashMap<>();
+
+    @Override
+    public String getId() {
+        return PROVIDER_ID;
+    }
+
+    @Override
+    public RealmResourceProvider create(KeycloakSession session) {
+        return new MfaEnrollmentResource(session, options, preEnrollmentJobs);
+    }
+
+    @Override
+    public void init(Config.Scope config) {
+        options = new Options(
+                Math.max(1, config.getInt(CONFIG_REPORT_PAGE_SIZE, DEFAULT_REPORT_PAGE_SIZE)),
+                Math.max(1, config.getInt(CONFIG_REPORT_CONCURRENCY, DEFAULT_REPORT_CONCURRENCY)),
+                Math.max(1, config.getInt(CONFIG_PRE_ENROLLMENT_BATCH_SIZE, DEFAULT_PRE_ENROLLMENT_BATCH_SIZE)),
+                Math.max(0, config.getLong(CONFIG_PRE_ENROLLMENT_PAUSE_MILLIS, DEFAULT_PRE_ENROLLMENT_PAUSE_MILLIS)));
+    }
+
+    @Override
+    public List<ProviderConfigProperty> getConfigMetadata() {
+        return ProviderConfigurationBuilder.create()
+                .property()
+                .name(CONFIG_REPORT_PAGE_SIZE)
+                .type(ProviderConfigProperty.INTEGER_TYPE)
+                .defaultValue(DEFAULT_REPORT_PAGE_SIZE)
+                .helpText("Users read and evaluated per page by the compliance report.")
+                .add()
+                .property()
+                .name(CONFIG_REPORT_CONCURRENCY)
+                .type(ProviderConfigProperty.INTEGER_TYPE)
+                .defaultValue(DEFAULT_REPORT_CONCURRENCY)
+                .helpText("Pages the compliance report evaluates in parallel, each in its own session.")
+                .add()
+                .property()
+                .name(CONFIG_PRE_ENROLLMENT_BATCH_SIZE)
+                .type(ProviderConfigProperty.INTEGER_TYPE)
+                .defaultValue(DEFAULT_PRE_ENROLLMENT_BATCH_SIZE)
+                .helpText("Users processed per pre-enrollment transaction.")
+                .add()
+                .property()
+                .name(CONFIG_PRE_ENROLLMENT_PAUSE_MILLIS)
+                .type(ProviderConfigProperty.INTEGER_TYPE)
+                .defaultValue(DEFAULT_PRE_ENROLLMENT_PAUSE_MILLIS)
+                .helpText("Pause between pre-enrollment batches, in milliseconds.")
+                .add()
+                .build();
+    }
+
+    /**
+     * Drops a removed realm's checkpoints and stops its run on this node.
+     */
+    @Override
+    public void postInit(KeycloakSessionFactory factory) {
+        factory.register(event -> {
+            if (event instanceof RealmModel.RealmRemovedEvent removed) {
+                String realmId = removed.getRealm().getId();
+                PreEnrollmentJob job = preEnrollmentJobs.remove(realmId);
+                if (job != null) {
+                    job.cancel();
+                }
+                PreEnrollmentCheckpoint.deleteRealm(removed.getKeycloakSession(), realmId);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        preEnrollmentJobs.values().forEach(PreEnrollmentJob::cancel);
+    }
+}
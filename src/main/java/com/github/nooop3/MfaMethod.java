@@ -0,0 +1,26 @@
+package com.github.nooop3;
+
+import org.keycloak.models.RealmModel;
+
+import java.util.List;
+
+/**
+ * An MFA method users can be asked to enroll in: the credential type that proves it is configured and the
+ * required actions that set it up.
+ */
+public record MfaMethod(String id, String label, String description, String credentialType,
+        List<String> requiredActions) {
+
+    public MfaMethod {
+        requiredActions = List.copyOf(requiredActions);
+    }
+
+    boolean isAvailable(RealmModel realm) {
+        for (String action : requiredActions) {
+            if (realm.getRequiredActionProviderByAlias(action) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.nooop3;
+
+import org.keycloak.models.KeycloakSessionFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, id-indexed set of every MFA method known to the orchestrator, built once from the registered
+ * {@link MfaMethodProviderFactory} instances.
+ * <p>
+ * Each method is assigned a stable ordinal, so a set of methods (configured, enabled, available, selected) is a
+ * {@code long} with bit {@code ordinal} set per member; the catalog therefore holds at most {@link #MAX_METHODS}
+ * methods.
+ */
+final class MfaMethodCatalog {
+
+    static final int MAX_METHODS = Long.SIZE;
+
+    private static final MfaMethodCatalog BUILT_IN = of(BuiltinMfaMethodProviderFactory.METHODS);
+
+    private final List<MfaMethod> methods;
+    private final Map<String, MfaMethod> byId;
+    private final Map<String, Integer> ordinals;
+    private final Set<String> credentialTypes;
+
+    private MfaMethodCatalog(List<MfaMethod> methods) {
+        Map<String, MfaMethod> index = new LinkedHashMap<>();
+        for (MfaMethod method : methods) {
+            index.putIfAbsent(method.id(), method);
+        }
+        if (index.size() > MAX_METHODS) {
+            throw new IllegalArgumentException("At most " + MAX_METHODS + " MFA methods are supported, got "
+                    + index.size());
+        }
+        Map<String, Integer> positions = new LinkedHashMap<>();
+        Set<String> types = new HashSet<>();
+        for (MfaMethod method : index.values()) {
+            positions.put(method.id(), positions.size());
+            types.add(method.credentialType());
+        }
+        this.methods = List.copyOf(index.values());
+        this.byId = Map.copyOf(index);
+        this.ordinals = Map.copyOf(positions);
+        this.credentialTypes = Set.copyOf(types);
+    }
+
+    static MfaMethodCatalog builtIn() {
+        return BUILT_IN;
+    }
+
+    static MfaMethodCatalog of(List<MfaMethod> methods) {
+        return new MfaMethodCatalog(methods);
+    }
+
+    /**
+     * Collects methods from every deployed {@link MfaMethodProviderFactory}; higher {@code order()} wins when
+     * two factories define the same id.
+     */
+    static MfaMethodCatalog load(KeycloakSessionFactory factory) {
+        List<MfaMethodProviderFactory> factories = new ArrayList<>();
+        factory.getProviderFactoriesStream(MfaMethodProvider.class)
+                .map(MfaMethodProviderFactory.class::cast)
+                .forEach(factories::add);
+        if (factories.isEmpty()) {
+            return BUILT_IN;
+        }
+        factories.sort(Comparator.comparingInt(MfaMethodProviderFactory::order).reversed()
+                .thenComparing(MfaMethodProviderFactory::getId));
+        List<MfaMethod> methods = new ArrayList<>();
+        for (MfaMethodProviderFactory methodFactory : factories) {
+            methods.addAll(methodFactory.getMethods());
+        }
+        return new MfaMethodCatalog(methods);
+    }
+
+    List<MfaMethod> methods() {
+        return methods;
+    }
+
+    MfaMethod get(String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Returns the single-bit mask of the method with the given id, or {@code 0} when it is not in the catalog.
+     */
+    long bit(String id) {
+        Integer ordinal = ordinals.get(id);
+        return ordinal == null ? 0L : 1L << ordinal;
+    }
+
+    /**
+     * Returns the method whose bit is {@code 1L << ordinal}.
+     */
+    MfaMethod method(int ordinal) {
+        return methods.get(ordinal);
+    }
+
+    /**
+     * Returns the bits of the methods with the given ids; ids not in the catalog are ignored.
+     */
+    long mask(Collection<String> ids) {
+        long mask = 0L;
+        for (String id : ids) {
+            mask |= bit(id);
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the ids of the methods in the mask, in catalog order.
+     */
+    List<String> ids(long mask) {
+        List<String> ids = new ArrayList<>(Long.bitCount(mask));
+        for (long rest = mask; rest != 0L; rest &= rest - 1) {
+            ids.add(methods.get(Long.numberOfTrailingZeros(rest)).id());
+        }
+        return ids;
+    }
+
+    /**
+     * Credential types that count towards a user's configured methods.
+     */
+    Set<String> credentialTypes() {
+        return credentialTypes;
+    }
+
+    /**
+     * Maps the credential types a user has to the bits of the methods they satisfy.
+     */
+    long configuredMask(Set<String> configuredTypes) {
+        if (configuredTypes.isEmpty()) {
+            return 0L;
+        }
+        long mask = 0L;
+        for (int ordinal = 0; ordinal < methods.size(); ordinal++) {
+            if (configuredTypes.contains(methods.get(ordinal).credentialType())) {
+                mask |= 1L << ordinal;
+            }
+        }
+        return mask;
+    }
+}
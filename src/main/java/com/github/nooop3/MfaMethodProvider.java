@@ -0,0 +1,17 @@
+package com.github.nooop3;
+
+import org.keycloak.provider.Provider;
+
+import java.util.List;
+
+/**
+ * Contributes MFA methods to the enrollment orchestrator.
+ */
+public interface MfaMethodProvider extends Provider {
+
+    List<MfaMethod> getMethods();
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.nooop3;
+
+import org.keycloak.Config;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ProviderFactory;
+
+import java.util.List;
+
+/**
+ * Factory for {@link MfaMethodProvider}. Method definitions are static, so the orchestrator reads
+ * {@link #getMethods()} once at startup and builds its catalog from it; when two factories contribute the same
+ * method id, the one with the higher {@link #order()} wins.
+ */
+public interface MfaMethodProviderFactory extends ProviderFactory<MfaMethodProvider> {
+
+    List<MfaMethod> getMethods();
+
+    @Override
+    default MfaMethodProvider create(KeycloakSession session) {
+        List<MfaMethod> methods = getMethods();
+        return () -> methods;
+    }
+
+    @Override
+    default void init(Config.Scope config) {
+    }
+
+    @Override
+    default void postInit(KeycloakSessionFactory factory) {
+    }
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.nooop3;
+
+import jakarta.persistence.EntityManager;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.models.KeycloakSession;
+
+/**
+ * Progress of a pre-enrollment run, kept in the {@code MFA_PRE_ENROLLMENT} table (see
+ * {@link PreEnrollmentCheckpointEntity}) rather than on the realm, so saving it does not invalidate the cached
+ * realm on every node.
+ * <p>
+ * Users are walked in id order and {@code afterUserId} is the last id processed, so a resumed run neither
+ * repeats nor skips users that were already there when the checkpoint was saved, however the user list changed
+ * in between.
+ */
+record PreEnrollmentCheckpoint(String config, String afterUserId, long scanned, long enrolled) {
+
+    /**
+     * Alias stored for runs with the defaults (no config). Not empty, since Oracle stores {@code ''} as
+     * {@code NULL} and the alias is part of the primary key.
+     */
+    static final String DEFAULTS_ALIAS = "-";
+
+    static PreEnrollmentCheckpoint start(String config) {
+        return new PreEnrollmentCheckpoint(config, null, 0, 0);
+    }
+
+    PreEnrollmentCheckpoint advance(String lastUserId, int batchScanned, long batchEnrolled) {
+        return new PreEnrollmentCheckpoint(config, batchScanned > 0 ? lastUserId : afterUserId,
+                scanned + batchScanned, enrolled + batchEnrolled);
+    }
+
+    /**
+     * Returns the stored checkpoint of the realm's run for the config, or {@code null}.
+     */
+    static PreEnrollmentCheckpoint load(KeycloakSession session, String realmId, String config) {
+        PreEnrollmentCheckpointEntity entity = entityManager(session).find(PreEnrollmentCheckpointEntity.class,
+                new PreEnrollmentCheckpointEntity.Key(realmId, alias(config)));
+        if (entity == null) {
+            return null;
+        }
+        return new PreEnrollmentCheckpoint(config, entity.getAfterUserId(), entity.getScanned(),
+                entity.getEnrolled());
+    }
+
+    void save(KeycloakSession session, String realmId) {
+        EntityManager em = entityManager(session);
+        PreEnrollmentCheckpointEntity entity = em.find(PreEnrollmentCheckpointEntity.class,
+                new PreEnrollmentCheckpointEntity.Key(realmId, alias(config)));
+        if (entity == null) {
+            entity = new PreEnrollmentCheckpointEntity();
+            entity.setRealmId(realmId);
+            entity.setConfigAlias(alias(config));
+            em.persist(entity);
+        }
+        entity.setAfterUserId(afterUserId);
+        entity.setScanned(scanned);
+        entity.setEnrolled(enrolled);
+    }
+
+    static void delete(KeycloakSession session, String realmId, String config) {
+        EntityManager em = entityManager(session);
+        PreEnrollmentCheckpointEntity entity = em.find(PreEnrollmentCheckpointEntity.class,
+                new PreEnrollmentCheckpointEntity.Key(realmId, alias(config)));
+        if (entity != null) {
+            em.remove(entity);
+        }
+    }
+
+    static void deleteRealm(KeycloakSession session, String realmId) {
+        entityManager(session).createNamedQuery("deleteMfaPreEnrollmentByRealm")
+                .setParameter("realmId", realmId)
+                .executeUpdate();
+    }
+
+    private static String alias(String config) {
+        return config == null ? DEFAULTS_ALIAS : config;
+    }
+
+    private static EntityManager entityManager(KeycloakSession session) {
+        return session.getProvider(JpaConnectionProvider.class).getEntityManager();
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.nooop3;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.NamedQueries;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The stored {@link PreEnrollmentCheckpoint} of one realm and execution config. The defaults (no config alias)
+ * are stored with the alias {@value PreEnrollmentCheckpoint#DEFAULTS_ALIAS}.
+ */
+@Entity
+@Table(name = "MFA_PRE_ENROLLMENT")
+@IdClass(PreEnrollmentCheckpointEntity.Key.class)
+@NamedQueries({
+        @NamedQuery(name = "deleteMfaPreEnrollmentByRealm",
+                query = "delete from PreEnrollmentCheckpointEntity c where c.realmId = :realmId")
+})
+public class PreEnrollmentCheckpointEntity {
+
+    @Id
+    @Column(name = "REALM_ID", length = 36)
+    private String realmId;
+
+    @Id
+    @Column(name = "CONFIG_ALIAS")
+    private String configAlias;
+
+    @Column(name = "AFTER_USER_ID")
+    private String afterUserId;
+
+    @Column(name = "SCANNED")
+    private long scanned;
+
+    @Column(name = "ENROLLED")
+    private long enrolled;
+
+    public String getRealmId() {
+        return realmId;
+    }
+
+    public void setRealmId(String realmId) {
+        this.realmId = realmId;
+    }
+
+    public String getConfigAlias() {
+        return configAlias;
+    }
+
+    public void setConfigAlias(String configAlias) {
+        this.configAlias = configAlias;
+    }
+
+    public String getAfterUserId() {
+        return afterUserId;
+    }
+
+    public void setAfterUserId(String afterUserId) {
+        this.afterUserId = afterUserId;
+    }
+
+    public long getScanned() {
+        return scanned;
+    }
+
+    public void setScanned(long scanned) {
+        this.scanned = scanned;
+    }
+
+    public long getEnrolled() {
+        return enrolled;
+    }
+
+    public void setEnrolled(long enrolled) {
+        this.enrolled = enrolled;
+    }
+
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String realmId;
+        private String configAlias;
+
+        public Key() {
+        }
+
+        public Key(String realmId, String configAlias) {
+            this.realmId = realmId;
+            this.configAlias = configAlias;
+        }
+
+        public String getRealmId() {
+            return realmId;
+        }
+
+        public String getConfigAlias() {
+            return configAlias;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && Objects.equals(realmId, key.realmId)
+                    && Objects.equals(configAlias, key.configAlias);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(realmId, configAlias);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.nooop3;
+
+import org.jboss.logging.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background run that attaches enrollment required actions to a realm's under-secured users ahead of their
+ * next login, one batch per transaction, pausing between batches so the work can be spread out off-peak.
+ * <p>
+ * The {@link PreEnrollmentCheckpoint} is saved every {@link #SAVE_EVERY_BATCHES} batches and when the run is
+ * cancelled or fails, and a run started with it resumes from there. Batches committed after the last save are
+ * processed again, which is harmless since enrolling a user twice is a no-op. A completed run clears it.
+ */
+final class PreEnrollmentJob implements Runnable {
+
+    enum State {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    interface BatchRunner {
+        /**
+         * Processes, in one transaction, up to {@code batchSize} users whose id follows the checkpoint's, and
+         * returns the advanced checkpoint.
+         */
+        PreEnrollmentCheckpoint run(PreEnrollmentCheckpoint from, int batchSize);
+
+        /** Stores the checkpoint for a later resume. */
+        void save(PreEnrollmentCheckpoint checkpoint);
+
+        /** Clears the stored checkpoint once every user has been processed. */
+        void finish();
+    }
+
+    /** Batches between checkpoint saves. */
+    static final int SAVE_EVERY_BATCHES = 10;
+
+    private static final Logger LOG = Logger.getLogger(PreEnrollmentJob.class);
+
+    private final BatchRunner batches;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+    private volatile PreEnrollmentCheckpoint checkpoint;
+    private volatile State state = State.RUNNING;
+    private volatile String error;
+    private int unsaved;
+
+    PreEnrollmentJob(BatchRunner batches, PreEnrollmentCheckpoint from, int batchSize, long pauseMillis) {
+        if (batchSize <= 0 || pauseMillis < 0) {
+            throw new IllegalArgumentException("batchSize must be positive and pauseMillis not negative");
+        }
+        this.batches = batches;
+        this.checkpoint = from;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (cancelled.getCount() > 0) {
+                PreEnrollmentCheckpoint next = batches.run(checkpoint, batchSize);
+                boolean last = next.scanned() - checkpoint.scanned() < batchSize;
+                checkpoint = next;
+                if (last) {
+                    batches.finish();
+                    state = State.COMPLETED;
+                    return;
+                }
+                if (++unsaved == SAVE_EVERY_BATCHES) {
+                    batches.save(checkpoint);
+                    unsaved = 0;
+                }
+                if (cancelled.await(pauseMillis, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            }
+            saveIfBehind();
+            state = State.CANCELLED;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            saveIfBehind();
+            state = State.CANCELLED;
+        } catch (RuntimeException ex) {
+            LOG.warnf(ex, "Pre-enrollment stopped after %d users", checkpoint.scanned());
+            error = ex.getMessage();
+            saveIfBehind();
+            state = State.FAILED;
+        }
+    }
+
+    private void saveIfBehind() {
+        if (unsaved == 0) {
+            return;
+        }
+        try {
+            batches.save(checkpoint);
+            unsaved = 0;
+        } catch (RuntimeException ex) {
+            LOG.warnf(ex, "Could not save the pre-enrollment checkpoint after %d users", checkpoint.scanned());
+        }
+    }
+
+    /**
+     * Stops the run after the batch in progress; its checkpoint is kept for a later resume.
+     */
+    void cancel() {
+        cancelled.countDown();
+    }
+
+    State state() {
+        return state;
+    }
+
+    PreEnrollmentCheckpoint checkpoint() {
+        return checkpoint;
+    }
+
+    Map<String, Object> progress() {
+        PreEnrollmentCheckpoint current = checkpoint;
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("state", state.name().toLowerCase(Locale.ROOT));
+        progress.put("config", current.config());
+        progress.put("scanned", current.scanned());
+        progress.put("enrolled", current.enrolled());
+        progress.put("batchSize", batchSize);
+        progress.put("pauseMillis", pauseMillis);
+        if (error != null) {
+            progress.put("error", error);
+        }
+        return progress;
+    }
+}
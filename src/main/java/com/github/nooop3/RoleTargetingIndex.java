@@ -0,0 +1,120 @@
+package com.github.nooop3;
+
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RoleContainerModel;
+import org.keycloak.models.RoleModel;
+import org.keycloak.provider.ProviderEvent;
+import org.keycloak.provider.ProviderEventListener;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Resolves the realm role names used by {@code only_for_roles} / {@code exclude_roles} to role ids once per
+ * realm and policy, instead of calling {@link RealmModel#getRole(String)} for every name on every login.
+ * <p>
+ * Entries are dropped when a realm role is removed or renamed on this node. Keycloak fires no event for role
+ * creation and provider events are not replicated across the cluster, so entries also expire: quickly when a
+ * configured name did not resolve, and after {@link #MAX_AGE_MILLIS} otherwise.
+ */
+class RoleTargetingIndex implements ProviderEventListener {
+
+    static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    static final long UNRESOLVED_MAX_AGE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final Map<String, Map<Set<String>, Resolved>> realms = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the ids of the realm roles with the given names; names that do not exist are left out.
+     */
+    Set<String> resolve(RealmModel realm, Set<String> roleNames) {
+        if (roleNames.isEmpty()) {
+            return Set.of();
+        }
+        String realmId = realm.getId();
+        if (realmId == null) {
+            return lookup(realm, roleNames).roleIds;
+        }
+        Map<Set<String>, Resolved> byNames = realms.computeIfAbsent(realmId, id -> new ConcurrentHashMap<>());
+        Resolved resolved = byNames.get(roleNames);
+        long now = System.currentTimeMillis();
+        if (resolved == null || resolved.expiresAt <= now) {
+            resolved = lookup(realm, roleNames);
+            byNames.put(roleNames, resolved);
+        }
+        return resolved.roleIds;
+    }
+
+    /**
+     * Evaluates both targeting lists against the user's effective (composite and group inherited) realm roles,
+     * returning {@code true} when the user falls outside the targeted population. {@code roles} is only asked
+     * for when a configured name resolved.
+     */
+    boolean excludes(RealmModel realm, Supplier<EffectiveRoles> roles, Set<String> onlyForRoles,
+            Set<String> excludeRoles) {
+        Set<String> required = resolve(realm, onlyForRoles);
+        Set<String> excluded = resolve(realm, excludeRoles);
+        if (!onlyForRoles.isEmpty() && required.isEmpty()) {
+            return true;
+        }
+        if (required.isEmpty() && excluded.isEmpty()) {
+            return false;
+        }
+        EffectiveRoles effective = roles.get();
+        for (String roleId : excluded) {
+            if (effective.contains(roleId)) {
+                return true;
+            }
+        }
+        if (required.isEmpty()) {
+            return false;
+        }
+        for (String roleId : required) {
+            if (effective.contains(roleId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void invalidate(String realmId) {
+        if (realmId != null) {
+            realms.remove(realmId);
+        }
+    }
+
+    @Override
+    public void onEvent(ProviderEvent event) {
+        if (event instanceof RoleContainerModel.RoleRemovedEvent removed) {
+            RoleModel role = removed.getRole();
+            if (!role.isClientRole()) {
+                invalidate(role.getContainerId());
+            }
+        } else if (event instanceof RoleModel.RoleNameChangeEvent renamed) {
+            if (renamed.getClientId() == null) {
+                invalidate(renamed.getRealm().getId());
+            }
+        } else if (event instanceof RealmModel.RealmRemovedEvent removed) {
+            invalidate(removed.getRealm().getId());
+        }
+    }
+
+    private static Resolved lookup(RealmModel realm, Set<String> roleNames) {
+        Set<String> ids = new HashSet<>();
+        for (String name : roleNames) {
+            RoleModel role = realm.getRole(name);
+            if (role != null) {
+                ids.add(role.getId());
+            }
+        }
+        long maxAge = ids.size() == roleNames.size() ? MAX_AGE_MILLIS : UNRESOLVED_MAX_AGE_MILLIS;
+        return new Resolved(Set.copyOf(ids), System.currentTimeMillis() + maxAge);
+    }
+
+    private record Resolved(Set<String> roleIds, long expiresAt) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.nooop3;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Offline check of a {@code hash_user_id} rollout: reads user ids (one per line) from a file and reports how
+ * many fall into the cohort for a percentage and salt, plus how evenly the ids spread across buckets.
+ * <p>
+ * Usage: {@code java -cp mfa-enrollment-orchestrator.jar com.github.nooop3.RolloutCohortSimulator <ids-file>
+ * <percentage> [salt]}
+ */
+public final class RolloutCohortSimulator {
+
+    private static final int READ_BUFFER = 1 << 16;
+
+    private final int percentage;
+    private final long seed;
+    private final long[] buckets = new long[RolloutHash.BUCKETS];
+    private long ids;
+
+    RolloutCohortSimulator(int percentage, String salt) {
+        this.percentage = percentage;
+        this.seed = RolloutHash.seed(salt);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: RolloutCohortSimulator <ids-file> <percentage> [salt]");
+            System.exit(2);
+        }
+        int percentage = Integer.parseInt(args[1]);
+        if (percentage < 0 || percentage > 100) {
+            System.err.println("Percentage must be between 0 and 100");
+            System.exit(2);
+        }
+        RolloutCohortSimulator simulator = new RolloutCohortSimulator(percentage, args.length == 3 ? args[2] : null);
+        long started = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(Path.of(args[0])), StandardCharsets.UTF_8), READ_BUFFER)) {
+            simulator.readAll(reader);
+        }
+        simulator.report(System.out, System.nanoTime() - started);
+    }
+
+    void readAll(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isBlank()) {
+                add(line.strip());
+            }
+        }
+    }
+
+    void add(CharSequence id) {
+        buckets[RolloutHash.bucket(id, seed)]++;
+        ids++;
+    }
+
+    long cohortSize() {
+        long size = 0;
+        for (int bucket = 0; bucket < percentage; bucket++) {
+            size += buckets[bucket];
+        }
+        return size;
+    }
+
+    /**
+     * Pearson's chi-squared statistic of the bucket counts against a uniform spread; with 99 degrees of
+     * freedom, values far above ~135 mean the ids do not spread evenly.
+     */
+    double chiSquared() {
+        if (ids == 0) {
+            return 0;
+        }
+        double expected = (double) ids / buckets.length;
+        double sum = 0;
+        for (long count : buckets) {
+            double delta = count - expected;
+            sum += delta * delta / expected;
+        }
+        return sum;
+    }
+
+    void report(PrintStream out, long elapsedNanos) {
+        long cohort = cohortSize();
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        out.printf(Locale.ROOT, "ids:           %d%n", ids);
+        out.printf(Locale.ROOT, "percentage:    %d%n", percentage);
+        out.printf(Locale.ROOT, "cohort:        %d (%.3f%%)%n", cohort, ids == 0 ? 0.0 : 100.0 * cohort / ids);
+        out.printf(Locale.ROOT, "chi-squared:   %.1f (99 degrees of freedom)%n", chiSquared());
+        out.printf(Locale.ROOT, "throughput:    %.0f ids/s%n", ids / seconds);
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.nooop3;
+
+/**
+ * Stable rollout bucketing: a 64-bit MurmurHash3-style hash of the user id, seeded with the execution's
+ * rollout salt.
+ * <p>
+ * The id is consumed four UTF-16 code units (one 64-bit block) at a time straight from the {@link CharSequence},
+ * so hashing neither encodes nor allocates. Different salts give statistically independent cohorts, which
+ * keeps the same users from always landing first in every rollout.
+ */
+final class RolloutHash {
+
+    static final int BUCKETS = 100;
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private RolloutHash() {
+    }
+
+    /**
+     * Derives the hash seed for a rollout salt; an empty salt gives seed {@code 0}.
+     */
+    static long seed(String salt) {
+        return salt == null || salt.isEmpty() ? 0L : hash(salt, 0L);
+    }
+
+    /**
+     * Returns the user's bucket in {@code [0, BUCKETS)}; the user is in a rollout of {@code p} percent when the
+     * bucket is below {@code p}.
+     */
+    static int bucket(CharSequence id, long seed) {
+        return (int) Long.remainderUnsigned(hash(id, seed), BUCKETS);
+    }
+
+    static long hash(CharSequence id, long seed) {
+        int length = id.length();
+        long h = seed;
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            long k = id.charAt(i)
+                    | (long) id.charAt(i + 1) << 16
+                    | (long) id.charAt(i + 2) << 32
+                    | (long) id.charAt(i + 3) << 48;
+            h ^= mixBlock(k);
+            h = Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+        }
+        if (i < length) {
+            long k = 0;
+            for (int shift = 0; i < length; i++, shift += 16) {
+                k |= (long) id.charAt(i) << shift;
+            }
+            h ^= mixBlock(k);
+        }
+        h ^= length;
+        return fmix64(h);
+    }
+
+    private static long mixBlock(long k) {
+        k *= C1;
+        k = Long.rotateLeft(k, 31);
+        return k * C2;
+    }
+
+    private static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
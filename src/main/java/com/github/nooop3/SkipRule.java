@@ -0,0 +1,258 @@
+package com.github.nooop3;
+
+import com.github.nooop3.EnrollmentMetrics.Outcome;
+import com.github.nooop3.EnrollmentPolicy.EnforceForIdpUsers;
+import org.keycloak.models.AuthenticationExecutionModel;
+import org.keycloak.models.ClientModel;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The conditions under which {@code authenticate()} lets a user through without prompting.
+ * <p>
+ * Each rule declares the most expensive {@link Input} it always reads, and {@link #PIPELINE} runs them from
+ * cheapest to most expensive. All rules only skip, so the order does not change the result, but a skip by
+ * a cheap rule saves the group and role lookups and the credential lookup. Rules whose answer may depend on
+ * {@link LoginFacts#meetsMinimum()} (opt-out, rollout) decide everything else first and only then ask for it.
+ */
+enum SkipRule {
+
+    EXECUTION_DISABLED(Input.CONTEXT, Outcome.SKIPPED_EXECUTION) {
+        @Override
+        boolean appliesTo(EnrollmentPolicy policy) {
+            return true;
+        }
+
+        @Override
+        boolean skips(LoginFacts facts) {
+            return facts.context().getExecution().getRequirement() == AuthenticationExecutionModel.Requirement.DISABLED;
+        }
+    },
+
+    CLIENT_TARGETING(Input.CONTEXT, Outcome.SKIPPED_CLIENT) {
+        @Override
+        boolean appliesTo(EnrollmentPolicy policy) {
+            return !policy.onlyForClients().isEmpty() || !policy.excludeClients().isEmpty();
+        }
+
+        @Override
+        boolean skips(LoginFacts facts) {
+            EnrollmentPolicy policy = facts.policy();
+            ClientModel client = facts.context().getAuthenticationSession().getClient();
+            if (!policy.onlyForClients().isEmpty() && !policy.onlyForClients().matches(client)) {
+                return true;
+            }
+            return !policy.excludeClients().isEmpty() && policy.excludeClients().matches(client);
+        }
+    },
+
+    IDP_LOGIN(Input.CONTEXT, Outcome.SKIPPED_IDP) {
+        @Override
+        boolean appliesTo(EnrollmentPolicy policy) {
+            return policy.enforceForIdpUsers() != EnforceForIdpUsers.ALWAYS;
+        }
+
+        @Override
+        boolean skips(LoginFacts facts) {
+            boolean isIdpLogin = facts.context().getAuthenticationSession().getAuthNote("BROKER_SESSION_ID") != null;
+            return switch (facts.policy().enforceForIdpUsers()) {
+                case NEVER -> isIdpLogin;
+                case ONLY -> !isIdpLogin;
+                case ALWAYS -> false;
+            };
+        }
+    },
+
+    ROLLOUT(Input.CONTEXT, Outcome.SKIPPED_ROLLOUT) {
+        @Override
+        boolean appliesTo(EnrollmentPolicy policy) {
+            return policy.rolloutPercentage() < 100;
+        }
+
+        @Override
+        boolean skips(LoginFacts facts) {
+            EnrollmentPolicy policy = facts.policy();
+            int bucket = switch (policy.rolloutStrategy()) {
+                case HASH_USER_ID -> RolloutHash.bucket(facts.user().getId(), policy.rolloutSeed());
+                case RANDOM -> ThreadLocalRandom.current().nextInt(RolloutHash.BUCKETS);
+            };
+            if (bucket < policy.rolloutPercentage()) {
+                return false;
+            }
+            // Under-protected users are always prompted when the bypass is on.
+            return !policy.bypassRolloutIfNotSufficient() || facts.meetsMinimum();
+        }
+    },
+
+    FIRST_LOGIN_ONLY(Input.USER_STATE, Outcome.SKIPPED_FIRST_LOGIN) {
+        @Override
+        boolean appliesTo(EnrollmentPolicy policy) {
+            return policy.enforceOnFirstLoginOnly();
+        }
+
+        @Override
+        boolean skips(LoginFacts facts) {
+            return Boolean.parseBoolean(facts.state(UserAttributeSnapshot.FIRST_LOGIN_COMPLETED,
+                    MfaEnrollmentAuthenticator.ATTR_FIRST_LOGIN_COMPLETED));
+        }
+    },
+
+    ATTRIBUTE_MATCH(Input.USER_STATE, Outcome.SKIPPED_ATTRIBUTE) {
+        @Override
+        boolean appliesTo(EnrollmentPolicy policy) {
+            return !policy.skipIfAttribute().isEmpty();
+        }
+
+        @Override
+        boolean skips(LoginFacts facts) {
+            return facts.policy().skipIfAttribute().matches(facts.attributes(), System.currentTimeMillis());
+        }
+    },
+
+    OPT_OUT(Input.USER_STATE, Outcome.SKIPPED_OPT_OUT) {
+        @Override
+        boolean appliesTo(EnrollmentPolicy policy) {
+            return policy.allowUserOptOut();
+        }
+
+        @Override
+        boolean skips(LoginFacts facts) {
+            String optOut = facts.state(UserAttributeSnapshot.OPT_OUT, facts.policy().optOutAttributeName());
+            if (!Boolean.parseBoolean(optOut)) {
+                return false;
+            }
+            return facts.policy().optOutRespectedWhenNotSufficient() || facts.meetsMinimum();
+        }
+    },
+
+    REMINDER(Input.USER_STATE, Outcome.SKIPPED_REMINDER) {
+        @Override
+        boolean appliesTo(EnrollmentPolicy policy) {
+            return policy.remindEveryDays() > 0;
+        }
+
+        @Override
+        boolean skips(LoginFacts facts) {
+            String lastPrompt = facts.state(UserAttributeSnapshot.LAST_PROMPT,
+                    MfaEnrollmentAuthenticator.ATTR_LAST_PROMPT);
+            if (lastPrompt == null) {
+                return false;
+            }
+            try {
+                long last = Long.parseLong(lastPrompt);
+                long threshold = System.currentTimeMillis()
+                        - Duration.ofDays(facts.policy().remindEveryDays()).toMillis();
+                return last > threshold;
+            } catch (NumberFormatException ignored) {
+                return false;
+            }
+        }
+    },
+
+    GROUP_TARGETING(Input.GROUPS, Outcome.SKIPPED_GROUP) {
+        @Override
+        boolean appliesTo(EnrollmentPolicy policy) {
+            return !policy.onlyForGroups().isEmpty() || !policy.excludeGroups().isEmpty();
+        }
+
+        @Override
+        boolean skips(LoginFacts facts) {
+            EnrollmentPolicy policy = facts.policy();
+            return facts.groupIndex().excludes(facts.realm(), facts.user(), policy.onlyForGroups(),
+                    policy.excludeGroups());
+        }
+    },
+
+    ROLE_TARGETING(Input.ROLES, Outcome.SKIPPED_ROLE) {
+        @Override
+        boolean appliesTo(EnrollmentPolicy policy) {
+            return !policy.onlyForRoles().isEmpty() || !policy.excludeRoles().isEmpty();
+        }
+
+        @Override
+        boolean skips(LoginFacts facts) {
+            EnrollmentPolicy policy = facts.policy();
+            return facts.roleIndex().excludes(facts.realm(), facts::effectiveRoles, policy.onlyForRoles(),
+                    policy.excludeRoles());
+        }
+    },
+
+    MAX_METHODS(Input.CREDENTIALS, Outcome.SKIPPED_MAX_METHODS) {
+        @Override
+        boolean appliesTo(EnrollmentPolicy policy) {
+            return policy.maxAllowedMfaMethods() > 0;
+        }
+
+        @Override
+        boolean skips(LoginFacts facts) {
+            return Long.bitCount(facts.credentials().configured()) >= facts.policy().maxAllowedMfaMethods();
+        }
+    };
+
+    /** What a rule reads, cheapest first. */
+    enum Input {
+        /** The flow context: execution, client, auth notes, user id. */
+        CONTEXT,
+        /** Enrollment state and user attributes. */
+        USER_STATE,
+        /** The user's direct group memberships. */
+        GROUPS,
+        /** The user's effective role mappings. */
+        ROLES,
+        /** The user's stored credentials. */
+        CREDENTIALS
+    }
+
+    /** Every rule, ordered by input cost; rules with the same input keep their declaration order. */
+    static final List<SkipRule> PIPELINE = Arrays.stream(values())
+            .sorted(Comparator.comparing(SkipRule::input))
+            .toList();
+
+    /** Rules that read the login request rather than the user. */
+    private static final Set<SkipRule> REQUEST_RULES = EnumSet.of(EXECUTION_DISABLED, CLIENT_TARGETING, IDP_LOGIN);
+
+    /** {@link #PIPELINE} without {@link #REQUEST_RULES}, for users evaluated outside of a login. */
+    static final List<SkipRule> USER_PIPELINE = PIPELINE.stream()
+            .filter(rule -> !REQUEST_RULES.contains(rule))
+            .toList();
+
+    private final Input input;
+    private final Outcome outcome;
+
+    SkipRule(Input input, Outcome outcome) {
+        this.input = input;
+        this.outcome = outcome;
+    }
+
+    Input input() {
+        return input;
+    }
+
+    Outcome outcome() {
+        return outcome;
+    }
+
+    abstract boolean appliesTo(EnrollmentPolicy policy);
+
+    abstract boolean skips(LoginFacts facts);
+
+    /**
+     * Runs the pipeline and returns the first rule that skips the user, or {@code null} to continue. Facts
+     * without a flow context run {@link #USER_PIPELINE}.
+     */
+    static SkipRule firstSkipping(LoginFacts facts) {
+        EnrollmentPolicy policy = facts.policy();
+        for (SkipRule rule : facts.context() != null ? PIPELINE : USER_PIPELINE) {
+            if (rule.appliesTo(policy) && rule.skips(facts)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.nooop3;
+
+import org.keycloak.models.UserModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The user attributes one policy reads, fetched together once per request and served by slot.
+ * <p>
+ * The slots are laid out when the policy is compiled: the three enrollment-state attributes come first (left
+ * empty when the policy does not use them), followed by one slot per attribute its {@link AttributeCondition}
+ * reads. When more than one attribute is needed they are picked from a single {@link UserModel#getAttributes()}
+ * call instead of one {@link UserModel#getFirstAttribute(String)} per key, which for federated users can mean a
+ * provider round trip each.
+ */
+final class UserAttributeSnapshot {
+
+    static final int FIRST_LOGIN_COMPLETED = 0;
+    static final int OPT_OUT = 1;
+    static final int LAST_PROMPT = 2;
+    static final int FIRST_MATCH = 3;
+
+    private static final UserAttributeSnapshot EMPTY = new UserAttributeSnapshot(new String[FIRST_MATCH]);
+
+    private final String[] values;
+
+    private UserAttributeSnapshot(String[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Builds the slot layout for a policy; unused slots hold {@code null}.
+     */
+    static List<String> layout(boolean firstLoginOnly, String optOutAttribute, boolean reminders,
+            Iterable<String> matchAttributes) {
+        List<String> keys = new ArrayList<>();
+        keys.add(firstLoginOnly ? MfaEnrollmentAuthenticator.ATTR_FIRST_LOGIN_COMPLETED : null);
+        keys.add(optOutAttribute);
+        keys.add(reminders ? MfaEnrollmentAuthenticator.ATTR_LAST_PROMPT : null);
+        matchAttributes.forEach(keys::add);
+        return keys;
+    }
+
+    static UserAttributeSnapshot read(UserModel user, List<String> keys) {
+        int needed = 0;
+        String single = null;
+        for (String key : keys) {
+            if (key != null) {
+                needed++;
+                single = key;
+            }
+        }
+        if (needed == 0) {
+            return EMPTY;
+        }
+        String[] values = new String[keys.size()];
+        if (needed == 1) {
+            values[keys.indexOf(single)] = user.getFirstAttribute(single);
+            return new UserAttributeSnapshot(values);
+        }
+        Map<String, List<String>> attributes = user.getAttributes();
+        for (int i = 0; i < values.length; i++) {
+            String key = keys.get(i);
+            List<String> attribute = key != null ? attributes.get(key) : null;
+            values[i] = attribute == null || attribute.isEmpty() ? null : attribute.get(0);
+        }
+        return new UserAttributeSnapshot(values);
+    }
+
+    String get(int slot) {
+        return slot < values.length ? values[slot] : null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.nooop3;
+
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+
+/**
+ * Keeps enrollment state in user attributes, buffered per request by {@link EnrollmentStateWriter}. Values stay
+ * visible and editable in the admin console, at the cost of {@code USER_ATTRIBUTE} updates and user cache
+ * invalidations.
+ */
+class UserAttributeStateStore implements EnrollmentStateStore {
+
+    @Override
+    public String get(KeycloakSession session, RealmModel realm, UserModel user, String name) {
+        return user.getFirstAttribute(name);
+    }
+
+    @Override
+    public void set(KeycloakSession session, RealmModel realm, UserModel user, String name, String value) {
+        EnrollmentStateWriter.forUser(session, user).set(name, value);
+    }
+
+    @Override
+    public boolean readsUserAttributes() {
+        return true;
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeFlowContext;
+import com.github.nooop3.fakes.FakeUser;
+import com.github.nooop3.fakes.LoginFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.keycloak.authentication.FlowStatus;
+import org.keycloak.models.credential.OTPCredentialModel;
+import org.keycloak.models.credential.PasswordCredentialModel;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Fails when {@code authenticate()} allocates more bytes per call than its budget, so added allocations on the
+ * login path show up in review instead of in production GC logs.
+ * <p>
+ * Budgets are set in the pom ({@code allocation.budget.*}) at two to three times the values measured on
+ * Temurin 21.0.1 (HotSpot, default flags): 440 bytes for the compliant skip and 1584 to 1672 for the form render.
+ * Other JDKs and JIT settings land elsewhere, so the test is tagged {@code allocation-budget} and runs only with
+ * {@code -P benchmarks}. Each path runs in rounds after a warmup, and the best round is compared with the budget:
+ * until the JIT has compiled the path, escape analysis has not removed its short-lived objects yet.
+ */
+@Tag("allocation-budget")
+class AllocationBudgetTest {
+
+    private static final int WARMUP_CALLS = 50_000;
+    private static final int CALLS_PER_ROUND = 10_000;
+    private static final int ROUNDS = 10;
+
+    private com.sun.management.ThreadMXBean threads;
+    private final MfaEnrollmentAuthenticator authenticator = new MfaEnrollmentAuthenticator();
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "per-thread allocation counters are HotSpot specific");
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+                "per-thread allocation counters are disabled");
+    }
+
+    @Test
+    void testAuthenticate_CompliantSkipStaysWithinBudget() {
+        LoginFixture fixture = LoginFixture.create(Map.of("offer_configure_additional_methods", "false"));
+        FakeUser user = fixture.user("compliant", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE);
+
+        assertWithinBudget("allocation.budget.compliantSkip", 1536, fixture, user, FlowStatus.SUCCESS);
+    }
+
+    @Test
+    void testAuthenticate_RenderFormStaysWithinBudget() {
+        LoginFixture fixture = LoginFixture.create(Map.of());
+        FakeUser user = fixture.user("under-minimum", PasswordCredentialModel.TYPE);
+
+        assertWithinBudget("allocation.budget.renderForm", 4096, fixture, user, FlowStatus.CHALLENGE);
+    }
+
+    private void assertWithinBudget(String property, long defaultBudget, LoginFixture fixture, FakeUser user,
+            FlowStatus expected) {
+        long budget = Long.getLong(property, defaultBudget);
+        FakeFlowContext context = fixture.begin(user);
+        authenticator.authenticate(context);
+        assertEquals(expected, context.getStatus());
+
+        bytesPerCall(fixture, user, WARMUP_CALLS);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS && best > budget; round++) {
+            best = Math.min(best, bytesPerCall(fixture, user, CALLS_PER_ROUND));
+        }
+        assertTrue(best <= budget, "authenticate() allocates " + best + " bytes per call, budget " + property
+                + " is " + budget);
+    }
+
+    /**
+     * Returns the average bytes allocated by {@code authenticate()} alone, leaving out the fixture's reset.
+     */
+    private long bytesPerCall(LoginFixture fixture, FakeUser user, int calls) {
+        long allocated = 0;
+        for (int i = 0; i < calls; i++) {
+            FakeFlowContext context = fixture.begin(user);
+            long before = threads.getCurrentThreadAllocatedBytes();
+            authenticator.authenticate(context);
+            allocated += threads.getCurrentThreadAllocatedBytes() - before;
+        }
+        return allocated / calls;
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeUser;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class AttributeConditionTest {
+
+    private static final long NOW = LocalDate.of(2025, 3, 10).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli()
+            + 1;
+
+    @Test
+    void testCompile_LegacyEntriesComeFirstAndAttributesShareSlots() {
+        AttributeCondition condition = AttributeCondition.compile(Map.of("department", "it"),
+                "department in (it, security) && employmentEnd within 7d\n##costCenter ^= 42");
+
+        assertEquals(List.of("department", "employmentEnd", "costCenter"), condition.attributes());
+        assertTrue(AttributeCondition.compile(Map.of(), " \n").isEmpty());
+    }
+
+    @Test
+    void testMatches_EvaluatesEachOperator() {
+        Map<String, String> user = Map.of(
+                "type", "contractor",
+                "email", "alice@example.com",
+                "level", "7",
+                "end", "2025-03-14",
+                "start", "2024-11-02T08:00:00Z",
+                "seen", String.valueOf(NOW - 40L * 24 * 3600 * 1000));
+
+        assertMatches(true, user, "type = contractor");
+        assertMatches(false, user, "type != contractor");
+        assertMatches(true, user, "email ^= alice@");
+        assertMatches(true, user, "email ~ .+@example\\.(com|org)");
+        assertMatches(false, user, "email ~ example");
+        assertMatches(true, user, "level >= 7 && level < 8");
+        assertMatches(false, user, "level > 7");
+        assertMatches(true, user, "type in (employee, contractor)");
+        assertMatches(false, user, "type not in employee,contractor");
+        assertMatches(true, user, "end within 7d");
+        assertMatches(false, user, "end within 3d");
+        assertMatches(true, user, "start before 2025-01-01 && start after 2024-11-01");
+        assertMatches(true, user, "seen within -60d");
+        assertMatches(false, user, "seen within -30d");
+        assertMatches(true, user, "level > 9\ntype = contractor");
+    }
+
+    @Test
+    void testMatches_MissingOrUnparsableAttributeFailsEveryTest() {
+        Map<String, String> user = Map.of("level", "high", "end", "2025-02-30");
+
+        assertMatches(false, user, "missing != x");
+        assertMatches(false, user, "missing not in (a)");
+        assertMatches(false, user, "level < 100");
+        assertMatches(false, user, "end within -30d");
+    }
+
+    @Test
+    void testCompile_RejectsInvalidConditions() {
+        for (String invalid : List.of("department", "level > high", "email ~ (", "end before tomorrow",
+                "end within a week", "type in ()")) {
+            assertThrows(IllegalArgumentException.class, () -> AttributeCondition.compile(Map.of(), invalid),
+                    invalid);
+        }
+    }
+
+    @Test
+    void testCompile_PolicyIgnoresUnparsableAlternative() {
+        EnrollmentPolicy policy = EnrollmentPolicy.compile(Map.of("skip_if_attribute",
+                "level > high && team = ops##type = contractor##email ~ (", "skip_if_attribute_equals", "dept=it"),
+                "mfa");
+
+        assertEquals(List.of("dept", "type"), policy.skipIfAttribute().attributes());
+        assertTrue(policy.skipIfAttribute().matches(snapshot(policy, Map.of("type", "contractor")), NOW));
+        assertTrue(policy.skipIfAttribute().matches(snapshot(policy, Map.of("dept", "it")), NOW));
+        assertFalse(policy.skipIfAttribute().matches(
+                snapshot(policy, Map.of("level", "9", "team", "ops", "email", "(")), NOW));
+    }
+
+    @Test
+    void testCompile_ReportsUnparsableAlternative() {
+        List<String> rejected = new ArrayList<>();
+
+        AttributeCondition condition = AttributeCondition.compile(Map.of(), "level > high\ntype = contractor",
+                (alternative, ex) -> rejected.add(alternative));
+
+        assertEquals(List.of("level > high"), rejected);
+        assertEquals(List.of("type"), condition.attributes());
+    }
+
+    @Test
+    void testEpochDay_MatchesLocalDate() {
+        for (String date : List.of("1970-01-01", "1969-12-31", "2000-02-29", "2024-03-01", "2100-12-31")) {
+            assertEquals(LocalDate.parse(date).toEpochDay(), AttributeCondition.epochDay(date), date);
+        }
+    }
+
+    @Test
+    void testMatches_DoesNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "per-thread allocation counters are HotSpot specific");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+                "per-thread allocation counters are disabled");
+        EnrollmentPolicy policy = EnrollmentPolicy.compile(Map.of("skip_if_attribute",
+                "type in (employee, vendor) && end within 7d\nemail ~ .+@example\\.org\nlevel >= 9"));
+        UserAttributeSnapshot snapshot = snapshot(policy, Map.of(
+                "type", "contractor", "email", "alice@example.com", "level", "7", "end", "2025-03-14"));
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 10 && best > 0; round++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < 20_000; i++) {
+                assertFalse(policy.skipIfAttribute().matches(snapshot, NOW));
+            }
+            best = Math.min(best, (threads.getCurrentThreadAllocatedBytes() - before) / 20_000);
+        }
+        assertEquals(0, best);
+    }
+
+    private static void assertMatches(boolean expected, Map<String, String> attributes, String conditions) {
+        EnrollmentPolicy policy = EnrollmentPolicy.compile(Map.of("skip_if_attribute", conditions));
+        assertEquals(expected, policy.skipIfAttribute().matches(snapshot(policy, attributes), NOW), conditions);
+    }
+
+    private static UserAttributeSnapshot snapshot(EnrollmentPolicy policy, Map<String, String> attributes) {
+        FakeUser user = new FakeUser("user-1", "alice");
+        attributes.forEach(user::setSingleAttribute);
+        return UserAttributeSnapshot.read(user, policy.attributeKeys());
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeClient;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientMatcherTest {
+
+    @Test
+    void testMatches_ExactEntriesAndPrefixes() {
+        ClientMatcher matcher = ClientMatcher.compile(List.of("admin-portal", "partner-*", "partner-eu-*", "p"));
+
+        assertTrue(matcher.matches("admin-portal"));
+        assertFalse(matcher.matches("admin-portal-2"));
+        assertTrue(matcher.matches("partner-"));
+        assertTrue(matcher.matches("partner-acme"));
+        assertTrue(matcher.matches("partner-eu-acme"));
+        assertTrue(matcher.matches("p"));
+        assertFalse(matcher.matches("partner"));
+        assertFalse(matcher.matches("pa"));
+        assertFalse(matcher.matches((String) null));
+    }
+
+    @Test
+    void testMatches_GlobsWithInnerOrLeadingWildcards() {
+        ClientMatcher matcher = ClientMatcher.compile(List.of("*-prod", "team-*-console"));
+
+        assertTrue(matcher.matches("billing-prod"));
+        assertTrue(matcher.matches("-prod"));
+        assertFalse(matcher.matches("billing-prod-2"));
+        assertTrue(matcher.matches("team-ops-console"));
+        assertTrue(matcher.matches("team-a-b-console"));
+        assertFalse(matcher.matches("team-console"));
+        assertTrue(ClientMatcher.compile(List.of("*")).matches("anything"));
+    }
+
+    @Test
+    void testMatches_ClientIdOrInternalId() {
+        FakeClient client = new FakeClient("5f0c-internal", "billing-prod", null);
+
+        assertTrue(ClientMatcher.compile(List.of("billing-*")).matches(client));
+        assertTrue(ClientMatcher.compile(List.of("5f0c-internal")).matches(client));
+        assertFalse(ClientMatcher.compile(List.of("account-console")).matches(client));
+        assertTrue(ClientMatcher.compile(List.of()).isEmpty());
+    }
+}
@@ -0,0 +1,236 @@
+package com.github.nooop3;
+
+import com.github.nooop3.EnrollmentMetrics.Outcome;
+import com.github.nooop3.fakes.FakeSession;
+import com.github.nooop3.fakes.FakeUser;
+import com.github.nooop3.fakes.LoginFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.credential.OTPCredentialModel;
+import org.keycloak.models.credential.RecoveryAuthnCodesCredentialModel;
+import org.keycloak.models.credential.WebAuthnCredentialModel;
+import org.keycloak.util.JsonSerialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComplianceReportTest {
+
+    private static final int USERS = 1050;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final LoginFixture fixture = LoginFixture.create(Map.of());
+    private final MfaEnrollmentAuthenticator authenticator = new MfaEnrollmentAuthenticator(
+            new EnrollmentPolicyCache(), new RoleTargetingIndex(), MfaMethodCatalog.builtIn());
+    private final NavigableMap<String, FakeUser> users = new TreeMap<>();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testWrite_CountsEveryUserOnce() throws IOException {
+        createUsers();
+        EnrollmentPolicy policy = EnrollmentPolicy.compile(Map.of("only_for_clients", "some-other-client"));
+
+        List<Map<String, Object>> lines = run(new ComplianceReport(evaluator(policy), 100, 3, executor));
+
+        Map<String, Object> last = lines.get(lines.size() - 1);
+        assertEquals(true, last.get("done"));
+        assertEquals(USERS, ((Number) last.get("evaluated")).intValue());
+        // Client targeting reads the login request, so it does not exclude anyone here.
+        assertEquals(Map.of("compliant", 350, "form_rendered", 700), last.get("outcomes"));
+        long previous = -1;
+        for (Map<String, Object> line : lines) {
+            long evaluated = ((Number) line.get("evaluated")).longValue();
+            assertTrue(evaluated >= previous);
+            previous = evaluated;
+        }
+    }
+
+    @Test
+    void testWrite_BoundsPagesInFlight() throws IOException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ComplianceReport.UserPages pages = new NumberedPages(2_000) {
+            @Override
+            public long[] evaluate(List<String> userIds) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                return super.evaluate(userIds);
+            }
+        };
+
+        List<Map<String, Object>> lines = run(new ComplianceReport(pages, 10, 4, executor));
+
+        assertTrue(maxInFlight.get() <= 4, "max in flight " + maxInFlight.get());
+        assertEquals(2_000, ((Number) lines.get(lines.size() - 1).get("evaluated")).intValue());
+    }
+
+    @Test
+    void testWrite_ReportsFailedPage() throws IOException {
+        ComplianceReport.UserPages pages = new NumberedPages(100) {
+            @Override
+            public long[] evaluate(List<String> userIds) {
+                if (userIds.contains(id(20))) {
+                    throw new IllegalStateException("database unavailable");
+                }
+                return super.evaluate(userIds);
+            }
+        };
+
+        List<Map<String, Object>> lines = run(new ComplianceReport(pages, 10, 2, executor));
+
+        Map<String, Object> last = lines.get(lines.size() - 1);
+        assertNotNull(last.get("error"));
+        assertNull(last.get("done"));
+    }
+
+    @Test
+    void testWrite_PagesByIdSoDeletedUsersDoNotShiftLaterPages() throws IOException {
+        createUsers();
+        EnrollmentPolicy policy = EnrollmentPolicy.compile(Map.of());
+        ComplianceReport.UserPages delegate = evaluator(policy);
+        ComplianceReport.UserPages pages = new ComplianceReport.UserPages() {
+            @Override
+            public List<String> idsAfter(String afterUserId, int max) {
+                List<String> ids = delegate.idsAfter(afterUserId, max);
+                // Users earlier in the realm are deleted while the report runs.
+                if (afterUserId != null) {
+                    users.headMap(afterUserId, true).pollFirstEntry();
+                }
+                return ids;
+            }
+
+            @Override
+            public long[] evaluate(List<String> userIds) {
+                return delegate.evaluate(userIds);
+            }
+        };
+
+        List<Map<String, Object>> lines = run(new ComplianceReport(pages, 100, 1, executor));
+
+        Map<String, Object> last = lines.get(lines.size() - 1);
+        assertEquals(true, last.get("done"));
+        assertEquals(USERS, ((Number) last.get("evaluated")).intValue());
+    }
+
+    @Test
+    void testWrite_ReportsFailedIdRead() throws IOException {
+        ComplianceReport.UserPages pages = new NumberedPages(100) {
+            @Override
+            public List<String> idsAfter(String afterUserId, int max) {
+                if (afterUserId != null) {
+                    throw new IllegalStateException("database unavailable");
+                }
+                return super.idsAfter(afterUserId, max);
+            }
+        };
+
+        List<Map<String, Object>> lines = run(new ComplianceReport(pages, 10, 2, executor));
+
+        Map<String, Object> last = lines.get(lines.size() - 1);
+        assertNotNull(last.get("error"));
+        assertNull(last.get("done"));
+    }
+
+    @Test
+    void testEvaluate_WritesNoState() {
+        FakeUser user = fixture.user("user-1");
+        EnrollmentPolicy policy = EnrollmentPolicy.compile(Map.of("remind_every_days", "7",
+                "enforce_on_first_login_only", "true"));
+
+        assertEquals(Outcome.FORM_RENDERED, authenticator.evaluate(fixture.session(), fixture.realm(), user, policy));
+        fixture.commit();
+
+        assertTrue(user.getAttributes().isEmpty());
+        assertEquals(Outcome.FORM_RENDERED, authenticator.evaluate(fixture.session(), fixture.realm(), user, policy));
+    }
+
+    private void createUsers() {
+        for (int i = 0; i < USERS; i++) {
+            users.put("user-" + i, i % 3 == 0
+                    ? fixture.user("user-" + i, OTPCredentialModel.TYPE, WebAuthnCredentialModel.TYPE_TWOFACTOR,
+                            RecoveryAuthnCodesCredentialModel.TYPE)
+                    : fixture.user("user-" + i));
+        }
+    }
+
+    private ComplianceReport.UserPages evaluator(EnrollmentPolicy policy) {
+        return new ComplianceReport.UserPages() {
+            @Override
+            public List<String> idsAfter(String afterUserId, int max) {
+                NavigableMap<String, FakeUser> rest = afterUserId == null ? users : users.tailMap(afterUserId, false);
+                return rest.keySet().stream().limit(max).toList();
+            }
+
+            @Override
+            public long[] evaluate(List<String> userIds) {
+                FakeSession session = new FakeSession();
+                long[] counts = new long[Outcome.values().length];
+                for (String id : userIds) {
+                    FakeUser user = users.get(id);
+                    if (user != null) {
+                        counts[authenticator.evaluate(session, fixture.realm(), user, policy).ordinal()]++;
+                    }
+                }
+                return counts;
+            }
+        };
+    }
+
+    /** Pages over {@code size} users with ordered ids, all compliant. */
+    private static class NumberedPages implements ComplianceReport.UserPages {
+        private final int size;
+
+        NumberedPages(int size) {
+            this.size = size;
+        }
+
+        static String id(int index) {
+            return String.format("user-%05d", index);
+        }
+
+        @Override
+        public List<String> idsAfter(String afterUserId, int max) {
+            int from = afterUserId == null ? 0 : Integer.parseInt(afterUserId.substring(5)) + 1;
+            return IntStream.range(from, Math.min(size, from + max)).mapToObj(NumberedPages::id).toList();
+        }
+
+        @Override
+        public long[] evaluate(List<String> userIds) {
+            long[] counts = new long[Outcome.values().length];
+            counts[Outcome.COMPLIANT.ordinal()] = userIds.size();
+            return counts;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> run(ComplianceReport report) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.write(out);
+        List<Map<String, Object>> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(JsonSerialization.readValue(line, Map.class));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.nooop3;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.credential.CredentialModel;
+import org.keycloak.models.SubjectCredentialManager;
+import org.keycloak.models.UserModel;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CredentialTypeSummaryTest {
+
+    private static final Set<String> CANDIDATES = Set.of("otp", "webauthn", "recovery-authn-codes");
+
+    @Mock
+    private UserModel user;
+    @Mock
+    private SubjectCredentialManager credentialManager;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(user.credentialManager()).thenReturn(credentialManager);
+    }
+
+    @Test
+    void testConfiguredTypes_ReturnsCandidateTypesOnly() {
+        when(credentialManager.getStoredCredentialsStream())
+                .thenReturn(Stream.of(credential("password"), credential("webauthn"), credential("webauthn")));
+
+        Set<String> types = CredentialTypeSummary.configuredTypes(user, CANDIDATES);
+
+        assertEquals(Set.of("webauthn"), types);
+    }
+
+    @Test
+    void testConfiguredTypes_StopsOnceEveryCandidateSeen() {
+        AtomicInteger consumed = new AtomicInteger();
+        when(credentialManager.getStoredCredentialsStream())
+                .thenReturn(Stream.of(credential("otp"), credential("webauthn"), credential("recovery-authn-codes"),
+                        credential("password"), credential("otp")).peek(c -> consumed.incrementAndGet()));
+
+        Set<String> types = CredentialTypeSummary.configuredTypes(user, CANDIDATES);
+
+        assertEquals(CANDIDATES, types);
+        assertEquals(3, consumed.get());
+    }
+
+    @Test
+    void testConfiguredTypes_NoCandidatesSkipsCredentialLookup() {
+        assertEquals(Set.of(), CredentialTypeSummary.configuredTypes(user, Set.of()));
+        verify(user, never()).credentialManager();
+    }
+
+    private static CredentialModel credential(String type) {
+        CredentialModel credential = new CredentialModel();
+        credential.setType(type);
+        return credential;
+    }
+}
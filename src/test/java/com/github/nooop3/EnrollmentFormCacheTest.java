@@ -0,0 +1,147 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeRealm;
+import com.github.nooop3.fakes.FakeSession;
+import com.github.nooop3.fakes.FakeTheme;
+import com.github.nooop3.fakes.FakeUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.events.admin.OperationType;
+import org.keycloak.events.admin.ResourceType;
+import org.keycloak.theme.Theme;
+import org.keycloak.theme.ThemeSelectorProvider;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnrollmentFormCacheTest {
+
+    private final MfaMethodCatalog catalog = MfaMethodCatalog.builtIn();
+    private final EnrollmentPolicy policy = EnrollmentPolicy.compile(Map.of("enabled_mfa_types", "webauthn,otp"));
+    private final long otp = catalog.bit("otp");
+    private final long webauthn = catalog.bit("webauthn");
+    private final FakeUser user = new FakeUser("user-1", "alice");
+    private FakeTheme theme;
+    private FakeSession session;
+    private FakeRealm realm;
+
+    @BeforeEach
+    void setUp() {
+        theme = new FakeTheme()
+                .withMessage(Locale.GERMAN, EnrollmentFormCache.MSG_TITLE, "Anmeldung besser absichern")
+                .withMessage(Locale.GERMAN, "mfaEnrollmentMethod.otp.label", "Authenticator-App");
+        session = new FakeSession().withThemes(theme.manager());
+        realm = new FakeRealm("realm-id", "test");
+    }
+
+    @Test
+    void testResolve_BuildsModelInPolicyOrderOnce() {
+        EnrollmentFormCache cache = new EnrollmentFormCache(catalog);
+
+        EnrollmentFormCache.Model model = cache.resolve(session, realm, user, policy, otp | webauthn, otp, otp,
+                false);
+
+        assertEquals(List.of("webauthn", "otp"), model.methods().stream().map(v -> v.getId()).toList());
+        assertFalse(model.methods().get(0).isAvailable());
+        assertTrue(model.methods().get(1).isConfigured());
+        assertFalse(model.hasSelectable());
+        assertEquals("Set up more sign-in protection", model.title());
+        assertEquals("Authenticator app (TOTP)", model.methods().get(1).getLabel());
+        assertSame(model, cache.resolve(session, realm, user, policy, otp | webauthn, otp, otp, false));
+        assertEquals(1, theme.reads());
+        assertThrows(UnsupportedOperationException.class, () -> model.methods().clear());
+    }
+
+    @Test
+    void testResolve_LocalizesFromThemeMessagesPerLocale() {
+        EnrollmentFormCache cache = new EnrollmentFormCache(catalog);
+        realm.setDefaultLocale("de");
+
+        EnrollmentFormCache.Model german = cache.resolve(session, realm, user, policy, otp, 0L, otp, false);
+        realm.setDefaultLocale("en");
+        EnrollmentFormCache.Model english = cache.resolve(session, realm, user, policy, otp, 0L, otp, false);
+
+        assertEquals("Anmeldung besser absichern", german.title());
+        assertEquals("Authenticator-App", german.methods().get(0).getLabel());
+        // Keys missing from the bundle fall back to the method's own text.
+        assertEquals("Use an authenticator application to generate one-time codes.",
+                german.methods().get(0).getDescription());
+        assertEquals("Authenticator app (TOTP)", english.methods().get(0).getLabel());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testResolve_FormatsThemeMessagesLikeTheTheme() {
+        theme.withMessage(Locale.ENGLISH, EnrollmentFormCache.MSG_OPT_OUT, "Don''t ask again")
+                .withMessage(Locale.ENGLISH, EnrollmentFormCache.MSG_TITLE, "Protect '{0}'");
+        EnrollmentFormCache cache = new EnrollmentFormCache(catalog);
+
+        EnrollmentFormCache.Model model = cache.resolve(session, realm, user, policy, otp, 0L, otp, false);
+
+        assertEquals("Don't ask again", model.optOutLabel());
+        assertEquals("Protect {0}", model.title());
+        // Fallbacks are plain text, not patterns.
+        assertEquals("Authenticator app (TOTP)", model.methods().get(0).getLabel());
+    }
+
+    @Test
+    void testResolve_KeepsSeparateModelsPerLoginTheme() {
+        EnrollmentFormCache cache = new EnrollmentFormCache(catalog);
+        LoginThemeSelector selector = new LoginThemeSelector();
+        session.withProvider(ThemeSelectorProvider.class, selector);
+
+        selector.name = "keycloak.v2";
+        EnrollmentFormCache.Model defaultTheme = cache.resolve(session, realm, user, policy, otp, 0L, otp, false);
+        selector.name = "partner";
+        EnrollmentFormCache.Model clientTheme = cache.resolve(session, realm, user, policy, otp, 0L, otp, false);
+
+        assertNotSame(defaultTheme, clientTheme);
+        assertEquals(2, theme.reads());
+        selector.name = "keycloak.v2";
+        assertSame(defaultTheme, cache.resolve(session, realm, user, policy, otp, 0L, otp, false));
+    }
+
+    @Test
+    void testResolve_EvictsLeastRecentlyUsed() {
+        EnrollmentFormCache cache = new EnrollmentFormCache(catalog, 2);
+        EnrollmentFormCache.Model first = cache.resolve(session, realm, user, policy, otp, 0L, otp, false);
+        cache.resolve(session, realm, user, policy, webauthn, 0L, otp, false);
+
+        assertSame(first, cache.resolve(session, realm, user, policy, otp, 0L, otp, false));
+        cache.resolve(session, realm, user, policy, otp | webauthn, 0L, otp, false);
+
+        assertEquals(2, cache.size());
+        assertSame(first, cache.resolve(session, realm, user, policy, otp, 0L, otp, false));
+        assertEquals(3, theme.reads());
+    }
+
+    @Test
+    void testOnEvent_RealmUpdateInvalidatesRealm() {
+        EnrollmentFormCache cache = new EnrollmentFormCache(catalog);
+        cache.resolve(session, realm, user, policy, otp, 0L, otp, false);
+
+        cache.onEvent(new AdminResourceChangedEvent(realm.getId(), ResourceType.REQUIRED_ACTION,
+                OperationType.UPDATE));
+        assertEquals(1, cache.size());
+
+        cache.onEvent(new AdminResourceChangedEvent(realm.getId(), ResourceType.REALM, OperationType.UPDATE));
+        assertEquals(0, cache.size());
+    }
+
+    /** Stands in for the default selector, which picks the login theme from the client. */
+    private static final class LoginThemeSelector implements ThemeSelectorProvider {
+        private String name;
+
+        @Override
+        public String getThemeName(Theme.Type type) {
+            return name;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
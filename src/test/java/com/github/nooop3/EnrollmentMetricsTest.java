@@ -0,0 +1,119 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeFlowContext;
+import com.github.nooop3.fakes.FakeRealm;
+import com.github.nooop3.fakes.FakeUser;
+import com.github.nooop3.fakes.LoginFixture;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.authentication.FlowStatus;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.credential.OTPCredentialModel;
+import org.keycloak.models.credential.PasswordCredentialModel;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnrollmentMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private EnrollmentMetrics metrics;
+    private MfaEnrollmentAuthenticator authenticator;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new EnrollmentMetrics(registry);
+        MfaMethodCatalog catalog = MfaMethodCatalog.builtIn();
+        authenticator = new MfaEnrollmentAuthenticator(new EnrollmentPolicyCache(), new RoleTargetingIndex(),
+                new GroupTargetingIndex(), catalog, new MethodAvailabilityCache(catalog),
+                new EnrollmentFormCache(catalog), new UserAttributeStateStore(), metrics);
+    }
+
+    @Test
+    void testAuthenticate_CountsOutcomePerRealm() {
+        LoginFixture fixture = LoginFixture.create(Map.of("offer_configure_additional_methods", "false"));
+        FakeUser compliant = fixture.user("compliant", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE);
+        FakeUser newcomer = fixture.user("newcomer", PasswordCredentialModel.TYPE);
+
+        authenticator.authenticate(fixture.begin(compliant));
+        authenticator.authenticate(fixture.begin(compliant));
+        FakeFlowContext context = fixture.begin(newcomer);
+        authenticator.authenticate(context);
+
+        assertEquals(FlowStatus.CHALLENGE, context.getStatus());
+        assertEquals(2.0, decisions("compliant"));
+        assertEquals(1.0, decisions("form_rendered"));
+        assertEquals(0.0, decisions("skipped_rollout"));
+        assertEquals(3, registry.get(EnrollmentMetrics.STEP_DURATION).tag("realm", "test")
+                .tag("step", "policy_evaluation").timer().count());
+        assertEquals(1, registry.get(EnrollmentMetrics.STEP_DURATION).tag("step", "form_rendering").timer().count());
+    }
+
+    @Test
+    void testOnEvent_RealmRemovalDropsMeters() {
+        LoginFixture fixture = LoginFixture.create(Map.of());
+        metrics.forRealm(fixture.realm());
+        assertFalse(registry.getMeters().isEmpty());
+
+        metrics.onEvent(new RealmModel.RealmRemovedEvent() {
+            @Override
+            public RealmModel getRealm() {
+                return fixture.realm();
+            }
+
+            @Override
+            public KeycloakSession getKeycloakSession() {
+                return fixture.session();
+            }
+        });
+
+        assertTrue(registry.getMeters().isEmpty());
+    }
+
+    @Test
+    void testForRealm_RenameRetagsMeters() {
+        metrics.forRealm(new FakeRealm("realm-id", "before")).count(EnrollmentMetrics.Outcome.COMPLIANT);
+        EnrollmentMetrics.RealmMeters renamed = metrics.forRealm(new FakeRealm("realm-id", "after"));
+        renamed.count(EnrollmentMetrics.Outcome.COMPLIANT);
+
+        assertNull(registry.find(EnrollmentMetrics.DECISIONS).tag("realm", "before").counter());
+        assertEquals(1.0, registry.get(EnrollmentMetrics.DECISIONS).tag("realm", "after")
+                .tag("outcome", "compliant").counter().count());
+        assertSame(renamed, metrics.forRealm(new FakeRealm("realm-id", "after")));
+    }
+
+    @Test
+    void testForRealm_PercentileHistogramsAreOptIn() {
+        assertFalse(publishesHistogram(false));
+        assertTrue(publishesHistogram(true));
+    }
+
+    private static boolean publishesHistogram(boolean enabled) {
+        SimpleMeterRegistry observed = new SimpleMeterRegistry();
+        AtomicBoolean histogram = new AtomicBoolean();
+        observed.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (EnrollmentMetrics.STEP_DURATION.equals(id.getName())) {
+                    histogram.set(Boolean.TRUE.equals(config.isPublishingHistogram()));
+                }
+                return config;
+            }
+        });
+        new EnrollmentMetrics(observed, enabled).forRealm(new FakeRealm("realm-id", "test"));
+        return histogram.get();
+    }
+
+    private double decisions(String outcome) {
+        return registry.get(EnrollmentMetrics.DECISIONS).tag("realm", "test").tag("outcome", outcome).counter()
+                .count();
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.nooop3;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.AuthenticatorConfigModel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnrollmentPolicyCacheTest {
+
+    private EnrollmentPolicyCache cache;
+    private AuthenticatorConfigModel model;
+    private Map<String, String> config;
+
+    @BeforeEach
+    void setUp() {
+        cache = new EnrollmentPolicyCache();
+        config = new HashMap<>();
+        config.put("min_required_mfa_methods", "2");
+        config.put("only_for_clients", "admin-portal,prod-dashboard");
+        model = new AuthenticatorConfigModel();
+        model.setId("cfg-1");
+        model.setConfig(config);
+    }
+
+    @Test
+    void testResolve_ReusesCompiledPolicy() {
+        EnrollmentPolicy first = cache.resolve(model);
+        EnrollmentPolicy second = cache.resolve(model);
+
+        assertSame(first, second);
+        assertEquals(2, first.minRequiredMfaMethods());
+        assertTrue(first.onlyForClients().matches("prod-dashboard"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testResolve_RecompilesWhenConfigEdited() {
+        EnrollmentPolicy first = cache.resolve(model);
+
+        config.put("min_required_mfa_methods", "3");
+        EnrollmentPolicy edited = cache.resolve(model);
+
+        assertNotSame(first, edited);
+        assertEquals(3, edited.minRequiredMfaMethods());
+    }
+
+    @Test
+    void testResolve_MatchesEqualConfigFromFreshModel() {
+        EnrollmentPolicy first = cache.resolve(model);
+
+        AuthenticatorConfigModel reloaded = new AuthenticatorConfigModel();
+        reloaded.setId("cfg-1");
+        reloaded.setConfig(new HashMap<>(config));
+
+        assertSame(first, cache.resolve(reloaded));
+    }
+
+    @Test
+    void testResolve_DefaultsWithoutConfig() {
+        assertSame(EnrollmentPolicy.DEFAULTS, cache.resolve(null));
+        assertEquals(EnrollmentPolicy.DEFAULT_ENABLED_TYPES, EnrollmentPolicy.DEFAULTS.enabledMfaTypes());
+        assertEquals(0, cache.size());
+    }
+}
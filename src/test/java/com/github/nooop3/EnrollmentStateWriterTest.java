@@ -0,0 +1,78 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeSession;
+import com.github.nooop3.fakes.FakeUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnrollmentStateWriterTest {
+
+    private FakeSession session;
+    private CountingUser user;
+
+    @BeforeEach
+    void setUp() {
+        session = new FakeSession();
+        user = new CountingUser();
+    }
+
+    @Test
+    void testForUser_SharesOneTransactionPerUserAndRequest() {
+        EnrollmentStateWriter first = EnrollmentStateWriter.forUser(session, user);
+        EnrollmentStateWriter second = EnrollmentStateWriter.forUser(session, user);
+
+        assertSame(first, second);
+        assertEquals(1, session.getTransactionManager().pending());
+    }
+
+    @Test
+    void testCommit_CoalescesWritesAndSkipsUnchangedValues() {
+        user.setAttribute("mfaEnrollment.firstLoginCompleted", List.of("true"));
+        user.writes = 0;
+
+        EnrollmentStateWriter writer = EnrollmentStateWriter.forUser(session, user);
+        writer.set("mfaEnrollment.lastPrompt", "1");
+        writer.set("mfaEnrollment.lastPrompt", "2");
+        writer.set("mfaEnrollment.firstLoginCompleted", "true");
+        assertEquals(0, user.writes);
+
+        session.endRequest();
+
+        assertEquals(1, user.writes);
+        assertEquals("2", user.getFirstAttribute("mfaEnrollment.lastPrompt"));
+    }
+
+    @Test
+    void testRollback_DiscardsBufferedWrites() {
+        EnrollmentStateWriter.forUser(session, user).set("mfaEnrollment.lastPrompt", "1");
+
+        session.getTransactionManager().rollback();
+
+        assertEquals(0, user.writes);
+        assertNull(user.getFirstAttribute("mfaEnrollment.lastPrompt"));
+    }
+
+    private static class CountingUser extends FakeUser {
+        int writes;
+
+        CountingUser() {
+            super("user-1", "alice");
+        }
+
+        @Override
+        public void setSingleAttribute(String name, String value) {
+            writes++;
+            super.setSingleAttribute(name, value);
+        }
+
+        @Override
+        public void setAttribute(String name, List<String> values) {
+            writes++;
+            super.setAttribute(name, values);
+        }
+    }
+}
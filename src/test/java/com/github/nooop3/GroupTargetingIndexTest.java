@@ -0,0 +1,108 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeGroup;
+import com.github.nooop3.fakes.FakeRealm;
+import com.github.nooop3.fakes.FakeUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupTargetingIndexTest {
+
+    private CountingRealm realm;
+    private GroupTargetingIndex index;
+    private FakeUser user;
+    private FakeGroup acme;
+    private FakeGroup acmeOps;
+    private FakeGroup acmeContractors;
+    private FakeGroup globex;
+
+    @BeforeEach
+    void setUp() {
+        realm = new CountingRealm();
+        FakeGroup tenants = realm.addGroup("tenants", null);
+        acme = realm.addGroup("acme", tenants);
+        acmeOps = realm.addGroup("ops", acme);
+        acmeContractors = realm.addGroup("contractors", acme);
+        globex = realm.addGroup("globex", tenants);
+        index = new GroupTargetingIndex();
+        user = new FakeUser("user-1", "alice");
+    }
+
+    @Test
+    void testSubtrees_IncludesNestedGroupsAndReadsTreeOnce() {
+        Set<String> first = index.subtrees(realm, Set.of("/tenants/acme"));
+        Set<String> second = index.subtrees(realm, Set.of("tenants/globex", "/missing"));
+
+        assertEquals(Set.of(acme.getId(), acmeOps.getId(), acmeContractors.getId()), first);
+        assertEquals(Set.of(globex.getId()), second);
+        assertSame(first, index.subtrees(realm, Set.of("/tenants/acme")));
+        assertEquals(1, realm.reads);
+    }
+
+    @Test
+    void testExcludes_MembershipOfSubgroupCounts() {
+        user.joinGroup(acmeOps);
+
+        assertFalse(index.excludes(realm, user, Set.of("/tenants/acme"), Set.of()));
+        assertTrue(index.excludes(realm, user, Set.of("/tenants/globex"), Set.of()));
+        assertTrue(index.excludes(realm, user, Set.of(), Set.of("/tenants")));
+    }
+
+    @Test
+    void testExcludes_ExclusionWinsOverTargeting() {
+        user.joinGroup(acmeOps);
+        user.joinGroup(acmeContractors);
+
+        assertTrue(index.excludes(realm, user, Set.of("/tenants/acme"), Set.of("/tenants/acme/contractors")));
+        assertTrue(index.excludes(realm, user, Set.of("/missing"), Set.of()));
+        assertFalse(index.excludes(realm, user, Set.of(), Set.of("/missing")));
+    }
+
+    @Test
+    void testOnEvent_GroupCreationInvalidatesRealm() {
+        assertEquals(Set.of(), index.subtrees(realm, Set.of("/tenants/initech")));
+
+        FakeGroup initech = realm.addGroup("initech", (FakeGroup) acme.getParent());
+        index.onEvent(new GroupModel.GroupCreatedEvent() {
+            @Override
+            public RealmModel getRealm() {
+                return realm;
+            }
+
+            @Override
+            public GroupModel getGroup() {
+                return initech;
+            }
+
+            @Override
+            public KeycloakSession getKeycloakSession() {
+                return null;
+            }
+        });
+
+        assertEquals(Set.of(initech.getId()), index.subtrees(realm, Set.of("/tenants/initech")));
+        assertEquals(2, realm.reads);
+    }
+
+    private static class CountingRealm extends FakeRealm {
+        int reads;
+
+        CountingRealm() {
+            super("realm-id", "test");
+        }
+
+        @Override
+        public Stream<GroupModel> getGroupsStream() {
+            reads++;
+            return super.getGroupsStream();
+        }
+    }
+}
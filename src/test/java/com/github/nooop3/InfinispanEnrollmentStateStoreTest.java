@@ -0,0 +1,136 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeRealm;
+import com.github.nooop3.fakes.FakeSession;
+import com.github.nooop3.fakes.FakeUser;
+import org.infinispan.Cache;
+import org.infinispan.CacheSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.connections.infinispan.InfinispanConnectionProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.provider.Provider;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InfinispanEnrollmentStateStoreTest {
+
+    private static final String KEY = "realm-id/user-1";
+
+    @Mock
+    private InfinispanConnectionProvider infinispan;
+    @Mock
+    private Cache<String, String> cache;
+
+    private FakeSession session;
+    private FakeRealm realm;
+    private FakeUser user;
+    private InfinispanEnrollmentStateStore store;
+
+    @BeforeEach
+    void setUp() {
+        session = new FakeSession() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T extends Provider> T getProvider(Class<T> type) {
+                return type == InfinispanConnectionProvider.class ? (T) infinispan : null;
+            }
+        };
+        realm = new FakeRealm("realm-id", "test");
+        user = new FakeUser("user-1", "alice");
+        store = new InfinispanEnrollmentStateStore("mfaEnrollmentState");
+        lenient().when(infinispan.<String, String>getCache("mfaEnrollmentState")).thenReturn(cache);
+    }
+
+    @Test
+    void testSet_RetriesWhenAnotherLoginUpdatedTheEntry() {
+        when(cache.get(KEY)).thenReturn(null, "mfaEnrollment.lastPrompt=1");
+        when(cache.putIfAbsent(anyString(), anyString())).thenReturn("mfaEnrollment.lastPrompt=1");
+        when(cache.replace(KEY, "mfaEnrollment.lastPrompt=1",
+                "mfaEnrollment.lastPrompt=1&mfaEnrollment.firstLoginCompleted=true")).thenReturn(true);
+
+        store.set(session, realm, user, "mfaEnrollment.firstLoginCompleted", "true");
+        session.endRequest();
+
+        verify(cache).replace(KEY, "mfaEnrollment.lastPrompt=1",
+                "mfaEnrollment.lastPrompt=1&mfaEnrollment.firstLoginCompleted=true");
+    }
+
+    @Test
+    void testSet_AppliedOnlyAfterCommit() {
+        store.set(session, realm, user, "mfaEnrollment.lastPrompt", "1");
+
+        assertEquals("1", store.get(session, realm, user, "mfaEnrollment.lastPrompt"));
+        verify(cache, never()).putIfAbsent(anyString(), anyString());
+
+        session.getTransactionManager().rollback();
+
+        verify(cache, never()).putIfAbsent(anyString(), anyString());
+        verify(cache, never()).replace(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void testSet_SkipsUnchangedValue() {
+        when(cache.get(KEY)).thenReturn("mfaEnrollment.firstLoginCompleted=true");
+
+        store.set(session, realm, user, "mfaEnrollment.firstLoginCompleted", "true");
+        session.endRequest();
+
+        assertEquals("true", store.get(session, realm, user, "mfaEnrollment.firstLoginCompleted"));
+        verify(cache, never()).replace(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOnEvent_RealmRemovalDropsRealmEntries() {
+        CacheSet<String> keys = mock(CacheSet.class);
+        when(cache.keySet()).thenReturn(keys);
+
+        store.onEvent(new RealmModel.RealmRemovedEvent() {
+            @Override
+            public RealmModel getRealm() {
+                return realm;
+            }
+
+            @Override
+            public KeycloakSession getKeycloakSession() {
+                return session;
+            }
+        });
+        verify(cache, never()).keySet();
+        session.endRequest();
+
+        ArgumentCaptor<Predicate<String>> filter = ArgumentCaptor.forClass(Predicate.class);
+        verify(keys).removeIf(filter.capture());
+        assertTrue(filter.getValue().test(KEY));
+        assertFalse(filter.getValue().test("other-realm/user-1"));
+    }
+
+    @Test
+    void testEncode_RoundTripsSeparators() {
+        Map<String, String> state = new LinkedHashMap<>();
+        state.put("opt&out=flag", "a b");
+        state.put("mfaEnrollment.lastPrompt", "42");
+
+        assertEquals(state, InfinispanEnrollmentStateStore.decode(InfinispanEnrollmentStateStore.encode(state)));
+    }
+
+    @Test
+    void testGet_UndefinedCacheFails() {
+        InfinispanEnrollmentStateStore missing = new InfinispanEnrollmentStateStore("undefined");
+
+        assertThrows(IllegalStateException.class, () -> missing.get(session, realm, user, "x"));
+    }
+}
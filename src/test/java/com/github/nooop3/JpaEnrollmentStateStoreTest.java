@@ -0,0 +1,92 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeRealm;
+import com.github.nooop3.fakes.FakeSession;
+import com.github.nooop3.fakes.FakeUser;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.provider.Provider;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JpaEnrollmentStateStoreTest {
+
+    @Mock
+    private JpaConnectionProvider jpa;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private TypedQuery<EnrollmentStateEntity> query;
+
+    private FakeSession session;
+    private FakeRealm realm;
+    private FakeUser user;
+    private JpaEnrollmentStateStore store;
+
+    @BeforeEach
+    void setUp() {
+        session = new FakeSession() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T extends Provider> T getProvider(Class<T> type) {
+                return type == JpaConnectionProvider.class ? (T) jpa : null;
+            }
+        };
+        realm = new FakeRealm("realm-id", "test");
+        user = new FakeUser("user-1", "alice");
+        store = new JpaEnrollmentStateStore();
+        when(jpa.getEntityManager()).thenReturn(entityManager);
+        when(entityManager.createNamedQuery(anyString(), eq(EnrollmentStateEntity.class))).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+    }
+
+    @Test
+    void testGet_LoadsUserRowsOncePerRequest() {
+        when(query.getResultStream()).thenReturn(Stream.of(row("mfaEnrollment.lastPrompt", "42")));
+
+        assertEquals("42", store.get(session, realm, user, "mfaEnrollment.lastPrompt"));
+        assertNull(store.get(session, realm, user, "mfaEnrollment.firstLoginCompleted"));
+
+        verify(query, times(1)).getResultStream();
+        assertNull(user.getFirstAttribute("mfaEnrollment.lastPrompt"));
+    }
+
+    @Test
+    void testSet_PersistsNewRowsAndUpdatesExistingOnes() {
+        EnrollmentStateEntity lastPrompt = row("mfaEnrollment.lastPrompt", "42");
+        when(query.getResultStream()).thenReturn(Stream.of(lastPrompt));
+
+        store.set(session, realm, user, "mfaEnrollment.lastPrompt", "43");
+        store.set(session, realm, user, "mfaEnrollment.firstLoginCompleted", "true");
+
+        assertEquals("43", lastPrompt.getValue());
+        ArgumentCaptor<EnrollmentStateEntity> persisted = ArgumentCaptor.forClass(EnrollmentStateEntity.class);
+        verify(entityManager).persist(persisted.capture());
+        assertEquals("mfaEnrollment.firstLoginCompleted", persisted.getValue().getName());
+        assertEquals("realm-id", persisted.getValue().getRealmId());
+        assertEquals("true", store.get(session, realm, user, "mfaEnrollment.firstLoginCompleted"));
+    }
+
+    private EnrollmentStateEntity row(String name, String value) {
+        EnrollmentStateEntity entity = new EnrollmentStateEntity();
+        entity.setUserId(user.getId());
+        entity.setRealmId(realm.getId());
+        entity.setName(name);
+        entity.setValue(value);
+        return entity;
+    }
+}
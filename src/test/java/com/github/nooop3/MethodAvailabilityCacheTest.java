@@ -0,0 +1,64 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeRealm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.events.admin.OperationType;
+import org.keycloak.events.admin.ResourceType;
+import org.keycloak.models.RequiredActionProviderModel;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethodAvailabilityCacheTest {
+
+    private CountingRealm realm;
+    private MfaMethodCatalog catalog;
+    private MethodAvailabilityCache cache;
+
+    @BeforeEach
+    void setUp() {
+        realm = new CountingRealm();
+        realm.withRequiredActions("CONFIGURE_TOTP", "CONFIGURE_RECOVERY_AUTHN_CODES");
+        catalog = MfaMethodCatalog.builtIn();
+        cache = new MethodAvailabilityCache(catalog);
+    }
+
+    @Test
+    void testAvailableMask_LooksUpRequiredActionsOncePerRealm() {
+        long expected = catalog.bit("otp") | catalog.bit("recovery-authn-codes");
+        assertEquals(expected, cache.availableMask(realm));
+        int lookups = realm.lookups;
+
+        assertEquals(expected, cache.availableMask(realm));
+
+        assertEquals(lookups, realm.lookups);
+    }
+
+    @Test
+    void testOnEvent_RequiredActionChangeInvalidatesRealm() {
+        long webauthn = catalog.bit("webauthn");
+        assertEquals(0L, cache.availableMask(realm) & webauthn);
+
+        realm.withRequiredActions("webauthn-register");
+        cache.onEvent(new AdminResourceChangedEvent(realm.getId(), ResourceType.USER, OperationType.UPDATE));
+        assertEquals(0L, cache.availableMask(realm) & webauthn);
+
+        cache.onEvent(new AdminResourceChangedEvent(realm.getId(), ResourceType.REQUIRED_ACTION,
+                OperationType.CREATE));
+        assertEquals(webauthn, cache.availableMask(realm) & webauthn);
+    }
+
+    private static class CountingRealm extends FakeRealm {
+        int lookups;
+
+        CountingRealm() {
+            super("realm-id", "test");
+        }
+
+        @Override
+        public RequiredActionProviderModel getRequiredActionProviderByAlias(String alias) {
+            lookups++;
+            return super.getRequiredActionProviderByAlias(alias);
+        }
+    }
+}
@@ -10,6 +10,8 @@ import org.keycloak.models.AuthenticationExecutionModel;
 import org.keycloak.models.AuthenticatorConfigModel;
 import org.keycloak.models.ClientModel;
 import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakTransaction;
+import org.keycloak.models.KeycloakTransactionManager;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.models.SubjectCredentialManager;
@@ -24,7 +26,9 @@ import jakarta.ws.rs.core.MultivaluedMap;
 import jakarta.ws.rs.core.Response;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -57,6 +61,8 @@ class MfaEnrollmentAuthenticatorTest {
     private SubjectCredentialManager credentialManager;
     @Mock
     private LoginFormsProvider loginFormsProvider;
+    @Mock
+    private KeycloakTransactionManager transactionManager;
 
     private MfaEnrollmentAuthenticator authenticator;
     private Map<String, String> config;
@@ -67,6 +73,7 @@ class MfaEnrollmentAuthenticatorTest {
         config = new HashMap<>();
 
         lenient().when(context.getSession()).thenReturn(session);
+        lenient().when(session.getTransactionManager()).thenReturn(transactionManager);
         lenient().when(context.getRealm()).thenReturn(realm);
         lenient().when(context.getUser()).thenReturn(user);
         lenient().when(context.getExecution()).thenReturn(execution);
@@ -109,7 +116,7 @@ class MfaEnrollmentAuthenticatorTest {
     @Test
     void testAuthenticate_SkipByFirstLoginCompleted() {
         config.put("enforce_on_first_login_only", "true");
-        when(user.getFirstAttribute("mfaEnrollment.firstLoginCompleted")).thenReturn("true");
+        when(user.getAttributes()).thenReturn(Map.of("mfaEnrollment.firstLoginCompleted", List.of("true")));
 
         authenticator.authenticate(context);
         verify(context).success();
@@ -179,6 +186,51 @@ class MfaEnrollmentAuthenticatorTest {
         verify(context).failureChallenge(eq(AuthenticationFlowError.INVALID_USER), any(Response.class));
     }
 
+    @Test
+    void testAction_ExactlyOneCountsDuplicatesOnce() {
+        config.put("selection_mode", "exactly_one");
+
+        MultivaluedMap<String, String> formData = new MultivaluedHashMap<>();
+        formData.addAll("method", "otp", "otp", "not-a-method");
+        when(httpRequest.getDecodedFormParameters()).thenReturn(formData);
+
+        authenticator.action(context);
+
+        verify(authSession).addRequiredAction("CONFIGURE_TOTP");
+        verify(context).success();
+    }
+
+    @Test
+    void testAction_AllUnconfiguredRejectsPartialSelection() {
+        config.put("enabled_mfa_types", "otp,webauthn");
+        config.put("selection_mode", "all_unconfigured");
+
+        MultivaluedMap<String, String> formData = new MultivaluedHashMap<>();
+        formData.add("method", "otp");
+        when(httpRequest.getDecodedFormParameters()).thenReturn(formData);
+
+        authenticator.action(context);
+
+        verify(loginFormsProvider).setAttribute("message", "You must select all unconfigured methods.");
+        verify(context).failureChallenge(eq(AuthenticationFlowError.INVALID_USER), any(Response.class));
+        verify(authSession, never()).addRequiredAction(anyString());
+    }
+
+    @Test
+    void testAction_UpToMaxRejectsTooMany() {
+        config.put("selection_mode", "up_to_max");
+        config.put("max_new_methods_per_login", "1");
+
+        MultivaluedMap<String, String> formData = new MultivaluedHashMap<>();
+        formData.addAll("method", "otp", "webauthn");
+        when(httpRequest.getDecodedFormParameters()).thenReturn(formData);
+
+        authenticator.action(context);
+
+        verify(loginFormsProvider).setAttribute("message", "Select no more than 1 methods.");
+        verify(context).failureChallenge(eq(AuthenticationFlowError.INVALID_USER), any(Response.class));
+    }
+
     @Test
     void testAction_OptOut() {
         config.put("allow_user_opt_out", "true");
@@ -192,7 +244,66 @@ class MfaEnrollmentAuthenticatorTest {
 
         authenticator.action(context);
 
+        verify(context).success();
+        verify(user, never()).setSingleAttribute(anyString(), anyString());
+        ArgumentCaptor<KeycloakTransaction> transaction = ArgumentCaptor.forClass(KeycloakTransaction.class);
+        verify(transactionManager).enlistPrepare(transaction.capture());
+        transaction.getValue().begin();
+        transaction.getValue().commit();
         verify(user).setSingleAttribute("mfaEnrollment.skipFuturePrompts", "true");
+    }
+
+    @Test
+    void testAuthenticate_ShowForm_SavesSnapshotForAction() {
+        when(user.getId()).thenReturn("user-1");
+
+        authenticator.authenticate(context);
+
+        ArgumentCaptor<String> note = ArgumentCaptor.forClass(String.class);
+        verify(authSession).setAuthNote(eq(EnrollmentSnapshot.AUTH_NOTE), note.capture());
+        EnrollmentSnapshot snapshot = EnrollmentSnapshot.decode(note.getValue());
+        assertNotNull(snapshot);
+        assertFalse(snapshot.meetsMinimum());
+        assertEquals("user-1", snapshot.userId());
+        assertTrue(snapshot.enabled().contains("otp"));
+    }
+
+    @Test
+    void testAction_ReusesSnapshotWithoutCredentialLookup() {
+        config.put("enabled_mfa_types", "otp");
+        when(user.getId()).thenReturn("user-1");
+        EnrollmentSnapshot snapshot = new EnrollmentSnapshot(EnrollmentPolicy.compile(config).fingerprint(),
+                System.currentTimeMillis(), false, Set.of(), List.of("otp"), "user-1");
+        when(authSession.getAuthNote(EnrollmentSnapshot.AUTH_NOTE)).thenReturn(snapshot.encode());
+
+        MultivaluedMap<String, String> formData = new MultivaluedHashMap<>();
+        formData.add("method", "otp");
+        when(httpRequest.getDecodedFormParameters()).thenReturn(formData);
+
+        authenticator.action(context);
+
+        verify(credentialManager, never()).getStoredCredentialsStream();
+        verify(authSession).addRequiredAction("CONFIGURE_TOTP");
+        verify(authSession).removeAuthNote(EnrollmentSnapshot.AUTH_NOTE);
+        verify(context).success();
+    }
+
+    @Test
+    void testAction_StaleSnapshotReevaluates() {
+        config.put("enabled_mfa_types", "otp");
+        when(user.getId()).thenReturn("user-1");
+        EnrollmentSnapshot snapshot = new EnrollmentSnapshot(EnrollmentPolicy.compile(config).fingerprint(),
+                System.currentTimeMillis() - EnrollmentSnapshot.MAX_AGE_MILLIS - 1, false, Set.of(),
+                List.of("otp"), "user-1");
+        when(authSession.getAuthNote(EnrollmentSnapshot.AUTH_NOTE)).thenReturn(snapshot.encode());
+
+        MultivaluedMap<String, String> formData = new MultivaluedHashMap<>();
+        formData.add("method", "otp");
+        when(httpRequest.getDecodedFormParameters()).thenReturn(formData);
+
+        authenticator.action(context);
+
+        verify(credentialManager).getStoredCredentialsStream();
         verify(context).success();
     }
 }
@@ -0,0 +1,52 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeUser;
+import com.github.nooop3.fakes.LoginFixture;
+import org.junit.jupiter.api.Test;
+import org.keycloak.authentication.authenticators.conditional.ConditionalAuthenticator;
+import org.keycloak.models.credential.OTPCredentialModel;
+import org.keycloak.models.credential.PasswordCredentialModel;
+import org.keycloak.models.credential.WebAuthnCredentialModel;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MfaEnrollmentConditionTest {
+
+    private final ConditionalAuthenticator condition = new MfaEnrollmentConditionFactory().getSingleton();
+
+    @Test
+    void testMatchCondition_UserBelowMinimumMatches() {
+        LoginFixture fixture = LoginFixture.create(Map.of());
+        FakeUser passwordOnly = fixture.user("password-only", PasswordCredentialModel.TYPE);
+        FakeUser withOtp = fixture.user("with-otp", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE);
+
+        assertTrue(condition.matchCondition(fixture.begin(passwordOnly)));
+        assertFalse(condition.matchCondition(fixture.begin(withOtp)));
+    }
+
+    @Test
+    void testMatchCondition_AppliesListMinimum() {
+        LoginFixture fixture = LoginFixture.create(Map.of(
+                "min_required_mfa_methods", "2",
+                "min_required_from_list", "1",
+                "enabled_mfa_types", WebAuthnCredentialModel.TYPE_TWOFACTOR));
+        FakeUser otpOnly = fixture.user("otp-only", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE);
+        FakeUser both = fixture.user("both", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE,
+                WebAuthnCredentialModel.TYPE_TWOFACTOR);
+
+        assertTrue(condition.matchCondition(fixture.begin(otpOnly)));
+        assertFalse(condition.matchCondition(fixture.begin(both)));
+    }
+
+    @Test
+    void testMatchCondition_NegateMatchesCompliantUsers() {
+        LoginFixture fixture = LoginFixture.create(Map.of(MfaEnrollmentCondition.CONF_NEGATE, "true"));
+        FakeUser withOtp = fixture.user("with-otp", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE);
+        FakeUser passwordOnly = fixture.user("password-only", PasswordCredentialModel.TYPE);
+
+        assertTrue(condition.matchCondition(fixture.begin(withOtp)));
+        assertFalse(condition.matchCondition(fixture.begin(passwordOnly)));
+    }
+}
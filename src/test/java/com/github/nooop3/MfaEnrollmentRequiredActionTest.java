@@ -0,0 +1,141 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeFlowContext;
+import com.github.nooop3.fakes.FakeRequiredActionContext;
+import com.github.nooop3.fakes.FakeUser;
+import com.github.nooop3.fakes.LoginFixture;
+import org.junit.jupiter.api.Test;
+import org.keycloak.authentication.FlowStatus;
+import org.keycloak.authentication.RequiredActionContext.Status;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.credential.OTPCredentialModel;
+import org.keycloak.models.credential.PasswordCredentialModel;
+import org.keycloak.models.credential.RecoveryAuthnCodesCredentialModel;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MfaEnrollmentRequiredActionTest {
+
+    private static final String TOTP = UserModel.RequiredAction.CONFIGURE_TOTP.name();
+
+    private final LoginFixture fixture = LoginFixture.create(Map.of());
+    private final MfaEnrollmentAuthenticator authenticator = new MfaEnrollmentAuthenticator();
+    private final MfaEnrollmentRequiredAction action = new MfaEnrollmentRequiredAction(authenticator);
+
+    @Test
+    void testChallenge_CompliantUserSucceedsWithoutScreen() {
+        LoginFixture notOffered = LoginFixture.create(Map.of("offer_configure_additional_methods", "false"));
+        FakeUser user = notOffered.user("compliant", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE);
+        notOffered.begin(user);
+
+        FakeRequiredActionContext context = notOffered.requiredAction(user);
+        action.requiredActionChallenge(context);
+
+        assertEquals(Status.SUCCESS, context.getStatus());
+        assertNull(context.forms().template());
+    }
+
+    @Test
+    void testChallenge_OffersCompliantUserAdditionalMethods() {
+        FakeUser user = fixture.user("compliant", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE);
+        fixture.begin(user);
+
+        FakeRequiredActionContext context = fixture.requiredAction(user);
+        action.requiredActionChallenge(context);
+        assertEquals(Status.CHALLENGE, context.getStatus());
+
+        // Meeting the minimum, the user may continue without picking anything.
+        context = fixture.requiredAction(user);
+        action.processAction(context);
+        assertEquals(Status.SUCCESS, context.getStatus());
+        assertEquals(Set.of(), user.requiredActions());
+    }
+
+    @Test
+    void testProcessAction_SelectionAddsMethodActionsToUser() {
+        FakeUser user = fixture.user("under-minimum", PasswordCredentialModel.TYPE);
+        fixture.begin(user);
+
+        FakeRequiredActionContext context = fixture.requiredAction(user);
+        action.requiredActionChallenge(context);
+        assertEquals(Status.CHALLENGE, context.getStatus());
+        assertEquals("mfa-enrollment.ftl", context.forms().template());
+        assertNotNull(fixture.authenticationSession().getAuthNote(EnrollmentSnapshot.AUTH_NOTE));
+
+        context = fixture.requiredAction(user);
+        context.request().formParameters().add("method", OTPCredentialModel.TYPE);
+        action.processAction(context);
+
+        assertEquals(Status.SUCCESS, context.getStatus());
+        assertEquals(Set.of(TOTP), user.requiredActions());
+        assertNull(fixture.authenticationSession().getAuthNote(EnrollmentSnapshot.AUTH_NOTE));
+    }
+
+    @Test
+    void testProcessAction_InsufficientSelectionShowsScreenAgain() {
+        FakeUser user = fixture.user("under-minimum", PasswordCredentialModel.TYPE);
+        fixture.begin(user);
+        action.requiredActionChallenge(fixture.requiredAction(user));
+
+        FakeRequiredActionContext context = fixture.requiredAction(user);
+        action.processAction(context);
+
+        assertEquals(Status.CHALLENGE, context.getStatus());
+        assertEquals("Select at least one method.", context.forms().attributes().get("message"));
+        assertEquals(Set.of(), user.requiredActions());
+    }
+
+    @Test
+    void testPreEnroll_AttachesEnrollmentActionWhenEnabled() {
+        fixture.realm().withRequiredActions(MfaEnrollmentRequiredAction.PROVIDER_ID);
+        FakeUser user = fixture.user("under-minimum", PasswordCredentialModel.TYPE);
+        FakeUser compliant = fixture.user("compliant", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE);
+
+        assertTrue(authenticator.preEnroll(fixture.session(), fixture.realm(), user, EnrollmentPolicy.DEFAULTS));
+        assertFalse(authenticator.preEnroll(fixture.session(), fixture.realm(), user, EnrollmentPolicy.DEFAULTS));
+        assertFalse(authenticator.preEnroll(fixture.session(), fixture.realm(), compliant,
+                EnrollmentPolicy.DEFAULTS));
+
+        assertEquals(Set.of(MfaEnrollmentRequiredAction.PROVIDER_ID), user.requiredActions());
+        assertEquals(Set.of(), compliant.requiredActions());
+    }
+
+    @Test
+    void testAuthenticate_NextLoginModeAttachesEnrollmentActionWhenEnabled() {
+        LoginFixture nextLogin = LoginFixture.create(Map.of("post_auth_prompt_mode", "next_login_required_action"));
+        nextLogin.realm().withRequiredActions(MfaEnrollmentRequiredAction.PROVIDER_ID);
+        FakeUser user = nextLogin.user("compliant", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE);
+
+        FakeFlowContext context = nextLogin.begin(user);
+        authenticator.authenticate(context);
+
+        assertEquals(FlowStatus.SUCCESS, context.getStatus());
+        assertNull(context.forms().template());
+        assertEquals(Set.of(MfaEnrollmentRequiredAction.PROVIDER_ID), user.requiredActions());
+
+        FakeRequiredActionContext screen = nextLogin.requiredAction(user);
+        action.requiredActionChallenge(screen);
+        assertEquals(Status.CHALLENGE, screen.getStatus());
+        assertEquals("mfa-enrollment.ftl", screen.forms().template());
+    }
+
+    @Test
+    void testAction_NextLoginModeAddsMethodActionsWithoutEnrollmentAction() {
+        LoginFixture nextLogin = LoginFixture.create(Map.of("post_auth_prompt_mode", "next_login_required_action"));
+        FakeUser user = nextLogin.user("compliant", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE);
+        FakeFlowContext context = nextLogin.begin(user);
+        authenticator.authenticate(context);
+        assertEquals(FlowStatus.CHALLENGE, context.getStatus());
+
+        context = nextLogin.resume(user);
+        context.request().formParameters().add("method", RecoveryAuthnCodesCredentialModel.TYPE);
+        authenticator.action(context);
+
+        assertEquals(FlowStatus.SUCCESS, context.getStatus());
+        assertEquals(Set.of(UserModel.RequiredAction.CONFIGURE_RECOVERY_AUTHN_CODES.name()), user.requiredActions());
+        assertEquals(Set.of(), nextLogin.authenticationSession().getRequiredActions());
+    }
+}
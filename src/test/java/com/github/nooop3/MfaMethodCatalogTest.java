@@ -0,0 +1,79 @@
+package com.github.nooop3;
+
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.provider.ProviderFactory;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MfaMethodCatalogTest {
+
+    private static final MfaMethod EMAIL_OTP = new MfaMethod("email-otp", "Email code",
+            "Receive one-time codes by email.", "email-otp-credential", List.of("configure-email-otp"));
+
+    @Test
+    void testBuiltIn_IndexesKeycloakMethods() {
+        MfaMethodCatalog catalog = MfaMethodCatalog.builtIn();
+
+        assertEquals(List.of("otp", "webauthn", "recovery-authn-codes"),
+                catalog.methods().stream().map(MfaMethod::id).toList());
+        assertEquals("CONFIGURE_TOTP", catalog.get("otp").requiredActions().get(0));
+        assertNull(catalog.get("sms"));
+        assertEquals(Set.of("otp", "webauthn", "recovery-authn-codes"), catalog.credentialTypes());
+    }
+
+    @Test
+    void testLoad_MergesProviderMethodsAndPrefersHigherOrder() {
+        MfaMethod customOtp = new MfaMethod("otp", "Company authenticator", "Use the company app.", "otp",
+                List.of("CONFIGURE_TOTP"));
+        KeycloakSessionFactory factory = mock(KeycloakSessionFactory.class);
+        doReturn(Stream.<ProviderFactory<MfaMethodProvider>>of(
+                new BuiltinMfaMethodProviderFactory(),
+                new TestMethodFactory("custom", 10, List.of(EMAIL_OTP, customOtp))))
+                .when(factory).getProviderFactoriesStream(MfaMethodProvider.class);
+
+        MfaMethodCatalog catalog = MfaMethodCatalog.load(factory);
+
+        assertEquals("Company authenticator", catalog.get("otp").label());
+        assertSame(EMAIL_OTP, catalog.get("email-otp"));
+        assertNotNull(catalog.get("webauthn"));
+        assertTrue(catalog.credentialTypes().contains("email-otp-credential"));
+    }
+
+    @Test
+    void testConfiguredMask_MapsCredentialTypesToMethodBits() {
+        MfaMethodCatalog catalog = MfaMethodCatalog.of(List.of(EMAIL_OTP,
+                BuiltinMfaMethodProviderFactory.METHODS.get(0)));
+
+        long mask = catalog.configuredMask(Set.of("email-otp-credential", "otp", "password"));
+
+        assertEquals(catalog.bit("email-otp") | catalog.bit("otp"), mask);
+        assertEquals(List.of("email-otp", "otp"), catalog.ids(mask));
+        assertEquals(mask, catalog.mask(Set.of("otp", "email-otp", "unknown")));
+        assertSame(EMAIL_OTP, catalog.method(Long.numberOfTrailingZeros(catalog.bit("email-otp"))));
+    }
+
+    private record TestMethodFactory(String id, int order, List<MfaMethod> methods)
+            implements MfaMethodProviderFactory {
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public int order() {
+            return order;
+        }
+
+        @Override
+        public List<MfaMethod> getMethods() {
+            return methods;
+        }
+    }
+}
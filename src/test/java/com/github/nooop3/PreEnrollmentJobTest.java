@@ -0,0 +1,191 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeUser;
+import com.github.nooop3.fakes.LoginFixture;
+import org.junit.jupiter.api.Test;
+import org.keycloak.authentication.requiredactions.WebAuthnRegisterFactory;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.credential.OTPCredentialModel;
+import org.keycloak.models.credential.WebAuthnCredentialModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreEnrollmentJobTest {
+
+    private static final String TOTP = UserModel.RequiredAction.CONFIGURE_TOTP.name();
+
+    private final LoginFixture fixture = LoginFixture.create(Map.of());
+    private final MfaEnrollmentAuthenticator authenticator = new MfaEnrollmentAuthenticator(
+            new EnrollmentPolicyCache(), new RoleTargetingIndex(), MfaMethodCatalog.builtIn());
+
+    @Test
+    void testRun_EnrollsUnderSecuredUsersInBatches() {
+        List<FakeUser> users = users(25);
+        InMemoryBatches batches = new InMemoryBatches(users, EnrollmentPolicy.DEFAULTS);
+        PreEnrollmentJob job = new PreEnrollmentJob(batches, PreEnrollmentCheckpoint.start("mfa"), 10, 0);
+
+        job.run();
+
+        assertEquals(PreEnrollmentJob.State.COMPLETED, job.state());
+        assertEquals(Arrays.asList(null, "user-09", "user-19"), batches.cursors);
+        assertTrue(batches.finished);
+        assertEquals(List.of(), batches.saved);
+        assertEquals(new PreEnrollmentCheckpoint("mfa", "user-24", 25, 16), job.checkpoint());
+        assertEquals(Set.of(), users.get(0).requiredActions());
+        assertEquals(Set.of(TOTP), users.get(1).requiredActions());
+    }
+
+    @Test
+    void testRun_SavesCheckpointEveryFewBatches() {
+        InMemoryBatches batches = new InMemoryBatches(users(25), EnrollmentPolicy.DEFAULTS);
+        PreEnrollmentJob job = new PreEnrollmentJob(batches, PreEnrollmentCheckpoint.start(null), 1, 0);
+
+        job.run();
+
+        assertEquals(PreEnrollmentJob.State.COMPLETED, job.state());
+        assertEquals(List.of("user-09", "user-19"),
+                batches.saved.stream().map(PreEnrollmentCheckpoint::afterUserId).toList());
+    }
+
+    @Test
+    void testRun_FailureSavesLastCommittedCheckpoint() {
+        InMemoryBatches batches = new InMemoryBatches(users(25), EnrollmentPolicy.DEFAULTS);
+        batches.failAfter = "user-19";
+        PreEnrollmentJob job = new PreEnrollmentJob(batches, PreEnrollmentCheckpoint.start(null), 10, 0);
+
+        job.run();
+
+        assertEquals(PreEnrollmentJob.State.FAILED, job.state());
+        assertEquals(1, batches.saved.size());
+        assertEquals("user-19", batches.saved.get(0).afterUserId());
+        assertFalse(batches.finished);
+        assertEquals("connection reset", job.progress().get("error"));
+    }
+
+    @Test
+    void testRun_ResumesAfterCheckpointUser() {
+        List<FakeUser> users = users(25);
+        InMemoryBatches batches = new InMemoryBatches(users, EnrollmentPolicy.DEFAULTS);
+        PreEnrollmentJob job = new PreEnrollmentJob(batches,
+                new PreEnrollmentCheckpoint("mfa", "user-19", 20, 13), 10, 0);
+
+        job.run();
+
+        assertEquals(Collections.singletonList("user-19"), batches.cursors);
+        assertEquals(new PreEnrollmentCheckpoint("mfa", "user-24", 25, 16), job.checkpoint());
+        assertEquals(Set.of(), users.get(19).requiredActions());
+    }
+
+    @Test
+    void testRun_ResumeIgnoresUsersAddedBeforeCursor() {
+        List<FakeUser> users = new ArrayList<>(users(25));
+        InMemoryBatches batches = new InMemoryBatches(users, EnrollmentPolicy.DEFAULTS);
+        FakeUser added = fixture.user("user-05a");
+        users.add(added);
+        PreEnrollmentJob job = new PreEnrollmentJob(batches,
+                new PreEnrollmentCheckpoint("mfa", "user-19", 20, 13), 10, 0);
+
+        job.run();
+
+        assertEquals(25, job.checkpoint().scanned());
+        assertEquals(Set.of(), added.requiredActions());
+    }
+
+    @Test
+    void testCancel_StopsAfterCurrentBatchAndSaves() {
+        InMemoryBatches batches = new InMemoryBatches(users(25), EnrollmentPolicy.DEFAULTS);
+        PreEnrollmentJob job = new PreEnrollmentJob(batches, PreEnrollmentCheckpoint.start(null), 10, 60_000);
+        batches.onBatch = job::cancel;
+
+        job.run();
+
+        assertEquals(PreEnrollmentJob.State.CANCELLED, job.state());
+        assertEquals(Collections.singletonList(null), batches.cursors);
+        assertEquals(1, batches.saved.size());
+        assertEquals("user-09", batches.saved.get(0).afterUserId());
+    }
+
+    @Test
+    void testPreEnroll_AddsActionsForMissingMethodsOnce() {
+        EnrollmentPolicy policy = EnrollmentPolicy.compile(Map.of("min_required_mfa_methods", "2",
+                "min_required_from_list", "2"));
+        FakeUser none = fixture.user("user-1");
+        FakeUser one = fixture.user("user-2", WebAuthnCredentialModel.TYPE_TWOFACTOR);
+        FakeUser two = fixture.user("user-3", OTPCredentialModel.TYPE, WebAuthnCredentialModel.TYPE_TWOFACTOR);
+
+        assertTrue(authenticator.preEnroll(fixture.session(), fixture.realm(), none, policy));
+        assertTrue(authenticator.preEnroll(fixture.session(), fixture.realm(), one, policy));
+        assertFalse(authenticator.preEnroll(fixture.session(), fixture.realm(), two, policy));
+        assertFalse(authenticator.preEnroll(fixture.session(), fixture.realm(), none, policy));
+
+        // Recovery codes are only offered once TOTP is configured.
+        assertEquals(Set.of(TOTP, WebAuthnRegisterFactory.PROVIDER_ID), none.requiredActions());
+        assertEquals(Set.of(TOTP), one.requiredActions());
+        assertEquals(Set.of(), two.requiredActions());
+    }
+
+    /** Every third user already has TOTP; the rest are under-secured. */
+    private List<FakeUser> users(int count) {
+        List<FakeUser> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String id = String.format("user-%02d", i);
+            users.add(i % 3 == 0 ? fixture.user(id, OTPCredentialModel.TYPE) : fixture.user(id));
+        }
+        return users;
+    }
+
+    /** Serves the users in id order, like the realm's batch runner. */
+    private final class InMemoryBatches implements PreEnrollmentJob.BatchRunner {
+        private final List<FakeUser> users;
+        private final EnrollmentPolicy policy;
+        private final List<String> cursors = new ArrayList<>();
+        private final List<PreEnrollmentCheckpoint> saved = new ArrayList<>();
+        private boolean finished;
+        private String failAfter;
+        private Runnable onBatch = () -> {
+        };
+
+        private InMemoryBatches(List<FakeUser> users, EnrollmentPolicy policy) {
+            this.users = users;
+            this.policy = policy;
+        }
+
+        @Override
+        public PreEnrollmentCheckpoint run(PreEnrollmentCheckpoint from, int batchSize) {
+            if (failAfter != null && failAfter.equals(from.afterUserId())) {
+                throw new IllegalStateException("connection reset");
+            }
+            cursors.add(from.afterUserId());
+            List<FakeUser> batch = users.stream()
+                    .filter(user -> from.afterUserId() == null || user.getId().compareTo(from.afterUserId()) > 0)
+                    .sorted(Comparator.comparing(FakeUser::getId))
+                    .limit(batchSize)
+                    .toList();
+            long enrolled = batch.stream()
+                    .filter(user -> authenticator.preEnroll(fixture.session(), fixture.realm(), user, policy))
+                    .count();
+            PreEnrollmentCheckpoint next = from.advance(batch.isEmpty() ? null : batch.get(batch.size() - 1).getId(),
+                    batch.size(), enrolled);
+            onBatch.run();
+            return next;
+        }
+
+        @Override
+        public void save(PreEnrollmentCheckpoint checkpoint) {
+            saved.add(checkpoint);
+        }
+
+        @Override
+        public void finish() {
+            finished = true;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeAuthenticationSession;
+import com.github.nooop3.fakes.FakeClient;
+import com.github.nooop3.fakes.FakeRealm;
+import com.github.nooop3.fakes.FakeUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RoleModel;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoleTargetingIndexTest {
+
+    private CountingRealm realm;
+    private RoleTargetingIndex index;
+    private FakeUser user;
+
+    @BeforeEach
+    void setUp() {
+        realm = new CountingRealm();
+        realm.addRole("admin");
+        realm.addRole("ops");
+        realm.addRole("contractor");
+        index = new RoleTargetingIndex();
+        user = new FakeUser("user-1", "alice");
+    }
+
+    @Test
+    void testResolve_LooksUpNamesOncePerRealm() {
+        Set<String> names = Set.of("admin", "ops");
+
+        Set<String> first = index.resolve(realm, names);
+        Set<String> second = index.resolve(realm, Set.of("ops", "admin"));
+
+        assertEquals(2, realm.lookups);
+        assertSame(first, second);
+        assertEquals(Set.of("realm-id-role-admin", "realm-id-role-ops"), first);
+    }
+
+    @Test
+    void testExcludes_RequiredRoleThroughComposite() {
+        RoleModel lead = realm.addRole("team-lead");
+        lead.addCompositeRole(realm.getRole("ops"));
+        user.grantRole(lead);
+
+        assertFalse(index.excludes(realm, () -> EffectiveRoles.of(user), Set.of("admin", "ops"), Set.of()));
+        assertTrue(index.excludes(realm, () -> EffectiveRoles.of(user), Set.of("admin"), Set.of()));
+    }
+
+    @Test
+    void testExcludes_ExcludedRoleWins() {
+        user.grantRole(realm.getRole("admin"));
+        user.grantRole(realm.getRole("contractor"));
+
+        assertTrue(index.excludes(realm, () -> EffectiveRoles.of(user), Set.of("admin"), Set.of("contractor")));
+        assertFalse(index.excludes(realm, () -> EffectiveRoles.of(user), Set.of("admin"), Set.of("unknown")));
+    }
+
+    @Test
+    void testExcludes_OnlyForUnknownRolesSkipsEveryone() {
+        user.grantRole(realm.getRole("admin"));
+
+        assertTrue(index.excludes(realm, () -> EffectiveRoles.of(user), Set.of("missing"), Set.of()));
+    }
+
+    @Test
+    void testOnEvent_RenameInvalidatesRealm() {
+        RoleModel admin = realm.getRole("admin");
+        user.grantRole(admin);
+        assertFalse(index.excludes(realm, () -> EffectiveRoles.of(user), Set.of("admin"), Set.of()));
+
+        realm.removeRole(admin);
+        RoleModel renamed = realm.addRole(admin.getId(), "administrator");
+        index.onEvent(new RoleModel.RoleNameChangeEvent() {
+            @Override
+            public RealmModel getRealm() {
+                return realm;
+            }
+
+            @Override
+            public String getNewName() {
+                return renamed.getName();
+            }
+
+            @Override
+            public String getPreviousName() {
+                return "admin";
+            }
+
+            @Override
+            public String getClientId() {
+                return null;
+            }
+
+            @Override
+            public KeycloakSession getKeycloakSession() {
+                return null;
+            }
+        });
+
+        assertTrue(index.excludes(realm, () -> EffectiveRoles.of(user), Set.of("admin"), Set.of()));
+    }
+
+    @Test
+    void testEffectiveRoles_RememberedForLaterRequests() {
+        FakeAuthenticationSession authSession = new FakeAuthenticationSession(realm,
+                new FakeClient("client-id", "account", realm));
+        user.grantRole(realm.getRole("ops"));
+        EffectiveRoles first = EffectiveRoles.of(authSession, user);
+        assertNull(authSession.getAuthNote(EffectiveRoles.AUTH_NOTE));
+        first.remember(authSession, user.getId());
+
+        user.grantRole(realm.getRole("admin"));
+        EffectiveRoles second = EffectiveRoles.of(authSession, user);
+        EffectiveRoles otherUser = EffectiveRoles.of(authSession, new FakeUser("user-2", "bob"));
+
+        assertTrue(first.contains("realm-id-role-ops"));
+        assertFalse(second.contains("realm-id-role-admin"));
+        assertFalse(otherUser.contains("realm-id-role-ops"));
+        assertTrue(EffectiveRoles.of(user).contains("realm-id-role-admin"));
+    }
+
+    @Test
+    void testEffectiveRoles_DecodeRejectsStaleOrForeignNotes() {
+        user.grantRole(realm.getRole("ops"));
+        user.grantRole(realm.getRole("admin"));
+        String note = EffectiveRoles.of(user).encode("user-1", 1000);
+
+        assertArrayEquals(new String[] {"realm-id-role-admin", "realm-id-role-ops"},
+                EffectiveRoles.decode(note, "user-1", 1000 + EffectiveRoles.MAX_AGE_MILLIS));
+        assertNull(EffectiveRoles.decode(note, "user-1", 1001 + EffectiveRoles.MAX_AGE_MILLIS));
+        assertNull(EffectiveRoles.decode(note, "user-2", 1000));
+        assertNull(EffectiveRoles.decode("2|3e8||user-1", "user-1", 1000));
+    }
+
+    private static class CountingRealm extends FakeRealm {
+        int lookups;
+
+        CountingRealm() {
+            super("realm-id", "test");
+        }
+
+        @Override
+        public RoleModel getRole(String name) {
+            lookups++;
+            return super.getRole(name);
+        }
+    }
+}
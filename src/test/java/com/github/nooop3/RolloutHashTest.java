@@ -0,0 +1,72 @@
+package com.github.nooop3;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RolloutHashTest {
+
+    private static final int USERS = 100_000;
+
+    @Test
+    void testBucket_StableAndInRange() {
+        String id = "6f1c2f0e-2a4b-4b7e-9d51-0b4d3c1f2a90";
+        long seed = RolloutHash.seed("2024-webauthn");
+
+        int bucket = RolloutHash.bucket(id, seed);
+
+        assertEquals(bucket, RolloutHash.bucket(new StringBuilder(id), seed));
+        assertTrue(bucket >= 0 && bucket < RolloutHash.BUCKETS);
+        // "polygenelubricants" has String.hashCode() == Integer.MIN_VALUE, which Math.abs leaves negative.
+        int edge = RolloutHash.bucket("polygenelubricants", 0L);
+        assertTrue(edge >= 0 && edge < RolloutHash.BUCKETS);
+    }
+
+    @Test
+    void testBucket_CohortSizeMatchesPercentage() {
+        RolloutCohortSimulator simulator = new RolloutCohortSimulator(20, "cohort-a");
+        for (int i = 0; i < USERS; i++) {
+            simulator.add(new UUID(i * 0x9e3779b97f4a7c15L, i).toString());
+        }
+
+        assertEquals(0.20, simulator.cohortSize() / (double) USERS, 0.01);
+        assertTrue(simulator.chiSquared() < 160, "chi-squared " + simulator.chiSquared());
+    }
+
+    @Test
+    void testBucket_SaltsDrawIndependentCohorts() {
+        long first = RolloutHash.seed("rollout-1");
+        long second = RolloutHash.seed("rollout-2");
+        int both = 0;
+        for (int i = 0; i < USERS; i++) {
+            String id = "user-" + i;
+            if (RolloutHash.bucket(id, first) < 20 && RolloutHash.bucket(id, second) < 20) {
+                both++;
+            }
+        }
+
+        // Independent 20% cohorts overlap in about 4% of users; reusing the buckets would give 20%.
+        assertEquals(0.04, both / (double) USERS, 0.005);
+    }
+
+    @Test
+    void testSimulator_ReportsFromIdList() throws IOException {
+        RolloutCohortSimulator simulator = new RolloutCohortSimulator(100, null);
+        simulator.readAll(new BufferedReader(new StringReader("alice\n\n  bob  \ncarol\n")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        simulator.report(new PrintStream(out, true, StandardCharsets.UTF_8), 1_000_000L);
+
+        String report = out.toString(StandardCharsets.UTF_8);
+        assertTrue(report.contains("ids:           3"), report);
+        assertTrue(report.contains("cohort:        3 (100.000%)"), report);
+    }
+}
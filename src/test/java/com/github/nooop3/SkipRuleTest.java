@@ -0,0 +1,327 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeFlowContext;
+import com.github.nooop3.fakes.FakeGroup;
+import com.github.nooop3.fakes.FakeUser;
+import com.github.nooop3.fakes.LoginFixture;
+import org.junit.jupiter.api.Test;
+import org.keycloak.authentication.FlowStatus;
+import org.keycloak.models.credential.OTPCredentialModel;
+import org.keycloak.models.credential.PasswordCredentialModel;
+import org.keycloak.models.credential.WebAuthnCredentialModel;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SkipRuleTest {
+
+    private static final long NOW = System.currentTimeMillis();
+    private static final String LAST_PROMPT = "mfaEnrollment.lastPrompt";
+    private static final String FIRST_LOGIN = "mfaEnrollment.firstLoginCompleted";
+    private static final String OPT_OUT = "mfaEnrollment.skipFuturePrompts";
+
+    enum Expected {
+        SKIP, COMPLIANT, FORM, ERROR
+    }
+
+    enum OptOut {
+        NONE, OPTED, OPTED_RESPECTED
+    }
+
+    enum Reminder {
+        OFF, RECENT, STALE
+    }
+
+    enum Rollout {
+        FULL, NONE_WITH_BYPASS, NONE_STRICT
+    }
+
+    record Row(List<String> credentials, OptOut optOut, Reminder reminder, Rollout rollout, int maxAllowed,
+            boolean offerAdditional, boolean clientExcluded, boolean firstLoginDone) {
+
+        Map<String, String> config() {
+            Map<String, String> config = new HashMap<>();
+            config.put("offer_configure_additional_methods", String.valueOf(offerAdditional));
+            config.put("max_allowed_mfa_methods", String.valueOf(maxAllowed));
+            config.put("opt_out_respected_when_not_sufficient", String.valueOf(optOut == OptOut.OPTED_RESPECTED));
+            if (reminder != Reminder.OFF) {
+                config.put("remind_every_days", "30");
+            }
+            if (rollout != Rollout.FULL) {
+                config.put("rollout_percentage", "0");
+                config.put("bypass_rollout_if_not_sufficient", String.valueOf(rollout == Rollout.NONE_WITH_BYPASS));
+            }
+            if (clientExcluded) {
+                config.put("exclude_clients", "account-console");
+            }
+            if (firstLoginDone) {
+                config.put("enforce_on_first_login_only", "true");
+            }
+            return config;
+        }
+    }
+
+    /**
+     * Every combination of the inputs the skip rules read, checked against the decision chain as it was
+     * written before the rules were reordered.
+     */
+    @Test
+    void testPipeline_MatchesSequentialDecisionChain() {
+        List<Row> rows = rows();
+        for (Row row : rows) {
+            LoginFixture fixture = LoginFixture.create(row.config());
+            FakeUser user = user(fixture, row);
+            FakeFlowContext context = fixture.begin(user);
+
+            new MfaEnrollmentAuthenticator().authenticate(context);
+            fixture.commit();
+
+            Expected expected = sequentialDecision(row);
+            FlowStatus status = context.getStatus();
+            switch (expected) {
+                case SKIP -> assertEquals(FlowStatus.SUCCESS, status, row::toString);
+                case COMPLIANT -> assertEquals(FlowStatus.SUCCESS, status, row::toString);
+                case FORM, ERROR -> assertEquals(FlowStatus.CHALLENGE, status, row::toString);
+            }
+            Long before = lastPrompt(row);
+            boolean prompted = !Objects.equals(before != null ? before.toString() : null,
+                    user.getFirstAttribute(LAST_PROMPT));
+            assertEquals(expected == Expected.FORM, prompted, row::toString);
+        }
+        assertEquals(3 * 3 * 3 * 3 * 2 * 2 * 2 * 2, rows.size());
+    }
+
+    @Test
+    void testPipeline_ReminderSkipDoesNotReadCredentials() {
+        LoginFixture fixture = LoginFixture.create(Map.of("remind_every_days", "30"));
+        FakeUser user = fixture.user("reminded", PasswordCredentialModel.TYPE);
+        user.setSingleAttribute(LAST_PROMPT, String.valueOf(NOW));
+        FakeFlowContext context = fixture.begin(user);
+
+        new MfaEnrollmentAuthenticator().authenticate(context);
+
+        assertEquals(FlowStatus.SUCCESS, context.getStatus());
+        assertEquals(0, user.credentials().streamReads());
+    }
+
+    @Test
+    void testPipeline_RolloutInsideCohortDoesNotReadCredentialsEarly() {
+        LoginFixture fixture = LoginFixture.create(Map.of("rollout_percentage", "0", "remind_every_days", "30"));
+        FakeUser user = fixture.user("sampled", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE);
+        user.setSingleAttribute(LAST_PROMPT, String.valueOf(NOW));
+        FakeFlowContext context = fixture.begin(user);
+
+        new MfaEnrollmentAuthenticator().authenticate(context);
+
+        // The user is compliant, so the rollout rule needs meetsMinimum and reads credentials exactly once.
+        assertEquals(FlowStatus.SUCCESS, context.getStatus());
+        assertEquals(1, user.credentials().streamReads());
+    }
+
+    @Test
+    void testPipeline_GroupTargetingSkipsNonMembersBeforeCredentials() {
+        LoginFixture fixture = LoginFixture.create(Map.of("only_for_groups", "/tenants/acme"));
+        FakeGroup acme = fixture.realm().addGroup("acme", fixture.realm().addGroup("tenants", null));
+        FakeUser outsider = fixture.user("outsider", PasswordCredentialModel.TYPE);
+        FakeUser member = fixture.user("member", PasswordCredentialModel.TYPE);
+        member.joinGroup(fixture.realm().addGroup("ops", acme));
+        MfaEnrollmentAuthenticator authenticator = new MfaEnrollmentAuthenticator();
+
+        FakeFlowContext context = fixture.begin(outsider);
+        authenticator.authenticate(context);
+        assertEquals(FlowStatus.SUCCESS, context.getStatus());
+        assertEquals(0, outsider.credentials().streamReads());
+
+        context = fixture.begin(member);
+        authenticator.authenticate(context);
+        assertEquals(FlowStatus.CHALLENGE, context.getStatus());
+    }
+
+    @Test
+    void testPipeline_GroupTargetingReadsMultivaluedPaths() {
+        // Two groups as the admin console stores them; the second name contains a comma.
+        LoginFixture fixture = LoginFixture.create(Map.of("only_for_groups", "/tenants/acme##/tenants/globex, inc",
+                "exclude_groups", "/tenants/acme/contractors##/tenants/globex, inc/contractors"));
+        FakeGroup tenants = fixture.realm().addGroup("tenants", null);
+        FakeGroup acme = fixture.realm().addGroup("acme", tenants);
+        FakeGroup globex = fixture.realm().addGroup("globex, inc", tenants);
+        FakeUser acmeMember = fixture.user("acme-member", PasswordCredentialModel.TYPE);
+        acmeMember.joinGroup(acme);
+        FakeUser globexMember = fixture.user("globex-member", PasswordCredentialModel.TYPE);
+        globexMember.joinGroup(globex);
+        FakeUser globexContractor = fixture.user("globex-contractor", PasswordCredentialModel.TYPE);
+        globexContractor.joinGroup(fixture.realm().addGroup("contractors", globex));
+        MfaEnrollmentAuthenticator authenticator = new MfaEnrollmentAuthenticator();
+
+        FakeFlowContext context = fixture.begin(acmeMember);
+        authenticator.authenticate(context);
+        assertEquals(FlowStatus.CHALLENGE, context.getStatus());
+
+        context = fixture.begin(globexMember);
+        authenticator.authenticate(context);
+        assertEquals(FlowStatus.CHALLENGE, context.getStatus());
+
+        context = fixture.begin(globexContractor);
+        authenticator.authenticate(context);
+        assertEquals(FlowStatus.SUCCESS, context.getStatus());
+    }
+
+    @Test
+    void testPipeline_AttributeConditionSkipsLeavingContractors() {
+        LoginFixture fixture = LoginFixture.create(Map.of("skip_if_attribute",
+                "employmentType = contractor && employmentEnd within 7d"));
+        FakeUser leaving = fixture.user("leaving", PasswordCredentialModel.TYPE);
+        leaving.setSingleAttribute("employmentType", "contractor");
+        leaving.setSingleAttribute("employmentEnd", String.valueOf(NOW + Duration.ofDays(3).toMillis()));
+        FakeUser staying = fixture.user("staying", PasswordCredentialModel.TYPE);
+        staying.setSingleAttribute("employmentType", "contractor");
+        staying.setSingleAttribute("employmentEnd", String.valueOf(NOW + Duration.ofDays(90).toMillis()));
+        MfaEnrollmentAuthenticator authenticator = new MfaEnrollmentAuthenticator();
+
+        FakeFlowContext context = fixture.begin(leaving);
+        authenticator.authenticate(context);
+        assertEquals(FlowStatus.SUCCESS, context.getStatus());
+        assertEquals(0, leaving.credentials().streamReads());
+
+        context = fixture.begin(staying);
+        authenticator.authenticate(context);
+        assertEquals(FlowStatus.CHALLENGE, context.getStatus());
+    }
+
+    @Test
+    void testPipeline_RoleNoteWrittenOnlyWhenFormRendered() {
+        LoginFixture fixture = LoginFixture.create(Map.of("exclude_roles", "contractor",
+                "offer_configure_additional_methods", "false"));
+        fixture.realm().addRole("contractor");
+        FakeUser compliant = fixture.user("compliant", PasswordCredentialModel.TYPE, OTPCredentialModel.TYPE);
+        FakeUser newcomer = fixture.user("newcomer", PasswordCredentialModel.TYPE);
+        MfaEnrollmentAuthenticator authenticator = new MfaEnrollmentAuthenticator();
+
+        FakeFlowContext context = fixture.begin(compliant);
+        authenticator.authenticate(context);
+        assertEquals(FlowStatus.SUCCESS, context.getStatus());
+        assertNull(fixture.authenticationSession().getAuthNote(EffectiveRoles.AUTH_NOTE));
+
+        context = fixture.begin(newcomer);
+        authenticator.authenticate(context);
+        assertEquals(FlowStatus.CHALLENGE, context.getStatus());
+        assertNotNull(fixture.authenticationSession().getAuthNote(EffectiveRoles.AUTH_NOTE));
+    }
+
+    @Test
+    void testPipeline_OrderedByInputCost() {
+        SkipRule.Input previous = SkipRule.Input.CONTEXT;
+        for (SkipRule rule : SkipRule.PIPELINE) {
+            assertTrue(rule.input().compareTo(previous) >= 0, rule.name());
+            previous = rule.input();
+        }
+        assertEquals(SkipRule.values().length, SkipRule.PIPELINE.size());
+    }
+
+    @Test
+    void testOutcome_EachRuleReportsItsOwnOutcome() {
+        Set<EnrollmentMetrics.Outcome> outcomes = new HashSet<>();
+        for (SkipRule rule : SkipRule.values()) {
+            assertTrue(outcomes.add(rule.outcome()), rule.name());
+        }
+    }
+
+    private static List<Row> rows() {
+        List<List<String>> credentialSets = List.of(
+                List.of(),
+                List.of(OTPCredentialModel.TYPE),
+                List.of(OTPCredentialModel.TYPE, WebAuthnCredentialModel.TYPE_TWOFACTOR));
+        List<Row> rows = new ArrayList<>();
+        for (List<String> credentials : credentialSets) {
+            for (OptOut optOut : OptOut.values()) {
+                for (Reminder reminder : Reminder.values()) {
+                    for (Rollout rollout : Rollout.values()) {
+                        for (int maxAllowed : new int[] {0, 1}) {
+                            for (boolean offer : new boolean[] {true, false}) {
+                                for (boolean excluded : new boolean[] {false, true}) {
+                                    for (boolean firstLoginDone : new boolean[] {false, true}) {
+                                        rows.add(new Row(credentials, optOut, reminder, rollout, maxAllowed, offer,
+                                                excluded, firstLoginDone));
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static FakeUser user(LoginFixture fixture, Row row) {
+        FakeUser user = fixture.user("user-" + row.hashCode(), PasswordCredentialModel.TYPE);
+        row.credentials().forEach(type -> user.credentials().add(type));
+        if (row.optOut() != OptOut.NONE) {
+            user.setSingleAttribute(OPT_OUT, "true");
+        }
+        Long lastPrompt = lastPrompt(row);
+        if (lastPrompt != null) {
+            user.setSingleAttribute(LAST_PROMPT, String.valueOf(lastPrompt));
+        }
+        if (row.firstLoginDone()) {
+            user.setSingleAttribute(FIRST_LOGIN, "true");
+        }
+        return user;
+    }
+
+    private static Long lastPrompt(Row row) {
+        return switch (row.reminder()) {
+            case OFF -> null;
+            case RECENT -> NOW - Duration.ofDays(1).toMillis();
+            case STALE -> NOW - Duration.ofDays(60).toMillis();
+        };
+    }
+
+    /**
+     * The original, strictly sequential decision chain of {@code authenticate()} for the default method list
+     * and minimums (one method overall, one from the list).
+     */
+    private static Expected sequentialDecision(Row row) {
+        if (row.clientExcluded()) {
+            return Expected.SKIP;
+        }
+        if (row.firstLoginDone()) {
+            return Expected.SKIP;
+        }
+        Set<String> configured = new HashSet<>(row.credentials());
+        Set<String> enabled = new HashSet<>(EnrollmentPolicy.DEFAULT_ENABLED_TYPES);
+        boolean meetsMinimum = configured.size() >= 1 && configured.stream().filter(enabled::contains).count() >= 1;
+        if (row.optOut() != OptOut.NONE && (row.optOut() == OptOut.OPTED_RESPECTED || meetsMinimum)) {
+            return Expected.SKIP;
+        }
+        if (row.reminder() == Reminder.RECENT) {
+            return Expected.SKIP;
+        }
+        if (row.rollout() != Rollout.FULL && !(row.rollout() == Rollout.NONE_WITH_BYPASS && !meetsMinimum)) {
+            return Expected.SKIP;
+        }
+        if (row.maxAllowed() > 0 && configured.size() >= row.maxAllowed()) {
+            return Expected.SKIP;
+        }
+        if (meetsMinimum && !row.offerAdditional()) {
+            return Expected.COMPLIANT;
+        }
+        Set<String> unconfigured = new HashSet<>(enabled);
+        unconfigured.removeAll(configured);
+        if (meetsMinimum && unconfigured.isEmpty()) {
+            return Expected.COMPLIANT;
+        }
+        if (!meetsMinimum && unconfigured.isEmpty()) {
+            return Expected.ERROR;
+        }
+        return Expected.FORM;
+    }
+}
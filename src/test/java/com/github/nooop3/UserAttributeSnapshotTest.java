@@ -0,0 +1,77 @@
+package com.github.nooop3;
+
+import com.github.nooop3.fakes.FakeUser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserAttributeSnapshotTest {
+
+    @Test
+    void testRead_FetchesAllPolicyAttributesInOnePass() {
+        EnrollmentPolicy policy = EnrollmentPolicy.compile(Map.of(
+                "enforce_on_first_login_only", "true",
+                "remind_every_days", "7",
+                "skip_if_attribute_equals", "department=it,contractor=true"));
+        CountingUser user = new CountingUser();
+        user.setSingleAttribute("mfaEnrollment.lastPrompt", "42");
+        user.setSingleAttribute("contractor", "true");
+
+        UserAttributeSnapshot snapshot = UserAttributeSnapshot.read(user, policy.attributeKeys());
+
+        assertEquals(1, user.mapReads);
+        assertEquals(0, user.singleReads);
+        assertNull(snapshot.get(UserAttributeSnapshot.FIRST_LOGIN_COMPLETED));
+        assertNull(snapshot.get(UserAttributeSnapshot.OPT_OUT));
+        assertEquals("42", snapshot.get(UserAttributeSnapshot.LAST_PROMPT));
+        assertNull(snapshot.get(UserAttributeSnapshot.FIRST_MATCH));
+        assertEquals("true", snapshot.get(UserAttributeSnapshot.FIRST_MATCH + 1));
+    }
+
+    @Test
+    void testRead_SingleAttributeUsesDirectLookup() {
+        EnrollmentPolicy policy = EnrollmentPolicy.compile(Map.of("allow_user_opt_out", "true"));
+        CountingUser user = new CountingUser();
+        user.setSingleAttribute("mfaEnrollment.skipFuturePrompts", "true");
+
+        UserAttributeSnapshot snapshot = UserAttributeSnapshot.read(user, policy.attributeKeys());
+
+        assertEquals(0, user.mapReads);
+        assertEquals(1, user.singleReads);
+        assertEquals("true", snapshot.get(UserAttributeSnapshot.OPT_OUT));
+    }
+
+    @Test
+    void testRead_NothingNeededReadsNothing() {
+        EnrollmentPolicy policy = EnrollmentPolicy.compile(Map.of("allow_user_opt_out", "false"));
+        CountingUser user = new CountingUser();
+
+        UserAttributeSnapshot.read(user, policy.attributeKeys());
+
+        assertEquals(0, user.mapReads + user.singleReads);
+    }
+
+    private static class CountingUser extends FakeUser {
+        int mapReads;
+        int singleReads;
+
+        CountingUser() {
+            super("user-1", "alice");
+        }
+
+        @Override
+        public Map<String, List<String>> getAttributes() {
+            mapReads++;
+            return super.getAttributes();
+        }
+
+        @Override
+        public String getFirstAttribute(String name) {
+            singleReads++;
+            return super.getFirstAttribute(name);
+        }
+    }
+}
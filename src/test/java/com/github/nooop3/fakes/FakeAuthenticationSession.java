@@ -0,0 +1,220 @@
+package com.github.nooop3.fakes;
+
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.sessions.AuthenticationSessionModel;
+import org.keycloak.sessions.CommonClientSessionModel;
+import org.keycloak.sessions.RootAuthenticationSessionModel;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Authentication session keeping notes and required actions in memory for a single simulated login.
+ */
+public class FakeAuthenticationSession implements AuthenticationSessionModel {
+
+    private final RealmModel realm;
+    private final ClientModel client;
+    private final Map<String, String> authNotes = new HashMap<>();
+    private final Map<String, String> clientNotes = new HashMap<>();
+    private final Map<String, String> userSessionNotes = new HashMap<>();
+    private final Map<String, CommonClientSessionModel.ExecutionStatus> executionStatus = new HashMap<>();
+    private final Set<String> requiredActions = new LinkedHashSet<>();
+    private UserModel authenticatedUser;
+    private String action;
+    private String protocol = "openid-connect";
+    private String redirectUri;
+    private Set<String> clientScopes = new LinkedHashSet<>();
+
+    public FakeAuthenticationSession(RealmModel realm, ClientModel client) {
+        this.realm = realm;
+        this.client = client;
+    }
+
+    /**
+     * Clears per-login state so the session can be reused across benchmark invocations.
+     */
+    public void reset() {
+        authNotes.clear();
+        clientNotes.clear();
+        userSessionNotes.clear();
+        executionStatus.clear();
+        requiredActions.clear();
+        authenticatedUser = null;
+        action = null;
+    }
+
+    @Override
+    public RealmModel getRealm() {
+        return realm;
+    }
+
+    @Override
+    public ClientModel getClient() {
+        return client;
+    }
+
+    @Override
+    public String getTabId() {
+        return "tab";
+    }
+
+    @Override
+    public UserModel getAuthenticatedUser() {
+        return authenticatedUser;
+    }
+
+    @Override
+    public void setAuthenticatedUser(UserModel user) {
+        this.authenticatedUser = user;
+    }
+
+    @Override
+    public String getAction() {
+        return action;
+    }
+
+    @Override
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public void setProtocol(String protocol) {
+        this.protocol = protocol;
+    }
+
+    @Override
+    public String getRedirectUri() {
+        return redirectUri;
+    }
+
+    @Override
+    public void setRedirectUri(String redirectUri) {
+        this.redirectUri = redirectUri;
+    }
+
+    @Override
+    public Set<String> getClientScopes() {
+        return clientScopes;
+    }
+
+    @Override
+    public void setClientScopes(Set<String> clientScopes) {
+        this.clientScopes = clientScopes;
+    }
+
+    @Override
+    public String getAuthNote(String name) {
+        return authNotes.get(name);
+    }
+
+    @Override
+    public void setAuthNote(String name, String value) {
+        authNotes.put(name, value);
+    }
+
+    @Override
+    public void removeAuthNote(String name) {
+        authNotes.remove(name);
+    }
+
+    @Override
+    public void clearAuthNotes() {
+        authNotes.clear();
+    }
+
+    @Override
+    public String getClientNote(String name) {
+        return clientNotes.get(name);
+    }
+
+    @Override
+    public void setClientNote(String name, String value) {
+        clientNotes.put(name, value);
+    }
+
+    @Override
+    public void removeClientNote(String name) {
+        clientNotes.remove(name);
+    }
+
+    @Override
+    public Map<String, String> getClientNotes() {
+        return clientNotes;
+    }
+
+    @Override
+    public void clearClientNotes() {
+        clientNotes.clear();
+    }
+
+    @Override
+    public Map<String, String> getUserSessionNotes() {
+        return userSessionNotes;
+    }
+
+    @Override
+    public void setUserSessionNote(String name, String value) {
+        userSessionNotes.put(name, value);
+    }
+
+    @Override
+    public void clearUserSessionNotes() {
+        userSessionNotes.clear();
+    }
+
+    @Override
+    public Map<String, CommonClientSessionModel.ExecutionStatus> getExecutionStatus() {
+        return executionStatus;
+    }
+
+    @Override
+    public void setExecutionStatus(String authenticator, CommonClientSessionModel.ExecutionStatus status) {
+        executionStatus.put(authenticator, status);
+    }
+
+    @Override
+    public void clearExecutionStatus() {
+        executionStatus.clear();
+    }
+
+    @Override
+    public Set<String> getRequiredActions() {
+        return requiredActions;
+    }
+
+    @Override
+    public void addRequiredAction(String action) {
+        requiredActions.add(action);
+    }
+
+    @Override
+    public void addRequiredAction(UserModel.RequiredAction action) {
+        requiredActions.add(action.name());
+    }
+
+    @Override
+    public void removeRequiredAction(String action) {
+        requiredActions.remove(action);
+    }
+
+    @Override
+    public void removeRequiredAction(UserModel.RequiredAction action) {
+        requiredActions.remove(action.name());
+    }
+
+    @Override
+    public RootAuthenticationSessionModel getParentSession() {
+        throw new UnsupportedOperationException();
+    }
+}
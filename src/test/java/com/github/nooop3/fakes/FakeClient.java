@@ -0,0 +1,492 @@
+package com.github.nooop3.fakes;
+
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.ClientScopeModel;
+import org.keycloak.models.ProtocolMapperModel;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RoleModel;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Client identified only by its internal id and client id.
+ */
+public class FakeClient implements ClientModel {
+
+    private final String id;
+    private String clientId;
+    private final RealmModel realm;
+
+    public FakeClient(String id, String clientId, RealmModel realm) {
+        this.id = id;
+        this.clientId = clientId;
+        this.realm = realm;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getClientId() {
+        return clientId;
+    }
+
+    @Override
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    @Override
+    public String getName() {
+        return clientId;
+    }
+
+    @Override
+    public RealmModel getRealm() {
+        return realm;
+    }
+
+    @Override
+    public void addClientScope(ClientScopeModel clientScope, boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addClientScopes(Set<ClientScopeModel> values, boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ProtocolMapperModel addProtocolMapper(ProtocolMapperModel protocolMapper) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addRedirectUri(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RoleModel addRole(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RoleModel addRole(String value1, String value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addScopeMapping(RoleModel role) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addWebOrigin(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteScopeMapping(RoleModel role) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getAttribute(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, String> getAttributes() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getAuthenticationFlowBindingOverride(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, String> getAuthenticationFlowBindingOverrides() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getBaseUrl() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getClientAuthenticatorType() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, ClientScopeModel> getClientScopes(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getDescription() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getManagementUrl() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getNodeReRegistrationTimeout() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getNotBefore() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getProtocol() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ProtocolMapperModel getProtocolMapperById(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ProtocolMapperModel getProtocolMapperByName(String value1, String value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<ProtocolMapperModel> getProtocolMappersStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<RoleModel> getRealmScopeMappingsStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<String> getRedirectUris() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, Integer> getRegisteredNodes() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getRegistrationToken() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RoleModel getRole(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<RoleModel> getRolesStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<RoleModel> getRolesStream(Integer value1, Integer value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getRootUrl() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<RoleModel> getScopeMappingsStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getSecret() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<String> getWebOrigins() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean hasScope(RoleModel role) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isAlwaysDisplayInConsole() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isBearerOnly() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isConsentRequired() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isDirectAccessGrantsEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isFrontchannelLogout() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isFullScopeAllowed() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isImplicitFlowEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isPublicClient() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isServiceAccountsEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isStandardFlowEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isSurrogateAuthRequired() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void registerNode(String value1, int value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAttribute(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAuthenticationFlowBindingOverride(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeClientScope(ClientScopeModel clientScope) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeProtocolMapper(ProtocolMapperModel protocolMapper) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeRedirectUri(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeRole(RoleModel role) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeWebOrigin(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<RoleModel> searchForRolesStream(String value1, Integer value2, Integer value3) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAlwaysDisplayInConsole(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAttribute(String value1, String value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAuthenticationFlowBindingOverride(String value1, String value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setBaseUrl(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setBearerOnly(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setClientAuthenticatorType(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setConsentRequired(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setDescription(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setDirectAccessGrantsEnabled(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setEnabled(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setFrontchannelLogout(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setFullScopeAllowed(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setImplicitFlowEnabled(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setManagementUrl(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setName(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setNodeReRegistrationTimeout(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setNotBefore(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setProtocol(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setPublicClient(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setRedirectUris(Set<String> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setRegistrationToken(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setRootUrl(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setSecret(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setServiceAccountsEnabled(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setStandardFlowEnabled(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setSurrogateAuthRequired(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setWebOrigins(Set<String> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void unregisterNode(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateClient() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateProtocolMapper(ProtocolMapperModel protocolMapper) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean validateSecret(String value) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.nooop3.fakes;
+
+import org.keycloak.credential.CredentialInput;
+import org.keycloak.credential.CredentialModel;
+import org.keycloak.models.SubjectCredentialManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * In-memory {@link SubjectCredentialManager} backed by a plain list of stored credentials.
+ */
+public class FakeCredentialManager implements SubjectCredentialManager {
+
+    private final List<CredentialModel> credentials = new ArrayList<>();
+    private int streamReads;
+
+    public FakeCredentialManager add(String type) {
+        return add(type, null);
+    }
+
+    public FakeCredentialManager add(String type, String credentialData) {
+        CredentialModel credential = new CredentialModel();
+        credential.setId(type + "-" + credentials.size());
+        credential.setType(type);
+        credential.setCreatedDate(0L);
+        credential.setCredentialData(credentialData);
+        credentials.add(credential);
+        return this;
+    }
+
+    public List<CredentialModel> credentials() {
+        return credentials;
+    }
+
+    /**
+     * Number of times the stored credentials were streamed.
+     */
+    public int streamReads() {
+        return streamReads;
+    }
+
+    @Override
+    public Stream<CredentialModel> getStoredCredentialsStream() {
+        streamReads++;
+        return credentials.stream();
+    }
+
+    @Override
+    public Stream<CredentialModel> getStoredCredentialsByTypeStream(String type) {
+        return credentials.stream().filter(credential -> type.equals(credential.getType()));
+    }
+
+    @Override
+    public CredentialModel getStoredCredentialById(String id) {
+        for (CredentialModel credential : credentials) {
+            if (credential.getId().equals(id)) {
+                return credential;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public CredentialModel createStoredCredential(CredentialModel credential) {
+        credentials.add(credential);
+        return credential;
+    }
+
+    @Override
+    public boolean removeStoredCredentialById(String id) {
+        return credentials.removeIf(credential -> credential.getId().equals(id));
+    }
+
+    @Override
+    public boolean isConfiguredFor(String type) {
+        return isConfiguredLocally(type);
+    }
+
+    @Override
+    public boolean isConfiguredLocally(String type) {
+        for (CredentialModel credential : credentials) {
+            if (type.equals(credential.getType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Stream<String> getConfiguredUserStorageCredentialTypesStream() {
+        return Stream.empty();
+    }
+
+    @Override
+    public CredentialModel createCredentialThroughProvider(CredentialModel credential) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void disableCredentialType(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<String> getDisableableCredentialTypesStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CredentialModel getStoredCredentialByNameAndType(String value1, String value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isValid(List<CredentialInput> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean moveStoredCredentialTo(String value1, String value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean updateCredential(CredentialInput credentialInput) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateCredentialLabel(String value1, String value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateStoredCredential(CredentialModel credential) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,336 @@
+package com.github.nooop3.fakes;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import org.keycloak.authentication.AuthenticationFlowContext;
+import org.keycloak.authentication.AuthenticationFlowError;
+import org.keycloak.authentication.AuthenticationSelectionOption;
+import org.keycloak.authentication.FlowStatus;
+import org.keycloak.common.ClientConnection;
+import org.keycloak.events.EventBuilder;
+import org.keycloak.forms.login.LoginFormsProvider;
+import org.keycloak.http.HttpRequest;
+import org.keycloak.models.AuthenticationExecutionModel;
+import org.keycloak.models.AuthenticationFlowModel;
+import org.keycloak.models.AuthenticatorConfigModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.UserSessionModel;
+import org.keycloak.models.utils.FormMessage;
+import org.keycloak.services.managers.BruteForceProtector;
+import org.keycloak.sessions.AuthenticationSessionModel;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Flow context wiring the other fakes together and recording the outcome reported by the authenticator.
+ */
+public class FakeFlowContext implements AuthenticationFlowContext {
+
+    private final KeycloakSession session;
+    private final RealmModel realm;
+    private final FakeAuthenticationSession authenticationSession;
+    private final AuthenticationExecutionModel execution;
+    private final FakeForms forms = new FakeForms();
+    private final FakeHttpRequest httpRequest = new FakeHttpRequest();
+    private AuthenticatorConfigModel authenticatorConfig;
+    private UserModel user;
+    private FlowStatus status;
+    private AuthenticationFlowError error;
+    private Response challenge;
+
+    public FakeFlowContext(KeycloakSession session, RealmModel realm, FakeAuthenticationSession authenticationSession,
+            AuthenticatorConfigModel authenticatorConfig) {
+        this.session = session;
+        this.realm = realm;
+        this.authenticationSession = authenticationSession;
+        this.authenticatorConfig = authenticatorConfig;
+        this.execution = new AuthenticationExecutionModel();
+        execution.setId("mfa-enrollment-execution");
+        execution.setAuthenticator("mfa-enrollment-orchestrator");
+        execution.setRequirement(AuthenticationExecutionModel.Requirement.REQUIRED);
+    }
+
+    /**
+     * Forgets the previous outcome; authentication session notes are kept so action() can follow authenticate().
+     */
+    public FakeFlowContext reset(UserModel user) {
+        this.user = user;
+        this.status = null;
+        this.error = null;
+        this.challenge = null;
+        forms.reset();
+        httpRequest.formParameters().clear();
+        return this;
+    }
+
+    public FakeForms forms() {
+        return forms;
+    }
+
+    public FakeHttpRequest request() {
+        return httpRequest;
+    }
+
+    public Response challengeResponse() {
+        return challenge;
+    }
+
+    public void setAuthenticatorConfig(AuthenticatorConfigModel authenticatorConfig) {
+        this.authenticatorConfig = authenticatorConfig;
+    }
+
+    @Override
+    public KeycloakSession getSession() {
+        return session;
+    }
+
+    @Override
+    public RealmModel getRealm() {
+        return realm;
+    }
+
+    @Override
+    public UserModel getUser() {
+        return user;
+    }
+
+    @Override
+    public void setUser(UserModel user) {
+        this.user = user;
+    }
+
+    @Override
+    public void clearUser() {
+        this.user = null;
+    }
+
+    @Override
+    public AuthenticationSessionModel getAuthenticationSession() {
+        return authenticationSession;
+    }
+
+    @Override
+    public AuthenticationExecutionModel getExecution() {
+        return execution;
+    }
+
+    @Override
+    public AuthenticatorConfigModel getAuthenticatorConfig() {
+        return authenticatorConfig;
+    }
+
+    @Override
+    public HttpRequest getHttpRequest() {
+        return httpRequest;
+    }
+
+    @Override
+    public LoginFormsProvider form() {
+        return forms;
+    }
+
+    @Override
+    public FlowStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public AuthenticationFlowError getError() {
+        return error;
+    }
+
+    @Override
+    public void success() {
+        status = FlowStatus.SUCCESS;
+    }
+
+    @Override
+    public void success(String credentialType) {
+        success();
+    }
+
+    @Override
+    public void attempted() {
+        status = FlowStatus.ATTEMPTED;
+    }
+
+    @Override
+    public void challenge(Response response) {
+        status = FlowStatus.CHALLENGE;
+        challenge = response;
+    }
+
+    @Override
+    public void forceChallenge(Response response) {
+        status = FlowStatus.FORCE_CHALLENGE;
+        challenge = response;
+    }
+
+    @Override
+    public void failureChallenge(AuthenticationFlowError error, Response response) {
+        status = FlowStatus.FAILURE_CHALLENGE;
+        this.error = error;
+        challenge = response;
+    }
+
+    @Override
+    public void failure(AuthenticationFlowError error) {
+        status = FlowStatus.FAILED;
+        this.error = error;
+    }
+
+    @Override
+    public void failure(AuthenticationFlowError error, Response response) {
+        failure(error);
+        challenge = response;
+    }
+
+    @Override
+    public void failure(AuthenticationFlowError error, Response response, String eventDetails,
+            String userErrorMessage) {
+        failure(error, response);
+    }
+
+    @Override
+    public void attachUserSession(UserSessionModel userSession) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void cancelLogin() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void fork() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void forkWithErrorMessage(FormMessage formMessage) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void forkWithSuccessMessage(FormMessage formMessage) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String generateAccessCode() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public URI getActionTokenUrl(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public URI getActionUrl(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<AuthenticationSelectionOption> getAuthenticationSelections() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticationExecutionModel.Requirement getCategoryRequirementFromCurrentFlow(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientConnection getConnection() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public EventBuilder getEvent() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getEventDetails() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getFlowPath() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FormMessage getForwardedErrorMessage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FormMessage getForwardedInfoMessage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FormMessage getForwardedSuccessMessage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public BruteForceProtector getProtector() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public URI getRefreshExecutionUrl() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public URI getRefreshUrl(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticationFlowModel getTopLevelFlow() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public UriInfo getUriInfo() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getUserErrorMessage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public EventBuilder newEvent() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void resetFlow() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void resetFlow(Runnable value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAuthenticationSelections(List<AuthenticationSelectionOption> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setForwardedInfoMessage(String value1, Object... value2) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,292 @@
+package com.github.nooop3.fakes;
+
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
+import org.keycloak.authentication.AuthenticationFlowContext;
+import org.keycloak.forms.login.LoginFormsProvider;
+import org.keycloak.forms.login.MessageType;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.utils.FormMessage;
+import org.keycloak.rar.AuthorizationDetails;
+import org.keycloak.sessions.AuthenticationSessionModel;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Records form attributes and returns a shared, pre-built response instead of rendering FreeMarker templates.
+ */
+public class FakeForms implements LoginFormsProvider {
+
+    private static final Response RENDERED = Response.ok().build();
+
+    private final Map<String, Object> attributes = new HashMap<>();
+    private String template;
+
+    public Map<String, Object> attributes() {
+        return attributes;
+    }
+
+    public String template() {
+        return template;
+    }
+
+    public void reset() {
+        attributes.clear();
+        template = null;
+    }
+
+    @Override
+    public LoginFormsProvider setAttribute(String name, Object value) {
+        attributes.put(name, value);
+        return this;
+    }
+
+    @Override
+    public Response createForm(String form) {
+        template = form;
+        return RENDERED;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public LoginFormsProvider addError(FormMessage formMessage) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addScript(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider addSuccess(FormMessage formMessage) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createCode() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createErrorPage(Response.Status status) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createFrontChannelLogoutPage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createIdpLinkConfirmLinkPage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createIdpLinkConfirmOverrideLinkPage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createIdpLinkEmailPage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createInfoPage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createLoginExpiredPage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createLoginPassword() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createLoginRecoveryAuthnCode() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createLoginTotp() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createLoginUsername() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createLoginUsernamePassword() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createLoginWebAuthn() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createLogoutConfirmPage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createOAuth2DeviceVerifyUserCodePage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createOAuthGrant() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createOtpReset() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createPasswordReset() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createRegistration() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createResponse(UserModel.RequiredAction requiredAction) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createSamlPostForm() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createSelectAuthenticator() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createUpdateProfilePage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createWebAuthnErrorPage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Response createX509ConfirmPage() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getMessage(String value1, Object... value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setAccessRequest(List<AuthorizationDetails> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setActionUri(URI value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setAttributeMapper(Function<Map<String, Object>, Map<String, Object>> value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setAuthContext(AuthenticationFlowContext authenticationFlowContext) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setAuthenticationSession(AuthenticationSessionModel authenticationSession) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setClientSessionCode(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setDetachedAuthSession() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setError(String value1, Object... value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setErrors(List<FormMessage> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setExecution(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setFormData(MultivaluedMap<String, String> multivaluedMap) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setInfo(String value1, Object... value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setMessage(MessageType messageType, String value1, Object... value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setResponseHeader(String value1, String value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setStatus(Response.Status status) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setSuccess(String value1, Object... value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider setUser(UserModel user) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.nooop3.fakes;
+
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.RoleModel;
+import org.keycloak.models.utils.RoleUtils;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Group with a parent, subgroups and realm role mappings; created through {@link FakeRealm#addGroup}.
+ */
+public class FakeGroup implements GroupModel {
+
+    private final String id;
+    private final String name;
+    private final FakeGroup parent;
+    private final Set<GroupModel> subGroups = new LinkedHashSet<>();
+    private final Set<RoleModel> roles = new LinkedHashSet<>();
+
+    public FakeGroup(String id, String name, FakeGroup parent) {
+        this.id = id;
+        this.name = name;
+        this.parent = parent;
+        if (parent != null) {
+            parent.subGroups.add(this);
+        }
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public GroupModel getParent() {
+        return parent;
+    }
+
+    @Override
+    public String getParentId() {
+        return parent == null ? null : parent.getId();
+    }
+
+    @Override
+    public Stream<GroupModel> getSubGroupsStream() {
+        return subGroups.stream();
+    }
+
+    @Override
+    public Stream<RoleModel> getRealmRoleMappingsStream() {
+        return roles.stream();
+    }
+
+    @Override
+    public Stream<RoleModel> getRoleMappingsStream() {
+        return roles.stream();
+    }
+
+    @Override
+    public Stream<RoleModel> getClientRoleMappingsStream(ClientModel client) {
+        return Stream.empty();
+    }
+
+    @Override
+    public boolean hasRole(RoleModel role) {
+        return RoleUtils.hasRole(getRoleMappingsStream(), role)
+                || parent != null && parent.hasRole(role);
+    }
+
+    @Override
+    public void grantRole(RoleModel role) {
+        roles.add(role);
+    }
+
+    @Override
+    public void deleteRoleMapping(RoleModel role) {
+        roles.remove(role);
+    }
+
+    @Override
+    public void setName(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getDescription() {
+        return null;
+    }
+
+    @Override
+    public void setDescription(String description) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setSingleAttribute(String name, String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAttribute(String name, List<String> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getFirstAttribute(String name) {
+        return null;
+    }
+
+    @Override
+    public Stream<String> getAttributeStream(String name) {
+        return Stream.empty();
+    }
+
+    @Override
+    public Map<String, List<String>> getAttributes() {
+        return Map.of();
+    }
+
+    @Override
+    public void setParent(GroupModel group) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addChild(GroupModel subGroup) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeChild(GroupModel subGroup) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.nooop3.fakes;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.UriInfo;
+import org.keycloak.http.FormPartValue;
+import org.keycloak.http.HttpRequest;
+
+import java.security.cert.X509Certificate;
+
+/**
+ * POST request carrying only decoded form parameters.
+ */
+public class FakeHttpRequest implements HttpRequest {
+
+    private final MultivaluedMap<String, String> formParameters = new MultivaluedHashMap<>();
+
+    public MultivaluedMap<String, String> formParameters() {
+        return formParameters;
+    }
+
+    @Override
+    public String getHttpMethod() {
+        return "POST";
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getDecodedFormParameters() {
+        return formParameters;
+    }
+
+    @Override
+    public boolean isProxyTrusted() {
+        return false;
+    }
+
+    @Override
+    public X509Certificate[] getClientCertificateChain() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public HttpHeaders getHttpHeaders() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public MultivaluedMap<String, FormPartValue> getMultiPartFormParameters() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public UriInfo getUri() {
+        throw new UnsupportedOperationException();
+    }
+}
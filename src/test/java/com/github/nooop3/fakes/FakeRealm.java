@@ -0,0 +1,1436 @@
+package com.github.nooop3.fakes;
+
+import org.keycloak.common.enums.SslRequired;
+import org.keycloak.component.ComponentModel;
+import org.keycloak.models.AuthenticationExecutionModel;
+import org.keycloak.models.AuthenticationFlowModel;
+import org.keycloak.models.AuthenticatorConfigModel;
+import org.keycloak.models.CibaConfig;
+import org.keycloak.models.ClientInitialAccessModel;
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.ClientScopeModel;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.IdentityProviderMapperModel;
+import org.keycloak.models.IdentityProviderModel;
+import org.keycloak.models.OAuth2DeviceConfig;
+import org.keycloak.models.OTPPolicy;
+import org.keycloak.models.ParConfig;
+import org.keycloak.models.PasswordPolicy;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RequiredActionConfigModel;
+import org.keycloak.models.RequiredActionProviderModel;
+import org.keycloak.models.RequiredCredentialModel;
+import org.keycloak.models.RoleModel;
+import org.keycloak.models.WebAuthnPolicy;
+import org.keycloak.representations.idm.RealmRepresentation;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Realm holding only the state the enrollment authenticator reads: realm roles and required action providers.
+ */
+public class FakeRealm implements RealmModel {
+
+    private final String id;
+    private final String name;
+    private final Map<String, RoleModel> rolesByName = new LinkedHashMap<>();
+    private final Map<String, RoleModel> rolesById = new HashMap<>();
+    private final Map<String, RequiredActionProviderModel> requiredActions = new LinkedHashMap<>();
+    private final Map<String, GroupModel> groupsById = new LinkedHashMap<>();
+    private String defaultLocale;
+
+    public FakeRealm(String id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    /**
+     * Registers enabled required action providers for the given aliases.
+     */
+    public FakeRealm withRequiredActions(String... aliases) {
+        for (String alias : aliases) {
+            RequiredActionProviderModel model = new RequiredActionProviderModel();
+            model.setId(alias);
+            model.setAlias(alias);
+            model.setProviderId(alias);
+            model.setName(alias);
+            model.setEnabled(true);
+            addRequiredActionProvider(model);
+        }
+        return this;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public RoleModel getRole(String name) {
+        return rolesByName.get(name);
+    }
+
+    @Override
+    public RoleModel getRoleById(String id) {
+        return rolesById.get(id);
+    }
+
+    @Override
+    public RoleModel addRole(String name) {
+        return addRole(id + "-role-" + name, name);
+    }
+
+    @Override
+    public RoleModel addRole(String roleId, String name) {
+        FakeRole role = new FakeRole(roleId, name, this);
+        rolesByName.put(name, role);
+        rolesById.put(roleId, role);
+        return role;
+    }
+
+    /**
+     * Adds a group below {@code parent} (or at the top level when {@code null}); its id is derived from its name.
+     */
+    public FakeGroup addGroup(String name, FakeGroup parent) {
+        String groupId = (parent == null ? id + "-group" : parent.getId()) + "-" + name;
+        FakeGroup group = new FakeGroup(groupId, name, parent);
+        groupsById.put(groupId, group);
+        return group;
+    }
+
+    @Override
+    public boolean removeRole(RoleModel role) {
+        rolesById.remove(role.getId());
+        return rolesByName.remove(role.getName()) != null;
+    }
+
+    @Override
+    public Stream<RoleModel> getRolesStream() {
+        return rolesByName.values().stream();
+    }
+
+    @Override
+    public RequiredActionProviderModel addRequiredActionProvider(RequiredActionProviderModel model) {
+        requiredActions.put(model.getAlias(), model);
+        return model;
+    }
+
+    @Override
+    public void removeRequiredActionProvider(RequiredActionProviderModel model) {
+        requiredActions.remove(model.getAlias());
+    }
+
+    @Override
+    public RequiredActionProviderModel getRequiredActionProviderByAlias(String alias) {
+        return requiredActions.get(alias);
+    }
+
+    @Override
+    public RequiredActionProviderModel getRequiredActionProviderById(String id) {
+        for (RequiredActionProviderModel model : requiredActions.values()) {
+            if (model.getId().equals(id)) {
+                return model;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Stream<RequiredActionProviderModel> getRequiredActionProvidersStream() {
+        return requiredActions.values().stream();
+    }
+
+    @Override
+    public AuthenticationFlowModel addAuthenticationFlow(AuthenticationFlowModel authenticationFlow) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticatorConfigModel addAuthenticatorConfig(AuthenticatorConfigModel authenticatorConfig) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticationExecutionModel addAuthenticatorExecution(AuthenticationExecutionModel authenticationExecution) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientModel addClient(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientModel addClient(String value1, String value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientScopeModel addClientScope(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientScopeModel addClientScope(String value1, String value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ComponentModel addComponentModel(ComponentModel component) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addDefaultClientScope(ClientScopeModel clientScope, boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addDefaultGroup(GroupModel group) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addIdentityProvider(IdentityProviderModel identityProvider) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public IdentityProviderMapperModel addIdentityProviderMapper(IdentityProviderMapperModel identityProviderMapper) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addRequiredCredential(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientInitialAccessModel createClientInitialAccessModel(int value1, int value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public GroupModel createGroup(String value1, String value2, GroupModel group) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void createOrUpdateRealmLocalizationTexts(String value, Map<String, String> map) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void decreaseRemainingCount(ClientInitialAccessModel clientInitialAccess) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getAccessCodeLifespan() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getAccessCodeLifespanLogin() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getAccessCodeLifespanUserAction() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getAccessTokenLifespan() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getAccessTokenLifespanForImplicitFlow() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getAccountTheme() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getActionTokenGeneratedByAdminLifespan() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getActionTokenGeneratedByUserLifespan() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getActionTokenGeneratedByUserLifespan(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientModel getAdminPermissionsClient() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getAdminTheme() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<ClientModel> getAlwaysDisplayInConsoleClientsStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getAttribute(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, String> getAttributes() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticationExecutionModel getAuthenticationExecutionByFlowId(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticationExecutionModel getAuthenticationExecutionById(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<AuthenticationExecutionModel> getAuthenticationExecutionsStream(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticationFlowModel getAuthenticationFlowById(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<AuthenticationFlowModel> getAuthenticationFlowsStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticatorConfigModel getAuthenticatorConfigByAlias(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticatorConfigModel getAuthenticatorConfigById(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<AuthenticatorConfigModel> getAuthenticatorConfigsStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticationFlowModel getBrowserFlow() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, String> getBrowserSecurityHeaders() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RealmRepresentation.BruteForceStrategy getBruteForceStrategy() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CibaConfig getCibaPolicy() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticationFlowModel getClientAuthenticationFlow() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientModel getClientByClientId(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientModel getClientById(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientInitialAccessModel getClientInitialAccessModel(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<ClientInitialAccessModel> getClientInitialAccesses() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getClientOfflineSessionIdleTimeout() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getClientOfflineSessionMaxLifespan() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientScopeModel getClientScopeById(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<ClientScopeModel> getClientScopesStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getClientSessionIdleTimeout() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getClientSessionMaxLifespan() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Long getClientsCount() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<ClientModel> getClientsStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<ClientModel> getClientsStream(Integer value1, Integer value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ComponentModel getComponent(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<ComponentModel> getComponentsStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<ComponentModel> getComponentsStream(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<ComponentModel> getComponentsStream(String value1, String value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<ClientScopeModel> getDefaultClientScopesStream(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<GroupModel> getDefaultGroupsStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getDefaultLocale() {
+        return defaultLocale;
+    }
+
+    @Override
+    public RoleModel getDefaultRole() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getDefaultSignatureAlgorithm() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticationFlowModel getDirectGrantFlow() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getDisplayName() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getDisplayNameHtml() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticationFlowModel getDockerAuthenticationFlow() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getEmailTheme() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<String> getEnabledEventTypesStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long getEventsExpiration() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<String> getEventsListenersStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getFailureFactor() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticationFlowModel getFirstBrokerLoginFlow() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticationFlowModel getFlowByAlias(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public GroupModel getGroupById(String value) {
+        return groupsById.get(value);
+    }
+
+    @Override
+    public Long getGroupsCount(Boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Long getGroupsCountByNameContaining(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<GroupModel> getGroupsStream() {
+        return groupsById.values().stream();
+    }
+
+    @Override
+    public IdentityProviderModel getIdentityProviderByAlias(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public IdentityProviderMapperModel getIdentityProviderMapperById(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public IdentityProviderMapperModel getIdentityProviderMapperByName(String value1, String value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<IdentityProviderMapperModel> getIdentityProviderMappersByAliasStream(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<IdentityProviderMapperModel> getIdentityProviderMappersStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<IdentityProviderModel> getIdentityProvidersStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getLoginTheme() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientModel getMasterAdminClient() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getMaxDeltaTimeSeconds() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getMaxFailureWaitSeconds() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getMaxTemporaryLockouts() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getMinimumQuickLoginWaitSeconds() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getNotBefore() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public OAuth2DeviceConfig getOAuth2DeviceConfig() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public OTPPolicy getOTPPolicy() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getOfflineSessionIdleTimeout() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getOfflineSessionMaxLifespan() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ParConfig getParPolicy() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public PasswordPolicy getPasswordPolicy() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long getQuickLoginCheckMilliSeconds() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, Map<String, String>> getRealmLocalizationTexts() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, String> getRealmLocalizationTextsByLocale(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getRefreshTokenMaxReuse() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticationFlowModel getRegistrationFlow() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RequiredActionConfigModel getRequiredActionConfigByAlias(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RequiredActionConfigModel getRequiredActionConfigById(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<RequiredActionConfigModel> getRequiredActionConfigsStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<RequiredCredentialModel> getRequiredCredentialsStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AuthenticationFlowModel getResetCredentialsFlow() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<RoleModel> getRolesStream(Integer value1, Integer value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, String> getSmtpConfig() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SslRequired getSslRequired() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getSsoSessionIdleTimeout() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getSsoSessionIdleTimeoutRememberMe() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getSsoSessionMaxLifespan() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getSsoSessionMaxLifespanRememberMe() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<String> getSupportedLocalesStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<GroupModel> getTopLevelGroupsStream() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<GroupModel> getTopLevelGroupsStream(Integer value1, Integer value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, Integer> getUserActionTokenLifespans() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getWaitIncrementSeconds() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public WebAuthnPolicy getWebAuthnPolicy() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public WebAuthnPolicy getWebAuthnPolicyPasswordless() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ComponentModel importComponentModel(ComponentModel component) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isAdminEventsDetailsEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isAdminEventsEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isAdminPermissionsEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isBruteForceProtected() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isDuplicateEmailsAllowed() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isEditUsernameAllowed() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isEventsEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isIdentityFederationEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isInternationalizationEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isLoginWithEmailAllowed() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isOfflineSessionMaxLifespanEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isOrganizationsEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isPermanentLockout() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isRegistrationAllowed() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isRegistrationEmailAsUsername() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isRememberMe() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isResetPasswordAllowed() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isRevokeRefreshToken() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isUserManagedAccessAllowed() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isVerifiableCredentialsEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isVerifyEmail() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void moveGroup(GroupModel group1, GroupModel group2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAttribute(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAuthenticationFlow(AuthenticationFlowModel authenticationFlow) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAuthenticatorConfig(AuthenticatorConfigModel authenticatorConfig) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAuthenticatorExecution(AuthenticationExecutionModel authenticationExecution) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeClient(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeClientInitialAccessModel(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeClientScope(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeComponent(ComponentModel component) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeComponents(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeDefaultClientScope(ClientScopeModel clientScope) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeDefaultGroup(GroupModel group) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeGroup(GroupModel group) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeIdentityProviderByAlias(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeIdentityProviderMapper(IdentityProviderMapperModel identityProviderMapper) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeRealmLocalizationTexts(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeRequiredActionProviderConfig(RequiredActionConfigModel requiredActionConfig) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<ClientModel> searchClientByAttributes(Map<String, String> map, Integer value1, Integer value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<ClientModel> searchClientByAuthenticationFlowBindingOverrides(Map<String, String> map, Integer value1, Integer value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<ClientModel> searchClientByClientIdStream(String value1, Integer value2, Integer value3) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<RoleModel> searchForRolesStream(String value1, Integer value2, Integer value3) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAccessCodeLifespan(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAccessCodeLifespanLogin(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAccessCodeLifespanUserAction(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAccessTokenLifespan(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAccessTokenLifespanForImplicitFlow(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAccountTheme(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setActionTokenGeneratedByAdminLifespan(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setActionTokenGeneratedByUserLifespan(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setActionTokenGeneratedByUserLifespan(String value1, Integer value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAdminEventsDetailsEnabled(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAdminEventsEnabled(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAdminPermissionsClient(ClientModel client) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAdminPermissionsEnabled(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAdminTheme(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAttribute(String value1, String value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setBrowserFlow(AuthenticationFlowModel authenticationFlow) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setBrowserSecurityHeaders(Map<String, String> map) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setBruteForceProtected(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setBruteForceStrategy(RealmRepresentation.BruteForceStrategy bruteForceStrategy) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setClientAuthenticationFlow(AuthenticationFlowModel authenticationFlow) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setClientOfflineSessionIdleTimeout(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setClientOfflineSessionMaxLifespan(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setClientSessionIdleTimeout(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setClientSessionMaxLifespan(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setDefaultLocale(String value) {
+        defaultLocale = value;
+    }
+
+    @Override
+    public void setDefaultRole(RoleModel role) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setDefaultSignatureAlgorithm(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setDirectGrantFlow(AuthenticationFlowModel authenticationFlow) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setDisplayName(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setDisplayNameHtml(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setDockerAuthenticationFlow(AuthenticationFlowModel authenticationFlow) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setDuplicateEmailsAllowed(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setEditUsernameAllowed(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setEmailTheme(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setEnabled(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setEnabledEventTypes(Set<String> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setEventsEnabled(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setEventsExpiration(long value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setEventsListeners(Set<String> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setFailureFactor(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setFirstBrokerLoginFlow(AuthenticationFlowModel authenticationFlow) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setInternationalizationEnabled(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setLoginTheme(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setLoginWithEmailAllowed(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setMasterAdminClient(ClientModel client) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setMaxDeltaTimeSeconds(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setMaxFailureWaitSeconds(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setMaxTemporaryLockouts(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setMinimumQuickLoginWaitSeconds(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setName(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setNotBefore(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setOTPPolicy(OTPPolicy oTPPolicy) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setOfflineSessionIdleTimeout(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setOfflineSessionMaxLifespan(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setOfflineSessionMaxLifespanEnabled(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setOrganizationsEnabled(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setPasswordPolicy(PasswordPolicy passwordPolicy) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setPermanentLockout(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setQuickLoginCheckMilliSeconds(long value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setRefreshTokenMaxReuse(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setRegistrationAllowed(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setRegistrationEmailAsUsername(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setRegistrationFlow(AuthenticationFlowModel authenticationFlow) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setRememberMe(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setResetCredentialsFlow(AuthenticationFlowModel authenticationFlow) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setResetPasswordAllowed(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setRevokeRefreshToken(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setSmtpConfig(Map<String, String> map) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setSslRequired(SslRequired sslRequired) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setSsoSessionIdleTimeout(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setSsoSessionIdleTimeoutRememberMe(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setSsoSessionMaxLifespan(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setSsoSessionMaxLifespanRememberMe(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setSupportedLocales(Set<String> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setUserManagedAccessAllowed(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setVerifiableCredentialsEnabled(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setVerifyEmail(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setWaitIncrementSeconds(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setWebAuthnPolicy(WebAuthnPolicy webAuthnPolicy) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setWebAuthnPolicyPasswordless(WebAuthnPolicy webAuthnPolicy) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateAuthenticationFlow(AuthenticationFlowModel authenticationFlow) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateAuthenticatorConfig(AuthenticatorConfigModel authenticatorConfig) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateAuthenticatorExecution(AuthenticationExecutionModel authenticationExecution) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateComponent(ComponentModel component) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateIdentityProvider(IdentityProviderModel identityProvider) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateIdentityProviderMapper(IdentityProviderMapperModel identityProviderMapper) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateRequiredActionConfig(RequiredActionConfigModel requiredActionConfig) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateRequiredActionProvider(RequiredActionProviderModel requiredActionProvider) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateRequiredCredentials(Set<String> values) {
+        throw new UnsupportedOperationException();
+    }
+}
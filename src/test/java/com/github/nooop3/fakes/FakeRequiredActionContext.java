@@ -0,0 +1,176 @@
+package com.github.nooop3.fakes;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import org.keycloak.authentication.RequiredActionContext;
+import org.keycloak.common.ClientConnection;
+import org.keycloak.events.EventBuilder;
+import org.keycloak.forms.login.LoginFormsProvider;
+import org.keycloak.http.HttpRequest;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.RequiredActionConfigModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.sessions.AuthenticationSessionModel;
+
+import java.net.URI;
+
+/**
+ * Required action context wiring the other fakes together and recording the status reported by the action.
+ */
+public class FakeRequiredActionContext implements RequiredActionContext {
+
+    private final KeycloakSession session;
+    private final RealmModel realm;
+    private final FakeAuthenticationSession authenticationSession;
+    private final RequiredActionConfigModel config;
+    private final FakeForms forms = new FakeForms();
+    private final FakeHttpRequest httpRequest = new FakeHttpRequest();
+    private UserModel user;
+    private Status status;
+    private Response challenge;
+
+    public FakeRequiredActionContext(KeycloakSession session, RealmModel realm,
+            FakeAuthenticationSession authenticationSession, RequiredActionConfigModel config) {
+        this.session = session;
+        this.realm = realm;
+        this.authenticationSession = authenticationSession;
+        this.config = config;
+    }
+
+    /**
+     * Forgets the previous status; authentication session notes are kept so processAction() can follow the
+     * challenge.
+     */
+    public FakeRequiredActionContext reset(UserModel user) {
+        this.user = user;
+        this.status = null;
+        this.challenge = null;
+        forms.reset();
+        httpRequest.formParameters().clear();
+        return this;
+    }
+
+    public FakeForms forms() {
+        return forms;
+    }
+
+    public FakeHttpRequest request() {
+        return httpRequest;
+    }
+
+    public Response challengeResponse() {
+        return challenge;
+    }
+
+    @Override
+    public String getAction() {
+        return "mfa-enrollment";
+    }
+
+    @Override
+    public URI getActionUrl(String code) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public URI getActionUrl() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public LoginFormsProvider form() {
+        return forms;
+    }
+
+    @Override
+    public Response getChallenge() {
+        return challenge;
+    }
+
+    @Override
+    public EventBuilder getEvent() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public UserModel getUser() {
+        return user;
+    }
+
+    @Override
+    public RealmModel getRealm() {
+        return realm;
+    }
+
+    @Override
+    public AuthenticationSessionModel getAuthenticationSession() {
+        return authenticationSession;
+    }
+
+    @Override
+    public ClientConnection getConnection() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public UriInfo getUriInfo() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public KeycloakSession getSession() {
+        return session;
+    }
+
+    @Override
+    public HttpRequest getHttpRequest() {
+        return httpRequest;
+    }
+
+    @Override
+    public RequiredActionConfigModel getConfig() {
+        return config;
+    }
+
+    @Override
+    public String generateCode() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public String getErrorMessage() {
+        return null;
+    }
+
+    @Override
+    public void challenge(Response response) {
+        status = Status.CHALLENGE;
+        challenge = response;
+    }
+
+    @Override
+    public void failure(String errorMessage) {
+        status = Status.FAILURE;
+    }
+
+    @Override
+    public void success() {
+        status = Status.SUCCESS;
+    }
+
+    @Override
+    public void cancel() {
+        status = Status.CANCELLED;
+    }
+
+    @Override
+    public void ignore() {
+        status = Status.IGNORE;
+    }
+}
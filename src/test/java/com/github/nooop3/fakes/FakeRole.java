@@ -0,0 +1,125 @@
+package com.github.nooop3.fakes;
+
+import org.keycloak.models.RoleContainerModel;
+import org.keycloak.models.RoleModel;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Realm role with optional composites; {@link #hasRole(RoleModel)} walks composites like the JPA adapter does.
+ */
+public class FakeRole implements RoleModel {
+
+    private final String id;
+    private final String name;
+    private final RoleContainerModel container;
+    private final Set<RoleModel> composites = new LinkedHashSet<>();
+
+    public FakeRole(String id, String name, RoleContainerModel container) {
+        this.id = id;
+        this.name = name;
+        this.container = container;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getDescription() {
+        return null;
+    }
+
+    @Override
+    public boolean isClientRole() {
+        return false;
+    }
+
+    @Override
+    public String getContainerId() {
+        return container.getId();
+    }
+
+    @Override
+    public RoleContainerModel getContainer() {
+        return container;
+    }
+
+    @Override
+    public boolean isComposite() {
+        return !composites.isEmpty();
+    }
+
+    @Override
+    public void addCompositeRole(RoleModel role) {
+        composites.add(role);
+    }
+
+    @Override
+    public void removeCompositeRole(RoleModel role) {
+        composites.remove(role);
+    }
+
+    @Override
+    public Stream<RoleModel> getCompositesStream(String search, Integer first, Integer max) {
+        return composites.stream();
+    }
+
+    @Override
+    public boolean hasRole(RoleModel role) {
+        if (this.equals(role)) {
+            return true;
+        }
+        for (RoleModel composite : composites) {
+            if (composite.hasRole(role)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Stream<String> getAttributeStream(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, List<String>> getAttributes() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAttribute(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setAttribute(String value, List<String> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setDescription(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setName(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setSingleAttribute(String value1, String value2) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,240 @@
+package com.github.nooop3.fakes;
+
+import org.keycloak.component.ComponentModel;
+import org.keycloak.models.ClientProvider;
+import org.keycloak.models.ClientScopeProvider;
+import org.keycloak.models.GroupProvider;
+import org.keycloak.models.IdentityProviderStorageProvider;
+import org.keycloak.models.KeyManager;
+import org.keycloak.models.KeycloakContext;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmProvider;
+import org.keycloak.models.RoleProvider;
+import org.keycloak.models.SingleUseObjectProvider;
+import org.keycloak.models.ThemeManager;
+import org.keycloak.models.TokenManager;
+import org.keycloak.models.UserLoginFailureProvider;
+import org.keycloak.models.UserProvider;
+import org.keycloak.models.UserSessionProvider;
+import org.keycloak.provider.InvalidationHandler;
+import org.keycloak.provider.Provider;
+import org.keycloak.services.clientpolicy.ClientPolicyManager;
+import org.keycloak.sessions.AuthenticationSessionProvider;
+import org.keycloak.vault.VaultTranscriber;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Session without providers unless registered with {@link #withProvider}; code under test falls back to its
+ * model-API code paths.
+ */
+public class FakeSession implements KeycloakSession {
+
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final FakeTransactionManager transactionManager = new FakeTransactionManager();
+    private final Map<Class<?>, Provider> providers = new HashMap<>();
+    private ThemeManager themes;
+
+    public FakeSession withThemes(ThemeManager themes) {
+        this.themes = themes;
+        return this;
+    }
+
+    public <T extends Provider> FakeSession withProvider(Class<T> type, T provider) {
+        providers.put(type, provider);
+        return this;
+    }
+
+    /**
+     * Ends the current request: commits whatever was enlisted and drops session attributes, as Keycloak does
+     * when it closes the per-request session.
+     */
+    public void endRequest() {
+        transactionManager.commit();
+        attributes.clear();
+    }
+
+    @Override
+    public <T extends Provider> T getProvider(Class<T> type) {
+        return type.cast(providers.get(type));
+    }
+
+    @Override
+    public <T extends Provider> T getProvider(Class<T> type, String id) {
+        return null;
+    }
+
+    @Override
+    public <T extends Provider> T getProvider(Class<T> type, ComponentModel componentModel) {
+        return null;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public <T> T getAttribute(String name, Class<T> type) {
+        Object value = attributes.get(name);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        attributes.put(name, value);
+    }
+
+    @Override
+    public Object removeAttribute(String name) {
+        return attributes.remove(name);
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public AuthenticationSessionProvider authenticationSessions() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientPolicyManager clientPolicy() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientScopeProvider clientScopes() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ClientProvider clients() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void enlistForClose(Provider provider) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends Provider> Set<T> getAllProviders(Class<T> type) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends Provider> T getComponentProvider(Class<T> type, String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends Provider> T getComponentProvider(Class<T> type, String value1, Function<KeycloakSessionFactory, ComponentModel> value2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public KeycloakContext getContext() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public KeycloakSessionFactory getKeycloakSessionFactory() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Class<? extends Provider> getProviderClass(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FakeTransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    @Override
+    public GroupProvider groups() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public IdentityProviderStorageProvider identityProviders() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void invalidate(InvalidationHandler.InvalidableObjectType invalidableObjectType, Object... value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isClosed() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public KeyManager keys() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends Provider> Set<String> listProviderIds(Class<T> type) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public UserLoginFailureProvider loginFailures() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RealmProvider realms() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RoleProvider roles() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public UserSessionProvider sessions() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SingleUseObjectProvider singleUseObjects() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ThemeManager theme() {
+        return themes;
+    }
+
+    @Override
+    public TokenManager tokens() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public UserProvider users() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public VaultTranscriber vault() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.nooop3.fakes;
+
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.ThemeManager;
+import org.keycloak.theme.Theme;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Login theme that only serves message bundles, together with a theme manager handing it out; counts bundle
+ * reads so tests can check what is cached.
+ */
+public class FakeTheme implements Theme {
+
+    private final Map<Locale, Properties> messages = new HashMap<>();
+    private int reads;
+
+    public FakeTheme withMessage(Locale locale, String key, String value) {
+        messages.computeIfAbsent(locale, l -> new Properties()).setProperty(key, value);
+        return this;
+    }
+
+    public int reads() {
+        return reads;
+    }
+
+    public ThemeManager manager() {
+        return new ThemeManager() {
+            @Override
+            public Theme getTheme(Type type) {
+                return type == Type.LOGIN ? FakeTheme.this : null;
+            }
+
+            @Override
+            public Theme getTheme(String name, Type type) {
+                return getTheme(type);
+            }
+
+            @Override
+            public Set<String> nameSet(Type type) {
+                return Set.of(getName());
+            }
+
+            @Override
+            public boolean isCacheEnabled() {
+                return false;
+            }
+
+            @Override
+            public void clearCache() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public Properties getEnhancedMessages(RealmModel realm, Locale locale) {
+        return getMessages(locale);
+    }
+
+    @Override
+    public Properties getMessages(Locale locale) {
+        reads++;
+        Properties bundle = new Properties();
+        bundle.putAll(messages.getOrDefault(locale, new Properties()));
+        return bundle;
+    }
+
+    @Override
+    public Properties getMessages(String baseBundlename, Locale locale) {
+        return getMessages(locale);
+    }
+
+    @Override
+    public String getName() {
+        return "fake";
+    }
+
+    @Override
+    public String getParentName() {
+        return null;
+    }
+
+    @Override
+    public String getImportName() {
+        return null;
+    }
+
+    @Override
+    public Type getType() {
+        return Type.LOGIN;
+    }
+
+    @Override
+    public URL getTemplate(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String path) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Properties getProperties() {
+        return new Properties();
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.nooop3.fakes;
+
+import org.keycloak.models.KeycloakTransaction;
+import org.keycloak.models.KeycloakTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transaction manager with Keycloak's ordering: prepare transactions commit first, then enlisted ones, then
+ * after-completion ones. Lists are cleared on commit and rollback so the manager can serve the next request.
+ */
+public class FakeTransactionManager implements KeycloakTransactionManager {
+
+    private final List<KeycloakTransaction> prepare = new ArrayList<>();
+    private final List<KeycloakTransaction> transactions = new ArrayList<>();
+    private final List<KeycloakTransaction> afterCompletion = new ArrayList<>();
+    private JTAPolicy jtaPolicy = JTAPolicy.REQUIRES_NEW;
+
+    @Override
+    public JTAPolicy getJTAPolicy() {
+        return jtaPolicy;
+    }
+
+    @Override
+    public void setJTAPolicy(JTAPolicy policy) {
+        this.jtaPolicy = policy;
+    }
+
+    @Override
+    public void enlist(KeycloakTransaction transaction) {
+        transactions.add(begin(transaction));
+    }
+
+    @Override
+    public void enlistAfterCompletion(KeycloakTransaction transaction) {
+        afterCompletion.add(begin(transaction));
+    }
+
+    @Override
+    public void enlistPrepare(KeycloakTransaction transaction) {
+        prepare.add(begin(transaction));
+    }
+
+    /**
+     * Number of transactions waiting for commit or rollback.
+     */
+    public int pending() {
+        return prepare.size() + transactions.size() + afterCompletion.size();
+    }
+
+    @Override
+    public void begin() {
+    }
+
+    @Override
+    public void commit() {
+        List<KeycloakTransaction> all = drain();
+        for (KeycloakTransaction transaction : all) {
+            transaction.commit();
+        }
+    }
+
+    @Override
+    public void rollback() {
+        List<KeycloakTransaction> all = drain();
+        for (KeycloakTransaction transaction : all) {
+            transaction.rollback();
+        }
+    }
+
+    @Override
+    public void setRollbackOnly() {
+    }
+
+    @Override
+    public boolean getRollbackOnly() {
+        return false;
+    }
+
+    @Override
+    public boolean isActive() {
+        return true;
+    }
+
+    private static KeycloakTransaction begin(KeycloakTransaction transaction) {
+        if (!transaction.isActive()) {
+            transaction.begin();
+        }
+        return transaction;
+    }
+
+    private List<KeycloakTransaction> drain() {
+        List<KeycloakTransaction> all = new ArrayList<>(pending());
+        all.addAll(prepare);
+        all.addAll(transactions);
+        all.addAll(afterCompletion);
+        prepare.clear();
+        transactions.clear();
+        afterCompletion.clear();
+        return all;
+    }
+}
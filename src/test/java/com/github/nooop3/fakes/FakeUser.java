@@ -0,0 +1,245 @@
+package com.github.nooop3.fakes;
+
+import org.keycloak.models.ClientModel;
+import org.keycloak.models.GroupModel;
+import org.keycloak.models.RoleModel;
+import org.keycloak.models.SubjectCredentialManager;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.utils.RoleUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Local (non-federated) user with attribute, role, group and required action state held in plain collections.
+ */
+public class FakeUser implements UserModel {
+
+    private final String id;
+    private String username;
+    private final Map<String, List<String>> attributes = new HashMap<>();
+    private final Set<RoleModel> roles = new LinkedHashSet<>();
+    private final Set<GroupModel> groups = new LinkedHashSet<>();
+    private final Set<String> requiredActions = new LinkedHashSet<>();
+    private final FakeCredentialManager credentialManager = new FakeCredentialManager();
+    private boolean enabled = true;
+    private Long createdTimestamp = 0L;
+
+    public FakeUser(String id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+
+    public FakeCredentialManager credentials() {
+        return credentialManager;
+    }
+
+    public Set<String> requiredActions() {
+        return requiredActions;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    @Override
+    public Long getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+
+    @Override
+    public void setCreatedTimestamp(Long timestamp) {
+        this.createdTimestamp = timestamp;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public String getFederationLink() {
+        return null;
+    }
+
+    @Override
+    public String getServiceAccountClientLink() {
+        return null;
+    }
+
+    @Override
+    public void setSingleAttribute(String name, String value) {
+        List<String> values = new ArrayList<>(1);
+        values.add(value);
+        attributes.put(name, values);
+    }
+
+    @Override
+    public void setAttribute(String name, List<String> values) {
+        attributes.put(name, new ArrayList<>(values));
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public String getFirstAttribute(String name) {
+        List<String> values = attributes.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    @Override
+    public Stream<String> getAttributeStream(String name) {
+        List<String> values = attributes.get(name);
+        return values == null ? Stream.empty() : values.stream();
+    }
+
+    @Override
+    public Map<String, List<String>> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Stream<String> getRequiredActionsStream() {
+        return requiredActions.stream();
+    }
+
+    @Override
+    public void addRequiredAction(String action) {
+        requiredActions.add(action);
+    }
+
+    @Override
+    public void removeRequiredAction(String action) {
+        requiredActions.remove(action);
+    }
+
+    @Override
+    public SubjectCredentialManager credentialManager() {
+        return credentialManager;
+    }
+
+    @Override
+    public Stream<RoleModel> getRealmRoleMappingsStream() {
+        return roles.stream();
+    }
+
+    @Override
+    public Stream<RoleModel> getRoleMappingsStream() {
+        return roles.stream();
+    }
+
+    @Override
+    public void grantRole(RoleModel role) {
+        roles.add(role);
+    }
+
+    @Override
+    public void deleteRoleMapping(RoleModel role) {
+        roles.remove(role);
+    }
+
+    @Override
+    public boolean hasRole(RoleModel role) {
+        return RoleUtils.hasRole(getRoleMappingsStream(), role)
+                || RoleUtils.hasRoleFromGroup(getGroupsStream(), role, true);
+    }
+
+    @Override
+    public Stream<GroupModel> getGroupsStream() {
+        return groups.stream();
+    }
+
+    @Override
+    public void joinGroup(GroupModel group) {
+        groups.add(group);
+    }
+
+    @Override
+    public void leaveGroup(GroupModel group) {
+        groups.remove(group);
+    }
+
+    @Override
+    public boolean isMemberOf(GroupModel group) {
+        return RoleUtils.isMember(getGroupsStream(), group);
+    }
+
+    @Override
+    public Stream<RoleModel> getClientRoleMappingsStream(ClientModel client) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getEmail() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getFirstName() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getLastName() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isEmailVerified() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setEmail(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setEmailVerified(boolean value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setFederationLink(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setFirstName(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setLastName(String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setServiceAccountClientLink(String value) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.nooop3.fakes;
+
+import org.keycloak.authentication.requiredactions.WebAuthnRegisterFactory;
+import org.keycloak.models.AuthenticatorConfigModel;
+import org.keycloak.models.RequiredActionConfigModel;
+import org.keycloak.models.UserModel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wires a realm, client, authentication session, flow context and required action context around a single
+ * execution config so tests, benchmarks and simulations can drive the authenticator without Mockito.
+ */
+public final class LoginFixture {
+
+    private final FakeSession session = new FakeSession();
+    private final FakeRealm realm;
+    private final FakeClient client;
+    private final FakeAuthenticationSession authenticationSession;
+    private final AuthenticatorConfigModel configModel;
+    private final FakeFlowContext context;
+    private final FakeRequiredActionContext requiredActionContext;
+
+    private LoginFixture(Map<String, String> config) {
+        realm = new FakeRealm("realm-id", "test")
+                .withRequiredActions(UserModel.RequiredAction.CONFIGURE_TOTP.name(),
+                        WebAuthnRegisterFactory.PROVIDER_ID,
+                        UserModel.RequiredAction.CONFIGURE_RECOVERY_AUTHN_CODES.name());
+        client = new FakeClient("client-internal-id", "account-console", realm);
+        authenticationSession = new FakeAuthenticationSession(realm, client);
+        configModel = new AuthenticatorConfigModel();
+        configModel.setId("mfa-enrollment-config");
+        configModel.setAlias("mfa-enrollment");
+        configModel.setConfig(new HashMap<>(config));
+        context = new FakeFlowContext(session, realm, authenticationSession, configModel);
+        RequiredActionConfigModel requiredActionConfig = new RequiredActionConfigModel();
+        requiredActionConfig.setId("mfa-enrollment-action-config");
+        requiredActionConfig.setProviderId("mfa-enrollment");
+        requiredActionConfig.setConfig(configModel.getConfig());
+        requiredActionContext = new FakeRequiredActionContext(session, realm, authenticationSession,
+                requiredActionConfig);
+    }
+
+    public static LoginFixture create(Map<String, String> config) {
+        return new LoginFixture(config);
+    }
+
+    public FakeUser user(String id, String... credentialTypes) {
+        FakeUser user = new FakeUser(id, "user-" + id);
+        for (String type : credentialTypes) {
+            user.credentials().add(type);
+        }
+        return user;
+    }
+
+    /**
+     * Starts a new login for the user, clearing state left behind by the previous one.
+     */
+    public FakeFlowContext begin(UserModel user) {
+        session.endRequest();
+        authenticationSession.reset();
+        return context.reset(user);
+    }
+
+    /**
+     * Continues the current login (e.g. the form POST after a challenge) without clearing auth notes.
+     */
+    public FakeFlowContext resume(UserModel user) {
+        session.endRequest();
+        return context.reset(user);
+    }
+
+    /**
+     * Runs the next request of the current login as a required action configured like the execution. Start the
+     * login with {@link #begin(UserModel)} first to clear the previous login's auth notes.
+     */
+    public FakeRequiredActionContext requiredAction(UserModel user) {
+        session.endRequest();
+        return requiredActionContext.reset(user);
+    }
+
+    /**
+     * Commits the current request, making buffered user updates visible.
+     */
+    public void commit() {
+        session.endRequest();
+    }
+
+    public FakeSession session() {
+        return session;
+    }
+
+    public FakeRealm realm() {
+        return realm;
+    }
+
+    public FakeClient client() {
+        return client;
+    }
+
+    public FakeAuthenticationSession authenticationSession() {
+        return authenticationSession;
+    }
+
+    public AuthenticatorConfigModel configModel() {
+        return configModel;
+    }
+
+    public FakeFlowContext context() {
+        return context;
+    }
+}